@@ -0,0 +1,76 @@
+package com.ziminpro.common.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD concurrency limit driven by call latency. Each call is compared with a slow
+ * moving baseline of healthy latencies: calls within {@code tolerance} of it grow
+ * the limit by roughly one per round trip once it is actually being used, slower
+ * calls or overload failures cut it by {@code backoffRatio}, at most once per baseline
+ * period so a single burst of slow calls does not collapse it to the floor.
+ */
+final class AdaptiveLimiter {
+    private static final double BASELINE_WEIGHT = 0.01;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double tolerance;
+    private final long minThresholdNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double baselineNanos;
+    private long lastDecrease;
+
+    AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double tolerance,
+                    long minThresholdNanos) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.tolerance = tolerance;
+        this.minThresholdNanos = minThresholdNanos;
+        this.limit = initialLimit;
+        this.baselineNanos = minThresholdNanos;
+        this.lastDecrease = System.nanoTime();
+    }
+
+    boolean tryAcquire(Lane lane) {
+        int allowed = Math.max(1, (int) (limit * lane.share()));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long now, long latencyNanos, boolean overloaded) {
+        int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            boolean slow = latencyNanos > Math.max(minThresholdNanos, baselineNanos * tolerance);
+            if (overloaded || slow) {
+                if (now - lastDecrease > baselineNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecrease = now;
+                }
+                return;
+            }
+            baselineNanos += (latencyNanos - baselineNanos) * BASELINE_WEIGHT;
+            if (current * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+    }
+
+    double limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,14 @@
+package com.ziminpro.common.concurrency;
+
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    public ConcurrencyLimitExceededException(Lane lane) {
+        super("Concurrency limit exceeded for " + lane.name().toLowerCase() + " lane");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        // thrown on every shed call under overload; the stack trace is never useful
+        return this;
+    }
+}
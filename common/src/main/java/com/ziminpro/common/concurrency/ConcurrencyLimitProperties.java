@@ -0,0 +1,18 @@
+package com.ziminpro.common.concurrency;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.concurrency-limit")
+public record ConcurrencyLimitProperties(boolean enabled,
+                                         int initialLimit,
+                                         int minLimit,
+                                         int maxLimit,
+                                         double backoffRatio,
+                                         double latencyTolerance,
+                                         Duration minLatencyThreshold,
+                                         List<String> critical,
+                                         List<String> bulk) {
+}
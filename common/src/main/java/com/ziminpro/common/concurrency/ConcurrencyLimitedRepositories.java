@@ -0,0 +1,184 @@
+package com.ziminpro.common.concurrency;
+
+import java.lang.reflect.Method;
+import java.sql.SQLTransientException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.SmartInstantiationAwareBeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Puts every {@link Repository} bean behind a shared {@link AdaptiveLimiter}. Calls
+ * over the limit of their lane fail fast with
+ * {@link ConcurrencyLimitExceededException} instead of queueing for a pool
+ * connection. Lanes are assigned per method as {@code Interface.method} in
+ * {@code app.concurrency-limit.critical} and {@code bulk}; everything else is normal.
+ * Only failures that say the database is struggling (timeouts, lost or refused
+ * connections, transient driver errors) shrink the limit; a duplicate key or a
+ * constraint violation is an answer like any other.
+ * <p>
+ * A repository calling another one (an outbox append inside a message write) runs
+ * under the permit of the outermost call: it already holds a connection and an open
+ * transaction, and shedding it halfway would only fail a write that was admitted.
+ */
+@Component
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class ConcurrencyLimitedRepositories implements SmartInstantiationAwareBeanPostProcessor {
+    private final ConcurrencyLimitProperties properties;
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private final Map<String, Lane> lanes = new HashMap<>();
+    private final Map<Method, Lane> resolved = new ConcurrentHashMap<>();
+    private final ThreadLocal<Boolean> admitted = new ThreadLocal<>();
+    private AdaptiveLimiter limiter;
+    private Map<Lane, Counter> accepted;
+    private Map<Lane, Counter> rejected;
+
+    public ConcurrencyLimitedRepositories(ConcurrencyLimitProperties properties,
+                                          ObjectProvider<MeterRegistry> registryProvider) {
+        this.properties = properties;
+        this.registryProvider = registryProvider;
+        assign(properties.critical(), Lane.CRITICAL);
+        assign(properties.bulk(), Lane.BULK);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!properties.enabled() || AnnotationUtils.findAnnotation(bean.getClass(), Repository.class) == null) {
+            return bean;
+        }
+        MethodInterceptor advice = this::invoke;
+        if (bean instanceof Advised advised) {
+            advised.addAdvice(advice);
+            return bean;
+        }
+        ProxyFactory factory = new ProxyFactory(bean);
+        // some repositories are injected by their concrete class
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(advice);
+        return factory.getProxy();
+    }
+
+    // predicting the proxy type makes AOT processing generate the proxy class ahead of time (native images)
+    @Override
+    public Class<?> determineBeanType(Class<?> beanClass, String beanName) {
+        if (!properties.enabled() || AnnotationUtils.findAnnotation(beanClass, Repository.class) == null
+                || beanClass.getName().contains(ClassUtils.CGLIB_CLASS_SEPARATOR)) {
+            return beanClass;
+        }
+        ProxyFactory factory = new ProxyFactory();
+        factory.setTargetClass(beanClass);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice((MethodInterceptor) this::invoke);
+        return factory.getProxyClass(beanClass.getClassLoader());
+    }
+
+    private Object invoke(MethodInvocation invocation) throws Throwable {
+        if (invocation.getMethod().getDeclaringClass() == Object.class || admitted.get() != null) {
+            return invocation.proceed();
+        }
+        AdaptiveLimiter limiter = limiter();
+        Lane lane = resolved.computeIfAbsent(invocation.getMethod(), this::lane);
+        if (!limiter.tryAcquire(lane)) {
+            rejected.get(lane).increment();
+            throw new ConcurrencyLimitExceededException(lane);
+        }
+        accepted.get(lane).increment();
+        long start = System.nanoTime();
+        boolean overloaded = false;
+        admitted.set(Boolean.TRUE);
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            overloaded = isOverload(e);
+            throw e;
+        } finally {
+            admitted.remove();
+            long now = System.nanoTime();
+            limiter.release(now, now - start, overloaded);
+        }
+    }
+
+    static boolean isOverload(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QueryTimeoutException
+                    || cause instanceof TransientDataAccessResourceException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof TimeoutException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private synchronized AdaptiveLimiter limiter() {
+        // created lazily: the registry is not yet available while repositories are built
+        if (limiter == null) {
+            MeterRegistry registry = registryProvider.getObject();
+            AdaptiveLimiter created = new AdaptiveLimiter(properties.initialLimit(), properties.minLimit(),
+                    properties.maxLimit(), properties.backoffRatio(), properties.latencyTolerance(),
+                    properties.minLatencyThreshold().toNanos());
+            Gauge.builder("concurrency.limit", created, AdaptiveLimiter::limit)
+                    .description("Current adaptive limit of concurrent repository calls")
+                    .register(registry);
+            Gauge.builder("concurrency.inflight", created, AdaptiveLimiter::inFlight)
+                    .description("Repository calls currently in flight")
+                    .register(registry);
+            accepted = counters(registry, "accepted");
+            rejected = counters(registry, "rejected");
+            limiter = created;
+        }
+        return limiter;
+    }
+
+    private Map<Lane, Counter> counters(MeterRegistry registry, String outcome) {
+        Map<Lane, Counter> counters = new EnumMap<>(Lane.class);
+        for (Lane lane : Lane.values()) {
+            counters.put(lane, Counter.builder("concurrency.requests")
+                    .description("Repository calls seen by the concurrency limiter")
+                    .tag("lane", lane.name().toLowerCase())
+                    .tag("outcome", outcome)
+                    .register(registry));
+        }
+        return counters;
+    }
+
+    private void assign(List<String> methods, Lane lane) {
+        if (methods != null) {
+            methods.forEach(method -> lanes.put(method, lane));
+        }
+    }
+
+    private Lane lane(Method method) {
+        for (Class<?> type : method.getDeclaringClass().getInterfaces()) {
+            Lane lane = lanes.get(type.getSimpleName() + "." + method.getName());
+            if (lane != null) {
+                return lane;
+            }
+        }
+        return Lane.NORMAL;
+    }
+}
@@ -0,0 +1,21 @@
+package com.ziminpro.common.concurrency;
+
+/**
+ * Priority lane of a repository call. A lane may only use its share of the current
+ * limit, so as the limit shrinks bulk work is shed first and critical work last.
+ */
+public enum Lane {
+    CRITICAL(1.0),
+    NORMAL(0.75),
+    BULK(0.4);
+
+    private final double share;
+
+    Lane(double share) {
+        this.share = share;
+    }
+
+    double share() {
+        return share;
+    }
+}
@@ -0,0 +1,35 @@
+package com.ziminpro.common.concurrency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ziminpro.common.web.ErrorResponses;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebExceptionHandler;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Turns shed repository calls into {@code 503} with {@code Retry-After}, whether they
+ * were rejected inside a controller or inside the security chain.
+ */
+@Component
+@Order(-2)
+public class OverloadExceptionHandler implements WebExceptionHandler {
+    private final ObjectMapper objectMapper;
+
+    public OverloadExceptionHandler(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (!(ex instanceof ConcurrencyLimitExceededException) || response.isCommitted()) {
+            return Mono.error(ex);
+        }
+        return ErrorResponses.write(response, objectMapper, HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), 1);
+    }
+}
@@ -0,0 +1,30 @@
+package com.ziminpro.common.db;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Reads {@code spring.flyway.enabled} when the context starts. Without AOT the
+ * property already switches Flyway's auto-configuration off; an AOT-processed
+ * context fixed that condition at build time and always registers Flyway, so
+ * the migration itself is skipped here. The AppCDS training start relies on it
+ * ({@code SPRING_FLYWAY_ENABLED=false}) to refresh the AOT context with no database.
+ */
+@Configuration
+@ConditionalOnClass(Flyway.class)
+public class FlywayConfig {
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(
+            @Value("${spring.flyway.enabled:true}") boolean enabled) {
+        return flyway -> {
+            if (enabled) {
+                flyway.migrate();
+            }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package com.ziminpro.common.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * One way to time things: every timer is tagged with {@code operation} and
+ * {@code outcome} and publishes a percentile histogram, so p99 can be aggregated
+ * across replicas in Prometheus. The {@code replica} tag is added globally from
+ * {@code management.metrics.tags}. Synchronous calls also get a child span of the
+ * current trace named after the operation.
+ */
+@Component
+public class Instrumentation {
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+
+    private final MeterRegistry registry;
+    private final Tracer tracer;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public Instrumentation(MeterRegistry registry, ObjectProvider<Tracer> tracer) {
+        this.registry = registry;
+        this.tracer = tracer.getIfAvailable(() -> Tracer.NOOP);
+    }
+
+    public <T, E extends Throwable> T record(String name, String operation, ThrowingSupplier<T, E> call) throws E {
+        return record(name, operation, call, ex -> ERROR);
+    }
+
+    public <T, E extends Throwable> T record(String name, String operation, ThrowingSupplier<T, E> call,
+                                             Function<Throwable, String> failureOutcome) throws E {
+        Span span = tracer.nextSpan().name(operation).tag("metric", name).start();
+        long start = System.nanoTime();
+        String outcome = SUCCESS;
+        try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+            return call.get();
+        } catch (Throwable ex) {
+            outcome = failureOutcome.apply(ex);
+            span.error(ex);
+            throw ex;
+        } finally {
+            timer(name, operation, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            span.tag("outcome", outcome).end();
+        }
+    }
+
+    public <T> Mono<T> time(String name, String operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call
+                    .doOnSuccess(value -> stop(name, operation, SUCCESS, start))
+                    .doOnError(ex -> stop(name, operation, ERROR, start))
+                    .doOnCancel(() -> stop(name, operation, "cancelled", start));
+        });
+    }
+
+    public void stop(String name, String operation, String outcome, long startNanos) {
+        timer(name, operation, outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String name, String operation, String outcome) {
+        return timers.computeIfAbsent(name + '|' + operation + '|' + outcome, key -> Timer.builder(name)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    @FunctionalInterface
+    public interface ThrowingSupplier<T, E extends Throwable> {
+        T get() throws E;
+    }
+}
@@ -0,0 +1,86 @@
+package com.ziminpro.common.metrics;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ziminpro.common.concurrency.ConcurrencyLimitExceededException;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.SmartInstantiationAwareBeanPostProcessor;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Times every {@link Repository} method as {@code repository.calls} with
+ * {@code operation=Interface.method}. The timer sits outside the concurrency
+ * limiter, so shed calls show up with {@code outcome=rejected}, and each call is a
+ * span in the request's trace.
+ */
+@Component
+public class TimedRepositories implements SmartInstantiationAwareBeanPostProcessor {
+    private static final String TIMER = "repository.calls";
+
+    private final ObjectProvider<Instrumentation> instrumentationProvider;
+    private final Map<Method, String> operations = new ConcurrentHashMap<>();
+
+    public TimedRepositories(ObjectProvider<Instrumentation> instrumentationProvider) {
+        this.instrumentationProvider = instrumentationProvider;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (AnnotationUtils.findAnnotation(bean.getClass(), Repository.class) == null) {
+            return bean;
+        }
+        MethodInterceptor advice = this::invoke;
+        if (bean instanceof Advised advised) {
+            advised.addAdvice(0, advice);
+            return bean;
+        }
+        ProxyFactory factory = new ProxyFactory(bean);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(advice);
+        return factory.getProxy();
+    }
+
+    // predicting the proxy type makes AOT processing generate the proxy class ahead of time (native images)
+    @Override
+    public Class<?> determineBeanType(Class<?> beanClass, String beanName) {
+        if (AnnotationUtils.findAnnotation(beanClass, Repository.class) == null
+                || beanClass.getName().contains(ClassUtils.CGLIB_CLASS_SEPARATOR)) {
+            return beanClass;
+        }
+        ProxyFactory factory = new ProxyFactory();
+        factory.setTargetClass(beanClass);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice((MethodInterceptor) this::invoke);
+        return factory.getProxyClass(beanClass.getClassLoader());
+    }
+
+    private Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (method.getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        return instrumentationProvider.getObject().record(TIMER,
+                operations.computeIfAbsent(method, TimedRepositories::operation), invocation::proceed,
+                ex -> ex instanceof ConcurrencyLimitExceededException ? "rejected" : Instrumentation.ERROR);
+    }
+
+    private static String operation(Method method) {
+        for (Class<?> type : method.getDeclaringClass().getInterfaces()) {
+            for (Method declared : type.getMethods()) {
+                if (declared.getName().equals(method.getName())) {
+                    return type.getSimpleName() + "." + method.getName();
+                }
+            }
+        }
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+}
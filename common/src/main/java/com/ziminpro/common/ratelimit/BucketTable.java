@@ -0,0 +1,62 @@
+package com.ziminpro.common.ratelimit;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fixed number of independently bounded stripes. A stripe that reaches its share of
+ * {@code maxBuckets} first drops idle buckets and, if still full, arbitrary ones;
+ * a dropped bucket simply starts full again, so eviction can only make the limiter
+ * more lenient, never stricter.
+ */
+final class BucketTable {
+    private static final int STRIPES = 64;
+
+    private final ConcurrentHashMap<String, TokenBucket>[] stripes;
+    private final int stripeCapacity;
+    private final long idleNanos;
+
+    @SuppressWarnings("unchecked")
+    BucketTable(int maxBuckets, long idleNanos) {
+        this.stripes = new ConcurrentHashMap[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.stripeCapacity = Math.max(1, maxBuckets / STRIPES);
+        this.idleNanos = idleNanos;
+    }
+
+    TokenBucket bucket(String key, long now) {
+        ConcurrentHashMap<String, TokenBucket> stripe = stripes[stripe(key)];
+        TokenBucket bucket = stripe.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (stripe.size() >= stripeCapacity) {
+            evict(stripe, now);
+        }
+        return stripe.computeIfAbsent(key, k -> new TokenBucket(now));
+    }
+
+    int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, TokenBucket> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private void evict(ConcurrentHashMap<String, TokenBucket> stripe, long now) {
+        stripe.values().removeIf(bucket -> bucket.idle(now, idleNanos));
+        Iterator<String> keys = stripe.keySet().iterator();
+        while (stripe.size() >= stripeCapacity && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,192 @@
+package com.ziminpro.common.ratelimit;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ziminpro.common.web.ErrorResponses;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Token-bucket admission control per client and route. Runs ahead of the security
+ * chain, so a rejected request never costs a token decode or a user lookup. Nothing
+ * about the caller has been verified at that point, so every request is keyed by
+ * client address: a bearer token of its own choosing would hand a client a fresh
+ * bucket per request. Once the security chain has verified a token,
+ * {@link SubjectRateLimitFilter} charges the same route to the subject as well.
+ * Routes are matched against the configured patterns and methods in order and each
+ * gets its own bucket; everything else falls into the default limit.
+ * <p>
+ * Behind {@code trusted-proxies} reverse proxies the client address is the
+ * {@code X-Forwarded-For} entry the outermost of them appended, counted from the
+ * right; entries to its left were written by the client and are ignored.
+ */
+@Component
+@Order(RateLimitFilter.ORDER)
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitFilter implements WebFilter {
+    /** Just ahead of Spring Security's {@code WebFilterChainProxy} at -100. */
+    public static final int ORDER = -101;
+
+    private final boolean enabled;
+    private final int trustedProxies;
+    private final BucketTable buckets;
+    private final List<RouteLimit> routes = new ArrayList<>();
+    private final RouteLimit defaults;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry registry, ObjectMapper objectMapper) {
+        this.enabled = properties.enabled();
+        this.trustedProxies = properties.trustedProxies();
+        double addressFactor = properties.addressFactor() > 0 ? properties.addressFactor() : 1;
+        this.buckets = new BucketTable(properties.maxBuckets(), properties.idleTimeout().toNanos());
+        this.objectMapper = objectMapper;
+        if (properties.routes() != null) {
+            for (RateLimitProperties.Route route : properties.routes()) {
+                routes.add(new RouteLimit(route.pattern(), route.method(), route.capacity(),
+                        route.refillPerSecond(), addressFactor, registry));
+            }
+        }
+        this.defaults = new RouteLimit("default", null, properties.defaults().capacity(),
+                properties.defaults().refillPerSecond(), addressFactor, registry);
+        Gauge.builder("ratelimit.buckets", buckets, BucketTable::size)
+                .description("Token buckets currently held in memory")
+                .register(registry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (skips(exchange.getRequest())) {
+            return chain.filter(exchange);
+        }
+        return admit(exchange, chain, Stage.ADDRESS, clientAddress(exchange.getRequest()));
+    }
+
+    boolean skips(ServerHttpRequest request) {
+        return !enabled || request.getPath().value().startsWith("/actuator");
+    }
+
+    Mono<Void> admit(ServerWebExchange exchange, WebFilterChain chain, Stage stage, String client) {
+        RouteLimit route = match(exchange.getRequest());
+        long now = System.nanoTime();
+        long wait = buckets.bucket(stage.prefix + client + "|" + route.key, now)
+                .tryAcquire(now, route.intervalNanos.get(stage), route.burstNanos.get(stage));
+        if (wait == 0) {
+            route.allowed.get(stage).increment();
+            return chain.filter(exchange);
+        }
+        route.rejected.get(stage).increment();
+        return reject(exchange.getResponse(), wait);
+    }
+
+    private RouteLimit match(ServerHttpRequest request) {
+        for (RouteLimit route : routes) {
+            if (route.matches(request)) {
+                return route;
+            }
+        }
+        return defaults;
+    }
+
+    String clientAddress(ServerHttpRequest request) {
+        if (trustedProxies > 0) {
+            List<String> forwarded = new ArrayList<>();
+            for (String header : request.getHeaders().getValuesAsList("X-Forwarded-For")) {
+                if (!header.isBlank()) {
+                    forwarded.add(header.trim());
+                }
+            }
+            if (!forwarded.isEmpty()) {
+                // fewer entries than proxies means the client sent none, and the leftmost is a proxy's own view
+                return forwarded.get(Math.max(0, forwarded.size() - trustedProxies));
+            }
+        }
+        InetSocketAddress remote = request.getRemoteAddress();
+        if (remote == null || remote.getAddress() == null) {
+            return "unknown";
+        }
+        return remote.getAddress().getHostAddress();
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response, long waitNanos) {
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        return ErrorResponses.write(response, objectMapper, HttpStatus.TOO_MANY_REQUESTS, "Too many requests",
+                retryAfter);
+    }
+
+    enum Stage {
+        /** Ahead of authentication, keyed by client address. */
+        ADDRESS("ip:", "address"),
+        /** After the security chain verified a token, keyed by its subject. */
+        SUBJECT("sub:", "subject");
+
+        private final String prefix;
+        private final String tag;
+
+        Stage(String prefix, String tag) {
+            this.prefix = prefix;
+            this.tag = tag;
+        }
+    }
+
+    private static final class RouteLimit {
+        private final String name;
+        private final String key;
+        private final PathPattern pattern;
+        private final String method;
+        private final Map<Stage, Long> intervalNanos = new EnumMap<>(Stage.class);
+        private final Map<Stage, Long> burstNanos = new EnumMap<>(Stage.class);
+        private final Map<Stage, Counter> allowed = new EnumMap<>(Stage.class);
+        private final Map<Stage, Counter> rejected = new EnumMap<>(Stage.class);
+
+        private RouteLimit(String name, String method, long capacity, double refillPerSecond,
+                           double addressFactor, MeterRegistry registry) {
+            this.name = name;
+            this.pattern = "default".equals(name) ? null : PathPatternParser.defaultInstance.parse(name);
+            this.method = method;
+            this.key = method == null ? name : method.toUpperCase() + " " + name;
+            for (Stage stage : Stage.values()) {
+                // an address may stand for several users behind one NAT
+                double factor = stage == Stage.ADDRESS ? addressFactor : 1;
+                long interval = (long) (TimeUnit.SECONDS.toNanos(1) / (refillPerSecond * factor));
+                intervalNanos.put(stage, interval);
+                burstNanos.put(stage, (long) (interval * capacity * factor));
+                allowed.put(stage, counter(registry, stage, "allowed"));
+                rejected.put(stage, counter(registry, stage, "rejected"));
+            }
+        }
+
+        private Counter counter(MeterRegistry registry, Stage stage, String outcome) {
+            return Counter.builder("ratelimit.requests")
+                    .description("Requests seen by the rate limiter")
+                    .tag("route", key)
+                    .tag("key", stage.tag)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+
+        private boolean matches(ServerHttpRequest request) {
+            return (method == null || method.equalsIgnoreCase(request.getMethod().name()))
+                    && pattern.matches(request.getPath().pathWithinApplication());
+        }
+    }
+}
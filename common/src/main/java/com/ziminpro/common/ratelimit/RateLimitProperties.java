@@ -0,0 +1,20 @@
+package com.ziminpro.common.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.rate-limit")
+public record RateLimitProperties(boolean enabled,
+                                  int trustedProxies,
+                                  double addressFactor,
+                                  int maxBuckets,
+                                  Duration idleTimeout,
+                                  Limit defaults,
+                                  List<Route> routes) {
+
+    public record Limit(long capacity, double refillPerSecond) {}
+
+    public record Route(String pattern, String method, long capacity, double refillPerSecond) {}
+}
@@ -0,0 +1,42 @@
+package com.ziminpro.common.ratelimit;
+
+import java.security.Principal;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Second stage of {@link RateLimitFilter}: runs behind the security chain, whose
+ * exchange only carries a principal once the token has been verified, and charges
+ * the route to that subject. A user spreading requests over many addresses is held
+ * to one bucket per route; anonymous requests pass straight through.
+ */
+@Component
+@Order(SubjectRateLimitFilter.ORDER)
+public class SubjectRateLimitFilter implements WebFilter {
+    /** Just behind Spring Security's {@code WebFilterChainProxy} at -100. */
+    public static final int ORDER = -99;
+
+    private final RateLimitFilter limiter;
+
+    public SubjectRateLimitFilter(RateLimitFilter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (limiter.skips(exchange.getRequest())) {
+            return chain.filter(exchange);
+        }
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty("")
+                .flatMap(subject -> subject.isEmpty() ? chain.filter(exchange)
+                        : limiter.admit(exchange, chain, RateLimitFilter.Stage.SUBJECT, subject));
+    }
+}
@@ -0,0 +1,37 @@
+package com.ziminpro.common.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket stored as a single "theoretical arrival time" (GCRA), so acquiring a
+ * token is one CAS and needs no lock or refill thread. A bucket whose arrival time
+ * lies in the past is full.
+ */
+final class TokenBucket {
+    private final AtomicLong arrival;
+
+    TokenBucket(long now) {
+        this.arrival = new AtomicLong(now);
+    }
+
+    /**
+     * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+     */
+    long tryAcquire(long now, long intervalNanos, long burstNanos) {
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    boolean idle(long now, long idleNanos) {
+        return now - arrival.get() > idleNanos;
+    }
+}
@@ -0,0 +1,208 @@
+package com.ziminpro.common.tracing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+/**
+ * Writes each exported batch as one line holding an OTLP/JSON
+ * {@code ExportTraceServiceRequest}, the format read by the collector's
+ * otlpjsonfile receiver. Owns {@code output} and closes it on shutdown; batches
+ * arriving after that fail.
+ */
+final class OtlpJsonFileSpanExporter implements SpanExporter {
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private final OutputStream output;
+    private boolean closed;
+
+    OtlpJsonFileSpanExporter(OutputStream output) {
+        this.output = output;
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        if (closed) {
+            return CompletableResultCode.ofFailure();
+        }
+        try {
+            try (JsonGenerator json = JSON.createGenerator(output)) {
+                writeRequest(json, spans);
+            }
+            output.write('\n');
+            output.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofExceptionalFailure(e);
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode flush() {
+        if (closed) {
+            return CompletableResultCode.ofSuccess();
+        }
+        try {
+            output.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofExceptionalFailure(e);
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        if (closed) {
+            return CompletableResultCode.ofSuccess();
+        }
+        closed = true;
+        try {
+            output.close();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofExceptionalFailure(e);
+        }
+    }
+
+    private static void writeRequest(JsonGenerator json, Collection<SpanData> spans) throws IOException {
+        Map<Resource, Map<InstrumentationScopeInfo, List<SpanData>>> grouped = new LinkedHashMap<>();
+        for (SpanData span : spans) {
+            grouped.computeIfAbsent(span.getResource(), r -> new LinkedHashMap<>())
+                    .computeIfAbsent(span.getInstrumentationScopeInfo(), s -> new ArrayList<>())
+                    .add(span);
+        }
+        json.writeStartObject();
+        json.writeArrayFieldStart("resourceSpans");
+        for (Map.Entry<Resource, Map<InstrumentationScopeInfo, List<SpanData>>> resource : grouped.entrySet()) {
+            json.writeStartObject();
+            json.writeObjectFieldStart("resource");
+            writeAttributes(json, resource.getKey().getAttributes());
+            json.writeEndObject();
+            json.writeArrayFieldStart("scopeSpans");
+            for (Map.Entry<InstrumentationScopeInfo, List<SpanData>> scope : resource.getValue().entrySet()) {
+                json.writeStartObject();
+                json.writeObjectFieldStart("scope");
+                json.writeStringField("name", scope.getKey().getName());
+                if (scope.getKey().getVersion() != null) {
+                    json.writeStringField("version", scope.getKey().getVersion());
+                }
+                json.writeEndObject();
+                json.writeArrayFieldStart("spans");
+                for (SpanData span : scope.getValue()) {
+                    writeSpan(json, span);
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private static void writeSpan(JsonGenerator json, SpanData span) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("traceId", span.getTraceId());
+        json.writeStringField("spanId", span.getSpanId());
+        if (span.getParentSpanContext().isValid()) {
+            json.writeStringField("parentSpanId", span.getParentSpanId());
+        }
+        json.writeStringField("name", span.getName());
+        // SPAN_KIND_UNSPECIFIED is 0, the rest follow SpanKind's declaration order
+        json.writeNumberField("kind", span.getKind().ordinal() + 1);
+        json.writeStringField("startTimeUnixNano", Long.toString(span.getStartEpochNanos()));
+        json.writeStringField("endTimeUnixNano", Long.toString(span.getEndEpochNanos()));
+        writeAttributes(json, span.getAttributes());
+        if (!span.getEvents().isEmpty()) {
+            json.writeArrayFieldStart("events");
+            for (EventData event : span.getEvents()) {
+                json.writeStartObject();
+                json.writeStringField("timeUnixNano", Long.toString(event.getEpochNanos()));
+                json.writeStringField("name", event.getName());
+                writeAttributes(json, event.getAttributes());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+        if (!span.getLinks().isEmpty()) {
+            json.writeArrayFieldStart("links");
+            for (LinkData link : span.getLinks()) {
+                SpanContext context = link.getSpanContext();
+                json.writeStartObject();
+                json.writeStringField("traceId", context.getTraceId());
+                json.writeStringField("spanId", context.getSpanId());
+                writeAttributes(json, link.getAttributes());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+        json.writeObjectFieldStart("status");
+        // STATUS_CODE_UNSET, OK and ERROR are 0, 1 and 2
+        json.writeNumberField("code", switch (span.getStatus().getStatusCode()) {
+            case UNSET -> 0;
+            case OK -> 1;
+            case ERROR -> 2;
+        });
+        if (!span.getStatus().getDescription().isEmpty()) {
+            json.writeStringField("message", span.getStatus().getDescription());
+        }
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    private static void writeAttributes(JsonGenerator json, Attributes attributes) throws IOException {
+        json.writeArrayFieldStart("attributes");
+        for (Map.Entry<AttributeKey<?>, Object> attribute : attributes.asMap().entrySet()) {
+            json.writeStartObject();
+            json.writeStringField("key", attribute.getKey().getKey());
+            json.writeFieldName("value");
+            writeValue(json, attribute.getValue());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+
+    private static void writeValue(JsonGenerator json, Object value) throws IOException {
+        json.writeStartObject();
+        if (value instanceof List<?> values) {
+            json.writeObjectFieldStart("arrayValue");
+            json.writeArrayFieldStart("values");
+            for (Object element : values) {
+                writeValue(json, element);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        } else if (value instanceof Boolean bool) {
+            json.writeBooleanField("boolValue", bool);
+        } else if (value instanceof Long number) {
+            // int64 is a string in OTLP/JSON
+            json.writeStringField("intValue", number.toString());
+        } else if (value instanceof Double number) {
+            json.writeNumberField("doubleValue", number);
+        } else {
+            json.writeStringField("stringValue", String.valueOf(value));
+        }
+        json.writeEndObject();
+    }
+}
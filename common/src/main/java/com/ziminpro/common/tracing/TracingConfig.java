@@ -0,0 +1,34 @@
+package com.ziminpro.common.tracing;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TracingConfig {
+
+    /**
+     * Appends finished spans to {@code app.tracing.file} as OTLP/JSON lines, so
+     * traces can be studied without a tracing backend. Decided at startup rather
+     * than by a bean condition, which AOT processing would freeze at build time.
+     * The file is closed when the tracer provider shuts the exporter down.
+     */
+    @Bean
+    public SpanExporter otlpJsonFileSpanExporter(@Value("${app.tracing.file:}") String file) throws IOException {
+        if (file.isBlank()) {
+            return SpanExporter.composite();
+        }
+        Path path = Path.of(file);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        return new OtlpJsonFileSpanExporter(
+                Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+}
@@ -0,0 +1,121 @@
+package com.ziminpro.common.warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.EncoderHttpMessageWriter;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the hot paths with synthetic input before the replica takes traffic.
+ * Boot only moves readiness to {@code ACCEPTING_TRAFFIC} once every application
+ * runner has returned, so while this loops {@code /actuator/health/readiness}
+ * answers 503 and the service stays out of the load balancer, while liveness is
+ * already up. The steps come from the service's {@link WarmUpSteps} beans. Stops
+ * after {@code app.warmup.iterations} rounds or {@code max-duration}, whichever
+ * comes first. A step that fails (a dependency not up yet, say) is dropped for
+ * the rest of the run rather than retried.
+ */
+@Component
+@EnableConfigurationProperties(WarmUpProperties.class)
+public class WarmUp implements ApplicationRunner {
+    private final WarmUpProperties properties;
+    private final ObjectProvider<WarmUpSteps> providers;
+    private final MeterRegistry registry;
+
+    public WarmUp(WarmUpProperties properties, ObjectProvider<WarmUpSteps> providers, MeterRegistry registry) {
+        this.properties = properties;
+        this.providers = providers;
+        this.registry = registry;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!properties.enabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + properties.maxDuration().toNanos();
+
+        List<Step> steps = new ArrayList<>();
+        for (WarmUpSteps provider : providers.orderedStream().toList()) {
+            provider.steps(deadline).forEach((name, call) -> steps.add(new Step(name, call)));
+        }
+
+        int iteration = 0;
+        while (iteration < properties.iterations() && !steps.isEmpty() && System.nanoTime() < deadline) {
+            steps.removeIf(step -> !step.run(registry));
+            iteration++;
+        }
+        registry.counter("warmup.iterations").increment(iteration);
+        String outcome = iteration == properties.iterations() ? "completed"
+                : steps.isEmpty() ? "failed" : "timed-out";
+        Timer.builder("warmup.duration")
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /** Time left until {@code deadline}, never zero, for {@code block(...)} inside a step. */
+    public static Duration remaining(long deadline) {
+        return Duration.ofNanos(Math.max(deadline - System.nanoTime(), 1));
+    }
+
+    /** One {@code envelope.<subtype>} step per codec that can write {@code value} as JSON or CBOR. */
+    public static Map<String, Callable<?>> encoderSteps(ServerCodecConfigurer codecs, Object value,
+                                                        ResolvableType type) {
+        Map<String, Callable<?>> steps = new LinkedHashMap<>();
+        for (MediaType mediaType : List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR)) {
+            Encoder<Object> encoder = encoder(codecs, type, mediaType);
+            if (encoder != null) {
+                steps.put("envelope." + mediaType.getSubtype(), () -> DataBufferUtils.release(
+                        encoder.encodeValue(value, DefaultDataBufferFactory.sharedInstance, type, mediaType,
+                                Map.of())));
+            }
+        }
+        return steps;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Encoder<Object> encoder(ServerCodecConfigurer codecs, ResolvableType type, MediaType mediaType) {
+        for (HttpMessageWriter<?> writer : codecs.getWriters()) {
+            if (writer instanceof EncoderHttpMessageWriter<?> encoderWriter && writer.canWrite(type, mediaType)) {
+                return (Encoder<Object>) encoderWriter.getEncoder();
+            }
+        }
+        return null;
+    }
+
+    private record Step(String name, Callable<?> call) {
+        private boolean run(MeterRegistry registry) {
+            long start = System.nanoTime();
+            try {
+                call.call();
+                return true;
+            } catch (Exception e) {
+                registry.counter("warmup.errors", "step", name).increment();
+                return false;
+            } finally {
+                registry.timer("warmup.step", "step", name).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
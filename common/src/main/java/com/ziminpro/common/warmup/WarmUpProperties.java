@@ -0,0 +1,11 @@
+package com.ziminpro.common.warmup;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.warmup")
+public record WarmUpProperties(boolean enabled,
+                               Duration maxDuration,
+                               int iterations) {
+}
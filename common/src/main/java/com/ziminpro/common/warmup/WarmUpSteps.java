@@ -0,0 +1,14 @@
+package com.ziminpro.common.warmup;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * The hot paths a service wants exercised by {@link WarmUp}, by step name. Steps
+ * that block should give up at {@code deadline} (a {@link System#nanoTime()}
+ * value), see {@link WarmUp#remaining}.
+ */
+@FunctionalInterface
+public interface WarmUpSteps {
+    Map<String, Callable<?>> steps(long deadline) throws Exception;
+}
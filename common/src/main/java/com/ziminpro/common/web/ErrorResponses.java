@@ -0,0 +1,42 @@
+package com.ziminpro.common.web;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes a rejection straight to the response, outside any controller, in the
+ * services' {@code {code, message, data}} envelope shape with {@code data=false}.
+ */
+public final class ErrorResponses {
+
+    private ErrorResponses() {
+    }
+
+    public static Mono<Void> write(ServerHttpResponse response, ObjectMapper objectMapper, HttpStatus status,
+                                   String message, long retryAfterSeconds) {
+        Map<String, Object> envelope = new LinkedHashMap<>();
+        envelope.put("code", Integer.toString(status.value()));
+        envelope.put("message", message);
+        envelope.put("data", false);
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(envelope);
+        } catch (Exception e) {
+            payload = message.getBytes(StandardCharsets.UTF_8);
+        }
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(payload.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(payload)));
+    }
+}
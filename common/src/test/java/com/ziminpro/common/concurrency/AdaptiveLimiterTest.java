@@ -0,0 +1,114 @@
+package com.ziminpro.common.concurrency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+class AdaptiveLimiterTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long THRESHOLD = 20 * MS;
+
+    private static AdaptiveLimiter limiter(int initial) {
+        return new AdaptiveLimiter(initial, 2, 100, 0.9, 2.0, THRESHOLD);
+    }
+
+    @Test
+    void growsAdditivelyWhileBusyAndHealthy() {
+        AdaptiveLimiter limiter = limiter(10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire(Lane.CRITICAL)).isTrue();
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            limiter.release(now, MS, false);
+        }
+        // roughly +1 per round trip of the whole window
+        assertThat(limiter.limit()).isGreaterThan(10.4).isLessThan(11.0);
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void doesNotGrowWhileMostlyIdle() {
+        AdaptiveLimiter limiter = limiter(10);
+        limiter.tryAcquire(Lane.CRITICAL);
+        limiter.release(System.nanoTime(), MS, false);
+        assertThat(limiter.limit()).isEqualTo(10.0);
+    }
+
+    @Test
+    void backsOffMultiplicativelyOncePerBaselinePeriod() {
+        AdaptiveLimiter limiter = limiter(10);
+        long now = System.nanoTime() + THRESHOLD + 1;
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(Lane.CRITICAL);
+            limiter.release(now, 100 * MS, false);
+        }
+        assertThat(limiter.limit()).isEqualTo(9.0);
+
+        limiter.tryAcquire(Lane.CRITICAL);
+        limiter.release(now + THRESHOLD + 1, 100 * MS, false);
+        assertThat(limiter.limit()).isEqualTo(8.1, offset(1e-9));
+    }
+
+    @Test
+    void overloadFailureBacksOffEvenWhenFast() {
+        AdaptiveLimiter limiter = limiter(10);
+        limiter.tryAcquire(Lane.CRITICAL);
+        limiter.release(System.nanoTime() + THRESHOLD + 1, MS, true);
+        assertThat(limiter.limit()).isEqualTo(9.0);
+    }
+
+    @Test
+    void neverDropsBelowMinimum() {
+        AdaptiveLimiter limiter = limiter(3);
+        long now = System.nanoTime();
+        for (int i = 1; i <= 50; i++) {
+            limiter.tryAcquire(Lane.CRITICAL);
+            limiter.release(now + i * (THRESHOLD + 1), MS, true);
+        }
+        assertThat(limiter.limit()).isEqualTo(2.0);
+    }
+
+    @Test
+    void lanesUseTheirShareOfTheLimit() {
+        AdaptiveLimiter limiter = limiter(10);
+        int bulk = 0;
+        while (limiter.tryAcquire(Lane.BULK)) {
+            bulk++;
+        }
+        int normal = bulk;
+        while (limiter.tryAcquire(Lane.NORMAL)) {
+            normal++;
+        }
+        int critical = normal;
+        while (limiter.tryAcquire(Lane.CRITICAL)) {
+            critical++;
+        }
+        assertThat(bulk).isEqualTo(4);
+        assertThat(normal).isEqualTo(7);
+        assertThat(critical).isEqualTo(10);
+    }
+
+    @Test
+    void onlyResourceAndTimeoutFailuresCountAsOverload() {
+        assertThat(ConcurrencyLimitedRepositories.isOverload(new QueryTimeoutException("slow"))).isTrue();
+        assertThat(ConcurrencyLimitedRepositories.isOverload(
+                new DataAccessResourceFailureException("pool", new SQLTransientConnectionException()))).isTrue();
+        assertThat(ConcurrencyLimitedRepositories.isOverload(
+                new RuntimeException(new SQLTransientConnectionException()))).isTrue();
+
+        assertThat(ConcurrencyLimitedRepositories.isOverload(new DataIntegrityViolationException("dup",
+                new SQLIntegrityConstraintViolationException()))).isFalse();
+        assertThat(ConcurrencyLimitedRepositories.isOverload(new CannotAcquireLockException("deadlock"))).isFalse();
+        assertThat(ConcurrencyLimitedRepositories.isOverload(new IllegalArgumentException())).isFalse();
+    }
+}
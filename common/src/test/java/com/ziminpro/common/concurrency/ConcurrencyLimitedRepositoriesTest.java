@@ -0,0 +1,71 @@
+package com.ziminpro.common.concurrency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.stereotype.Repository;
+
+class ConcurrencyLimitedRepositoriesTest {
+
+    // one permit in total, so any second admission would be shed
+    private final ConcurrencyLimitedRepositories limiter = limiter();
+
+    private static ConcurrencyLimitedRepositories limiter() {
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("meterRegistry", new SimpleMeterRegistry());
+        return new ConcurrencyLimitedRepositories(new ConcurrencyLimitProperties(true, 1, 1, 1, 0.9, 2.0,
+                Duration.ofMillis(20), List.of(), List.of()), beans.getBeanProvider(MeterRegistry.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(T repository) {
+        return (T) limiter.postProcessAfterInitialization(repository, repository.getClass().getSimpleName());
+    }
+
+    @Test
+    void aNestedCallRunsUnderTheOuterCallsPermit() {
+        Inner inner = proxy(new Inner());
+        Outer outer = proxy(new Outer(inner::value));
+
+        assertThat(outer.call()).isEqualTo("inner");
+    }
+
+    @Test
+    void anotherThreadIsStillShedWhileThePermitIsHeld() {
+        Inner inner = proxy(new Inner());
+        Outer outer = proxy(new Outer(() -> CompletableFuture.supplyAsync(inner::value).join()));
+
+        assertThatThrownBy(outer::call).hasCauseInstanceOf(ConcurrencyLimitExceededException.class);
+        // the permit came back once the outer call ended
+        assertThat(inner.value()).isEqualTo("inner");
+    }
+
+    @Repository
+    static class Inner {
+        String value() {
+            return "inner";
+        }
+    }
+
+    @Repository
+    static class Outer {
+        private final Supplier<String> work;
+
+        Outer(Supplier<String> work) {
+            this.work = work;
+        }
+
+        String call() {
+            return work.get();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.ziminpro.common.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Mono;
+
+class RateLimitFilterTest {
+    private static final WebFilterChain PASS = exchange -> Mono.empty();
+
+    // bursts of 2 that hardly refill during a test
+    private static RateLimitFilter filter(int trustedProxies) {
+        return new RateLimitFilter(new RateLimitProperties(true, trustedProxies, 1, 1000, Duration.ofMinutes(10),
+                new RateLimitProperties.Limit(2, 0.001), List.of()), new SimpleMeterRegistry(), new ObjectMapper());
+    }
+
+    private static MockServerHttpRequest.BaseBuilder<?> get(String remote) {
+        return MockServerHttpRequest.get("/messages").remoteAddress(new InetSocketAddress(remote, 40000));
+    }
+
+    private static HttpStatus run(WebFilter filter, ServerWebExchange exchange) {
+        filter.filter(exchange, PASS).block();
+        return exchange.getResponse().getStatusCode() == null ? HttpStatus.OK
+                : HttpStatus.valueOf(exchange.getResponse().getStatusCode().value());
+    }
+
+    @Test
+    void aFreshTokenPerRequestDoesNotBuyAFreshBucket() {
+        RateLimitFilter filter = filter(0);
+        List<HttpStatus> statuses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            statuses.add(run(filter, MockServerWebExchange.from(get("10.0.0.1")
+                    .header("Authorization", "Bearer " + UUID.randomUUID()))));
+        }
+
+        assertThat(statuses).containsExactly(HttpStatus.OK, HttpStatus.OK, HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(run(filter, MockServerWebExchange.from(get("10.0.0.2")))).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void takesTheForwardedEntryTheTrustedProxyAppended() {
+        RateLimitFilter filter = filter(1);
+
+        // the client wrote the leftmost entry itself, the ingress appended the address it saw
+        assertThat(filter.clientAddress(get("10.0.0.9").header("X-Forwarded-For", "1.2.3.4, 203.0.113.7").build()))
+                .isEqualTo("203.0.113.7");
+        assertThat(filter.clientAddress(get("10.0.0.9").header("X-Forwarded-For", "1.2.3.4")
+                .header("X-Forwarded-For", "203.0.113.7").build())).isEqualTo("203.0.113.7");
+        assertThat(filter.clientAddress(get("10.0.0.9").build())).isEqualTo("10.0.0.9");
+    }
+
+    @Test
+    void ignoresForwardedForWithoutTrustedProxies() {
+        RateLimitFilter filter = filter(0);
+
+        assertThat(filter.clientAddress(get("10.0.0.9").header("X-Forwarded-For", "203.0.113.7").build()))
+                .isEqualTo("10.0.0.9");
+    }
+
+    @Test
+    void chargesAVerifiedSubjectAcrossAddresses() {
+        RateLimitFilter limiter = filter(0);
+        SubjectRateLimitFilter filter = new SubjectRateLimitFilter(limiter);
+        Principal alice = () -> "alice";
+        List<HttpStatus> statuses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            statuses.add(run(filter, MockServerWebExchange.from(get("10.0.1." + i)).mutate()
+                    .principal(Mono.just(alice))
+                    .build()));
+        }
+
+        assertThat(statuses).containsExactly(HttpStatus.OK, HttpStatus.OK, HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void letsAnonymousRequestsThroughTheSubjectStage() {
+        SubjectRateLimitFilter filter = new SubjectRateLimitFilter(filter(0));
+        for (int i = 0; i < 3; i++) {
+            assertThat(run(filter, MockServerWebExchange.from(get("10.0.0.1")))).isEqualTo(HttpStatus.OK);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ziminpro.common.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    // 2 tokens per second, bursts of 5
+    private static final long INTERVAL = SECOND / 2;
+    private static final long BURST = INTERVAL * 5;
+
+    @Test
+    void newBucketAllowsFullBurstThenRejects() {
+        TokenBucket bucket = new TokenBucket(0);
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryAcquire(0, INTERVAL, BURST)).isZero();
+        }
+        assertThat(bucket.tryAcquire(0, INTERVAL, BURST)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        TokenBucket bucket = new TokenBucket(0);
+        for (int i = 0; i < 5; i++) {
+            bucket.tryAcquire(0, INTERVAL, BURST);
+        }
+        assertThat(bucket.tryAcquire(INTERVAL - 1, INTERVAL, BURST)).isEqualTo(1);
+        assertThat(bucket.tryAcquire(INTERVAL, INTERVAL, BURST)).isZero();
+        assertThat(bucket.tryAcquire(INTERVAL, INTERVAL, BURST)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void refillStopsAtCapacity() {
+        TokenBucket bucket = new TokenBucket(0);
+        bucket.tryAcquire(0, INTERVAL, BURST);
+        long later = 60 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryAcquire(later, INTERVAL, BURST)).isZero();
+        }
+        assertThat(bucket.tryAcquire(later, INTERVAL, BURST)).isPositive();
+    }
+
+    @Test
+    void rejectedAttemptsDoNotConsumeTokens() {
+        TokenBucket bucket = new TokenBucket(0);
+        for (int i = 0; i < 5; i++) {
+            bucket.tryAcquire(0, INTERVAL, BURST);
+        }
+        for (int i = 0; i < 100; i++) {
+            bucket.tryAcquire(INTERVAL / 2, INTERVAL, BURST);
+        }
+        assertThat(bucket.tryAcquire(INTERVAL, INTERVAL, BURST)).isZero();
+    }
+
+    @Test
+    void idleOnceArrivalIsOlderThanTimeout() {
+        TokenBucket bucket = new TokenBucket(0);
+        bucket.tryAcquire(0, INTERVAL, BURST);
+        assertThat(bucket.idle(INTERVAL + SECOND, SECOND)).isFalse();
+        assertThat(bucket.idle(INTERVAL + SECOND + 1, SECOND)).isTrue();
+    }
+
+    @Test
+    void evictedBucketStartsFull() {
+        BucketTable table = new BucketTable(64, SECOND);
+        TokenBucket first = table.bucket("ip:1|POST /subscriptions", 0);
+        assertThat(table.bucket("ip:1|POST /subscriptions", 0)).isSameAs(first);
+        assertThat(table.bucket("ip:1|PUT /subscriptions", 0)).isNotSameAs(first);
+
+        for (int i = 0; i < 5; i++) {
+            first.tryAcquire(0, INTERVAL, BURST);
+        }
+        // one bucket per stripe, so any new key in the same stripe evicts the idle one
+        for (int i = 0; i < 10_000; i++) {
+            table.bucket("ip:" + i, 10 * SECOND);
+        }
+        assertThat(table.size()).isLessThanOrEqualTo(64);
+        assertThat(table.bucket("ip:1|POST /subscriptions", 10 * SECOND)
+                .tryAcquire(10 * SECOND, INTERVAL, BURST)).isZero();
+    }
+}
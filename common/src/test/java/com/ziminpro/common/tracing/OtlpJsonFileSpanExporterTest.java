@@ -0,0 +1,77 @@
+package com.ziminpro.common.tracing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.Test;
+
+class OtlpJsonFileSpanExporterTest {
+
+    @Test
+    void writesOneRequestPerBatchAndClosesOnShutdown() throws Exception {
+        TrackingStream output = new TrackingStream();
+        OtlpJsonFileSpanExporter exporter = new OtlpJsonFileSpanExporter(output);
+        SdkTracerProvider provider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+                .build();
+        Tracer tracer = provider.get("test-scope", "1.0");
+
+        Span parent = tracer.spanBuilder("GET /feed").setSpanKind(SpanKind.SERVER).startSpan();
+        try (Scope ignored = parent.makeCurrent()) {
+            tracer.spanBuilder("repository").startSpan()
+                    .setAttribute("rows", 42L)
+                    .setAttribute(AttributeKey.stringArrayKey("tables"), List.of("messages", "producers"))
+                    .setStatus(StatusCode.ERROR, "timeout")
+                    .end();
+        }
+        parent.end();
+        provider.shutdown().join(10, TimeUnit.SECONDS);
+
+        assertThat(output.closed).isTrue();
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode child = mapper.readTree(lines[0]).at("/resourceSpans/0/scopeSpans/0/spans/0");
+        JsonNode root = mapper.readTree(lines[1]).at("/resourceSpans/0/scopeSpans/0/spans/0");
+        assertThat(mapper.readTree(lines[0]).at("/resourceSpans/0/scopeSpans/0/scope/name").asText())
+                .isEqualTo("test-scope");
+        assertThat(child.get("parentSpanId").asText()).isEqualTo(root.get("spanId").asText());
+        assertThat(child.get("traceId").asText()).isEqualTo(root.get("traceId").asText()).hasSize(32);
+        assertThat(root.has("parentSpanId")).isFalse();
+        assertThat(root.get("kind").asInt()).isEqualTo(2);
+        assertThat(child.get("kind").asInt()).isEqualTo(1);
+        assertThat(child.at("/status/code").asInt()).isEqualTo(2);
+        assertThat(child.at("/status/message").asText()).isEqualTo("timeout");
+        assertThat(child.toString())
+                .contains("{\"key\":\"rows\",\"value\":{\"intValue\":\"42\"}}")
+                .contains("\"arrayValue\":{\"values\":[{\"stringValue\":\"messages\"},{\"stringValue\":\"producers\"}]}");
+        assertThat(Long.parseLong(child.get("endTimeUnixNano").asText()))
+                .isGreaterThanOrEqualTo(Long.parseLong(child.get("startTimeUnixNano").asText()));
+
+        assertThat(exporter.export(List.of()).isSuccess()).isFalse();
+    }
+
+    private static final class TrackingStream extends ByteArrayOutputStream {
+        private boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.ziminpro.common.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class CodecConfigTest {
+    private static final ObjectMapper CBOR = new ObjectMapper(new CBORFactory());
+    private static final ResolvableType POINT = ResolvableType.forClass(Point.class);
+
+    private final CodecConfig.CborEncoder encoder = new CodecConfig.CborEncoder(CBOR);
+
+    private byte[] encode(Flux<DataBuffer> body) {
+        DataBuffer joined = DataBufferUtils.join(body).block();
+        byte[] bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        DataBufferUtils.release(joined);
+        return bytes;
+    }
+
+    @Test
+    void writesASingleValueAsItself() throws IOException {
+        byte[] body = encode(encoder.encode(Mono.just(new Point(1, 2)), DefaultDataBufferFactory.sharedInstance,
+                POINT, MediaType.APPLICATION_CBOR, Map.of()));
+
+        assertThat(CBOR.readValue(body, Point.class)).isEqualTo(new Point(1, 2));
+    }
+
+    @Test
+    void writesSeveralValuesAsOneArray() throws IOException {
+        byte[] body = encode(encoder.encode(Flux.just(new Point(1, 2), new Point(3, 4)),
+                DefaultDataBufferFactory.sharedInstance, POINT, MediaType.APPLICATION_CBOR, Map.of()));
+
+        assertThat(CBOR.readValue(body, new TypeReference<List<Point>>() { }))
+                .containsExactly(new Point(1, 2), new Point(3, 4));
+    }
+
+    record Point(int x, int y) {
+    }
+}
@@ -50,6 +50,9 @@ const sampleIds = {
   messageId: '29f484aa-638e-4a9f-97cf-acf2f33acef7',
 }
 
+// UMS caps a /users page at app.users.max-limit
+const USERS_PAGE_SIZE = 1000
+
 const buildUrl = (service: ServiceKey, path: string) =>
   `${BASES[service]}${path.startsWith('/') ? '' : '/'}${path}`
 
@@ -147,13 +150,23 @@ const AdminConsolePage = ({ mode = 'admin' }: AdminConsolePageProps) => {
     setUsersError('')
     try {
       const headers = { Authorization: `Bearer ${token}` }
-      const [usersRes, rolesRes] = await Promise.all([
-        authFetch(buildUrl('ums', '/users'), { headers }),
+      // /users is paged by id: each page continues after the last id of the previous one
+      const fetchAllUsers = async () => {
+        const collected: UMSUser[] = []
+        for (;;) {
+          const after = collected.length ? `&after=${collected[collected.length - 1].id}` : ''
+          const res = await authFetch(buildUrl('ums', `/users?limit=${USERS_PAGE_SIZE}${after}`), { headers })
+          const payload = (await res.json().catch(() => null)) as ApiResponse<UMSUser[]> | null
+          const page = Array.isArray(payload?.data) ? payload?.data : []
+          collected.push(...page)
+          if (page.length < USERS_PAGE_SIZE) return collected
+        }
+      }
+      const [nextUsers, rolesRes] = await Promise.all([
+        fetchAllUsers(),
         authFetch(buildUrl('ums', '/roles'), { headers }),
       ])
-      const usersPayload = (await usersRes.json().catch(() => null)) as ApiResponse<UMSUser[]> | null
       const rolesPayload = (await rolesRes.json().catch(() => null)) as ApiResponse<UMSRole[]> | null
-      const nextUsers = Array.isArray(usersPayload?.data) ? usersPayload?.data : []
       const nextRoles = Array.isArray(rolesPayload?.data) ? rolesPayload?.data : []
       setUsers(nextUsers)
       setRolesCatalog(nextRoles)
@@ -518,7 +531,7 @@ const AdminConsolePage = ({ mode = 'admin' }: AdminConsolePageProps) => {
                   <p className="text-xs font-semibold uppercase tracking-[0.3em] text-slate-400">
                     Список пользователей
                   </p>
-                  <p className="mt-2 text-sm text-slate-600">Полный список пользователей.</p>
+                  <p className="mt-2 text-sm text-slate-600">Первая страница списка пользователей.</p>
                   <button
                     type="button"
                     className={classNames(buttonPrimary, 'mt-4 w-full')}
@@ -0,0 +1,48 @@
+#!/bin/sh
+# Time-to-ready of service images. Starts each image <runs> times on the host network
+# (so it reaches the MySQL from docker-compose.yml), polls /actuator/health and prints
+# min / median / max wall time per image, next to Spring's own "Started ... in" figure.
+# Extra `docker run` options go in BENCH_DOCKER_ARGS, e.g. "-e GITHUB_CLIENT_ID=x" for ums.
+#
+# usage: startup-bench.sh <port> <runs> <image>...
+#   e.g. startup-bench.sh 9001 5 twitter:2.0 twitter:2.0-cds
+set -eu
+
+port=$1
+runs=$2
+shift 2
+
+now_ms() {
+    echo $(($(date +%s%N) / 1000000))
+}
+
+for image in "$@"; do
+    times=""
+    spring=""
+    run=0
+    while [ "$run" -lt "$runs" ]; do
+        started=$(now_ms)
+        # shellcheck disable=SC2086
+        id=$(docker run -d --rm --network host ${BENCH_DOCKER_ARGS:-} "$image")
+        until curl -fsS "http://localhost:$port/actuator/health" >/dev/null 2>&1; do
+            if [ $(($(now_ms) - started)) -gt 120000 ]; then
+                docker logs "$id" 2>&1 | tail -20 >&2
+                docker stop "$id" >/dev/null
+                echo "$image: not healthy after 120s" >&2
+                exit 1
+            fi
+            sleep 0.02
+        done
+        times="$times $(($(now_ms) - started))"
+        spring=$(docker logs "$id" 2>&1 | sed -n 's/.*Started .* in \([0-9.]*\) seconds.*/\1/p' | tail -1)
+        docker stop -t 10 "$id" >/dev/null
+        run=$((run + 1))
+    done
+    printf '%s\n' $times | sort -n | awk -v image="$image" -v spring="$spring" '
+        { t[NR] = $1 }
+        END {
+            median = NR % 2 ? t[(NR + 1) / 2] : (t[NR / 2] + t[NR / 2 + 1]) / 2
+            printf "%s: ready min %d ms, median %d ms, max %d ms (Spring: %ss, last run)\n",
+                image, t[1], median, t[NR], spring
+        }'
+done
@@ -0,0 +1,90 @@
+package com.ziminpro.twitter.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.ziminpro.common.metrics.Instrumentation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Local part of decoding a bearer token in twitter: parsing, claim checks and
+ * building the {@link Jwt}. The UMS round trip is replaced by an immediate answer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RemoteIntrospectionJwtDecoderBenchmark {
+    private static final String ISSUER = "ums-service";
+
+    private RemoteIntrospectionJwtDecoder decoder;
+    private String token;
+
+    @Setup
+    public void setup() throws JOSEException {
+        String subject = UUID.randomUUID().toString();
+        List<String> roles = List.of("SUBSCRIBER", "PRODUCER");
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(ISSUER)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(3600)))
+                .subject(subject)
+                .claim("email", "trump@example.com")
+                .claim("roles", roles)
+                .build();
+        SignedJWT signed = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        signed.sign(new MACSigner("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8)));
+        token = signed.serialize();
+
+        IntrospectResponse active = new IntrospectResponse(true, subject, roles);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Instrumentation instrumentation = new Instrumentation(registry,
+                new StaticListableBeanFactory().getBeanProvider(Tracer.class));
+        UmsIntrospectionClient client = new UmsIntrospectionClient(WebClient.builder(), instrumentation, registry,
+                "http://localhost", "9000", "/auth/introspect", "/auth/introspect/batch", "application/json",
+                false, Duration.ofMillis(2), 64) {
+            @Override
+            public Mono<IntrospectResponse> introspect(String token) {
+                return Mono.just(active);
+            }
+        };
+        // never resumed, so every decode goes to the client as it does without the change stream
+        IntrospectionCache cache = new IntrospectionCache(Duration.ofMinutes(10), 1000, registry);
+        decoder = new RemoteIntrospectionJwtDecoder(client, cache, ISSUER);
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return decoder.decode(token).block();
+    }
+}
@@ -0,0 +1,84 @@
+package com.ziminpro.twitter.dtos;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.ziminpro.twitter.config.JacksonConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization CPU of a typical feed page in JSON and CBOR, with and without gzip.
+ * Payload sizes for every combination are printed once per fork from {@link #setup()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedPayloadBenchmark {
+
+    @Param({ "20", "100" })
+    private int pageSize;
+
+    @Param({ "json", "cbor" })
+    private String format;
+
+    private ObjectMapper mapper;
+    private ResponseEnvelope<List<Message>> feed;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        mapper = "cbor".equals(format) ? new ObjectMapper(new CBORFactory()) : new ObjectMapper();
+        mapper.registerModule(JacksonConfig.envelopeModule());
+
+        List<UUID> producers = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        List<Message> page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            page.add(new Message(UUID.randomUUID(), producers.get(i % producers.size()),
+                    "Feed entry " + i + " with a body of realistic length for a short status update",
+                    1605194709L + i * 37L));
+        }
+        feed = new ResponseEnvelope<>("200", "List of messages has been requested successfully", page);
+
+        byte[] raw = mapper.writeValueAsBytes(feed);
+        System.out.printf("%n%s page of %d: %d bytes, %d bytes gzipped%n", format, pageSize, raw.length,
+                gzip(raw).length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return mapper.writeValueAsBytes(feed);
+    }
+
+    @Benchmark
+    public byte[] serializeGzip() throws IOException {
+        return gzip(mapper.writeValueAsBytes(feed));
+    }
+
+    private static byte[] gzip(byte[] raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(raw);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,68 @@
+package com.ziminpro.twitter.dtos;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ziminpro.twitter.config.JacksonConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-request cost of building and serializing a feed response. Run with the
+ * {@code gc} profiler (enabled in build.gradle) and compare
+ * {@code gc.alloc.rate.norm} between the two envelope styles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseEnvelopeBenchmark {
+
+    @Param({ "1", "20", "100" })
+    private int pageSize;
+
+    private ObjectMapper mapper;
+    private List<Message> page;
+
+    @Setup
+    public void setup() {
+        mapper = new ObjectMapper().registerModule(JacksonConfig.envelopeModule());
+        UUID author = UUID.randomUUID();
+        page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            page.add(new Message(UUID.randomUUID(), author, "Message number " + i, 1605194709L + i));
+        }
+    }
+
+    @Benchmark
+    public byte[] mapEnvelope() throws JsonProcessingException {
+        Map<String, Object> response = new HashMap<>();
+        response.put(Constants.CODE, "200");
+        response.put(Constants.MESSAGE, "List of messages has been requested successfully");
+        response.put(Constants.DATA, page);
+        return mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] recordEnvelope() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(
+                new ResponseEnvelope<>("200", "List of messages has been requested successfully", page));
+    }
+}
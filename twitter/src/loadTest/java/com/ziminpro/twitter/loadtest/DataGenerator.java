@@ -0,0 +1,275 @@
+package com.ziminpro.twitter.loadtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Production-sized data set for both schemas. Follower counts follow a Zipf
+ * distribution over producers, followings per user and posts per producer are
+ * Pareto-distributed, and posting happens in bursts. The same seed always yields
+ * the same rows.
+ *
+ * <p>Rows are written as tab separated files next to a {@code load.sql} of
+ * {@code LOAD DATA LOCAL INFILE} statements, one directory per schema. Run those
+ * with {@code mysql --local-infile=1}, or pass {@code datagen.ums-jdbc-url} /
+ * {@code datagen.twitter-jdbc-url} to have the generator run them.
+ *
+ * <pre>
+ * gradle generateData -Ddatagen.users=1000000 -Ddatagen.seed=7
+ * </pre>
+ */
+public final class DataGenerator {
+    private static final HexFormat HEX = HexFormat.of().withUpperCase();
+    // from the UMS V1 migration
+    private static final String ROLE_SUBSCRIBER = "B479B3577E2547FA8DBABFDAEECC6C2C";
+    private static final String ROLE_PRODUCER = "EB932DBB7005422FA6497190AF39E984";
+    // bcrypt of "password" with a fixed salt, so the output stays reproducible
+    private static final String PASSWORD_HASH = "$2a$10$pRcy7nHFPVWDkPueHnZdSeh2TlRJg4tatP1//kW/96nAxssvOJ.hS";
+    private static final long START = 1_577_836_800L; // 2020-01-01
+    private static final long SPAN = 365L * 24 * 3600;
+    private static final String[] WORDS = ("the a to of and in is it you that was for on are with as I his they be "
+            + "at one have this from or had by hot word but what some we can out other were all there when up use "
+            + "your how said an each she which do their time if will way about many then them write would like so "
+            + "these her long make thing see him two has look more day could go come did number sound no most people "
+            + "news today feed post great new vote game city music world").split(" ");
+
+    private final int users;
+    private final double producerShare;
+    private final double zipfExponent;
+    private final double followAlpha;
+    private final int minFollows;
+    private final int maxFollows;
+    private final double postAlpha;
+    private final int minPosts;
+    private final int maxPosts;
+    private final long seed;
+    private final Path output;
+
+    private DataGenerator() {
+        users = Integer.parseInt(property("users", "1000000"));
+        producerShare = Double.parseDouble(property("producer-share", "0.2"));
+        zipfExponent = Double.parseDouble(property("zipf-exponent", "1.1"));
+        followAlpha = Double.parseDouble(property("follow-alpha", "1.8"));
+        minFollows = Integer.parseInt(property("min-follows", "5"));
+        maxFollows = Integer.parseInt(property("max-follows", "2000"));
+        postAlpha = Double.parseDouble(property("post-alpha", "1.5"));
+        minPosts = Integer.parseInt(property("min-posts", "10"));
+        maxPosts = Integer.parseInt(property("max-posts", "5000"));
+        seed = Long.parseLong(property("seed", "42"));
+        output = Path.of(property("output", "build/datagen")).toAbsolutePath();
+    }
+
+    public static void main(String[] args) throws Exception {
+        DataGenerator generator = new DataGenerator();
+        UUID[] ids = generator.userIds();
+        int producers = Math.max(1, (int) (ids.length * generator.producerShare));
+
+        Path ums = generator.writeUms(ids, producers);
+        Path twitter = generator.writeTwitter(ids, producers);
+
+        load(property("ums-jdbc-url", null), ums);
+        load(property("twitter-jdbc-url", null), twitter);
+    }
+
+    /** The first {@code producers} ids are producers, most popular first. */
+    private UUID[] userIds() {
+        SplittableRandom random = new SplittableRandom(seed);
+        UUID[] ids = new UUID[users];
+        for (int i = 0; i < users; i++) {
+            ids[i] = randomUuid(random);
+        }
+        return ids;
+    }
+
+    private Path writeUms(UUID[] ids, int producers) throws IOException {
+        Path dir = Files.createDirectories(output.resolve("ums"));
+        SplittableRandom random = new SplittableRandom(seed + 1);
+        byte[] secret = new byte[32];
+        try (BufferedWriter users = writer(dir, "users.tsv");
+             BufferedWriter visits = writer(dir, "last_visit.tsv");
+             BufferedWriter roles = writer(dir, "users_has_roles.tsv")) {
+            for (int i = 0; i < ids.length; i++) {
+                String id = hex(ids[i]);
+                String visit = hex(randomUuid(random));
+                long created = START + random.nextLong(SPAN);
+                long in = created + random.nextLong(SPAN);
+                for (int b = 0; b < secret.length; b++) {
+                    secret[b] = (byte) random.nextInt(256);
+                }
+                row(visits, visit, Long.toString(in), Long.toString(in + random.nextInt(3600)));
+                row(users, id, "user" + i, "user" + i + "@gen.test", PASSWORD_HASH, HEX.formatHex(secret),
+                        Long.toString(created), visit);
+                row(roles, id, ROLE_SUBSCRIBER);
+                if (i < producers) {
+                    row(roles, id, ROLE_PRODUCER);
+                }
+            }
+        }
+        Files.writeString(dir.resolve("load.sql"), String.join("\n",
+                "SET FOREIGN_KEY_CHECKS=0;",
+                "SET UNIQUE_CHECKS=0;",
+                loadData(dir, "last_visit", "(@id, `in`, `out`) SET id = UNHEX(@id)"),
+                loadData(dir, "users", "(@id, name, email, password, secret_key, created, @visit) "
+                        + "SET id = UNHEX(@id), last_visit_id = UNHEX(@visit)"),
+                loadData(dir, "users_has_roles", "(@user, @role) SET users_id = UNHEX(@user), roles_id = UNHEX(@role)"),
+                "SET UNIQUE_CHECKS=1;",
+                "SET FOREIGN_KEY_CHECKS=1;",
+                ""));
+        System.out.printf("ums: %d users (%d producers) in %s%n", ids.length, producers, dir);
+        return dir;
+    }
+
+    private Path writeTwitter(UUID[] ids, int producers) throws IOException {
+        Path dir = Files.createDirectories(output.resolve("twitter"));
+        long subscriptions = 0;
+        long messages = 0;
+        try (BufferedWriter producerRows = writer(dir, "producers.tsv");
+             BufferedWriter subscriberRows = writer(dir, "subscribers.tsv");
+             BufferedWriter subscriptionRows = writer(dir, "subscriptions.tsv");
+             BufferedWriter messageRows = writer(dir, "messages.tsv")) {
+            for (int p = 0; p < producers; p++) {
+                row(producerRows, hex(ids[p]));
+            }
+
+            SplittableRandom random = new SplittableRandom(seed + 2);
+            Zipf popularity = new Zipf(producers, zipfExponent);
+            Set<Integer> followed = new HashSet<>();
+            for (int i = 0; i < ids.length; i++) {
+                String subscriber = hex(ids[i]);
+                row(subscriberRows, subscriber);
+                int follows = Math.min(producers, pareto(random, followAlpha, minFollows, maxFollows));
+                followed.clear();
+                // popular producers are drawn repeatedly, give up rather than loop forever
+                for (int attempt = 0; followed.size() < follows && attempt < follows * 4; attempt++) {
+                    int producer = popularity.next(random);
+                    if (producer != i && followed.add(producer)) {
+                        row(subscriptionRows, subscriber, hex(ids[producer]));
+                        subscriptions++;
+                    }
+                }
+            }
+
+            random = new SplittableRandom(seed + 3);
+            for (int p = 0; p < producers; p++) {
+                messages += writeMessages(messageRows, hex(ids[p]), random);
+            }
+        }
+        Files.writeString(dir.resolve("load.sql"), String.join("\n",
+                "SET FOREIGN_KEY_CHECKS=0;",
+                "SET UNIQUE_CHECKS=0;",
+                loadData(dir, "producers", "(@id) SET producer_id = UNHEX(@id)"),
+                loadData(dir, "subscribers", "(@id) SET subscriber_id = UNHEX(@id)"),
+                loadData(dir, "subscriptions", "(@subscriber, @producer) "
+                        + "SET subscriber_id = UNHEX(@subscriber), producer_id = UNHEX(@producer)"),
+                loadData(dir, "messages", "(@id, @producer, content, created) "
+                        + "SET id = UNHEX(@id), producer_id = UNHEX(@producer)"),
+                "SET UNIQUE_CHECKS=1;",
+                "SET FOREIGN_KEY_CHECKS=1;",
+                ""));
+        System.out.printf("twitter: %d subscriptions, %d messages in %s%n", subscriptions, messages, dir);
+        return dir;
+    }
+
+    /**
+     * Posts arrive in bursts: burst starts are spread over the year, each burst is a
+     * handful of posts a few seconds to minutes apart.
+     */
+    private int writeMessages(BufferedWriter out, String producer, SplittableRandom random) throws IOException {
+        int posts = pareto(random, postAlpha, minPosts, maxPosts);
+        int written = 0;
+        while (written < posts) {
+            long time = START + random.nextLong(SPAN);
+            int burst = Math.min(posts - written, 1 + (int) (-Math.log(1 - random.nextDouble()) * 4));
+            for (int b = 0; b < burst; b++) {
+                time += 5 + random.nextInt(300);
+                row(out, hex(randomUuid(random)), producer, content(random), Long.toString(time));
+            }
+            written += burst;
+        }
+        return written;
+    }
+
+    private static int pareto(SplittableRandom random, double alpha, int min, int max) {
+        double value = min / Math.pow(1 - random.nextDouble(), 1 / alpha);
+        return (int) Math.min(max, value);
+    }
+
+    private static String content(SplittableRandom random) {
+        StringBuilder text = new StringBuilder(140);
+        int target = 20 + random.nextInt(120);
+        while (text.length() < target) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (text.length() + word.length() + 1 > 140) {
+                break;
+            }
+            if (!text.isEmpty()) {
+                text.append(' ');
+            }
+            text.append(word);
+        }
+        return text.toString();
+    }
+
+    private static UUID randomUuid(SplittableRandom random) {
+        // version 4 / IETF variant bits, like UUID.randomUUID()
+        long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    private static String hex(UUID id) {
+        return HEX.toHexDigits(id.getMostSignificantBits()) + HEX.toHexDigits(id.getLeastSignificantBits());
+    }
+
+    private static String loadData(Path dir, String table, String columns) {
+        return "LOAD DATA LOCAL INFILE '" + dir.resolve(table + ".tsv") + "' INTO TABLE `" + table + "` "
+                + "FIELDS TERMINATED BY '\\t' LINES TERMINATED BY '\\n' " + columns + ";";
+    }
+
+    private static BufferedWriter writer(Path dir, String file) throws IOException {
+        return Files.newBufferedWriter(dir.resolve(file), StandardCharsets.UTF_8);
+    }
+
+    private static void row(BufferedWriter out, String... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write('\t');
+            }
+            out.write(values[i]);
+        }
+        out.write('\n');
+    }
+
+    private static void load(String jdbcUrl, Path dir) throws IOException, SQLException {
+        if (jdbcUrl == null) {
+            return;
+        }
+        String url = jdbcUrl + (jdbcUrl.contains("?") ? "&" : "?") + "allowLoadLocalInfile=true";
+        try (Connection connection = DriverManager.getConnection(url, property("jdbc-user", "root"),
+                property("jdbc-password", ""));
+             Statement statement = connection.createStatement()) {
+            for (String sql : Files.readString(dir.resolve("load.sql")).split(";\n")) {
+                if (!sql.isBlank()) {
+                    statement.execute(sql);
+                }
+            }
+        }
+        System.out.printf("loaded %s%n", dir);
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("datagen." + name, defaultValue);
+    }
+}
@@ -0,0 +1,95 @@
+package com.ziminpro.twitter.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency per operation, measured from the moment a request was scheduled rather
+ * than sent, so a stalled server shows up as latency instead of lower load.
+ */
+final class LatencyReport {
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final LongAdder dropped = new LongAdder();
+
+    LatencyReport() {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    void record(Operation operation, long scheduledNanos, boolean ok) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledNanos);
+        latencies.get(operation).recordValue(Math.min(micros, TimeUnit.MINUTES.toMicros(1)));
+        if (!ok) {
+            errors.get(operation).increment();
+        }
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    void print(Duration elapsed) {
+        double seconds = elapsed.toMillis() / 1000.0;
+        System.out.printf("%n%-10s %9s %9s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            System.out.printf("%-10s %9d %9.1f %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.name().toLowerCase(), histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                    errors.get(operation).sum(),
+                    millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                    histogram.getMaxValue() / 1000.0);
+        }
+        System.out.printf("dropped (over max-in-flight): %d%n", dropped.sum());
+    }
+
+    void write(Path path, LoadTestConfig config, Duration elapsed) throws IOException {
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", histogram.getTotalCount());
+            summary.put("throughput", histogram.getTotalCount() / (elapsed.toMillis() / 1000.0));
+            summary.put("errors", errors.get(operation).sum());
+            for (double percentile : PERCENTILES) {
+                summary.put("p" + percentile + "Ms", millis(histogram, percentile));
+            }
+            summary.put("maxMs", histogram.getMaxValue() / 1000.0);
+            operations.put(operation.name().toLowerCase(), summary);
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config.describe());
+        report.put("elapsedSeconds", elapsed.toMillis() / 1000.0);
+        report.put("dropped", dropped.sum());
+        report.put("operations", operations);
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+                .writeValue(path.toFile(), report);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,89 @@
+package com.ziminpro.twitter.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ziminpro.twitter.TwitterCloneApp;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * End-to-end load test of the twitter service: MySQL 8 in a container (or an
+ * existing database via {@code loadtest.jdbc-url}), UMS replaced by {@link StubUms},
+ * the real application in this JVM and an open-loop client replaying a post / feed /
+ * subscribe mix. Prints throughput and latency percentiles and writes them as JSON.
+ *
+ * <pre>
+ * gradle loadTest -Dloadtest.rate=500 -Dloadtest.duration=120s -Dloadtest.users=10000
+ * </pre>
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        MySQLContainer<?> mysql = null;
+        String jdbcUrl = config.jdbcUrl();
+        String jdbcUser = config.jdbcUser();
+        String jdbcPassword = config.jdbcPassword();
+        if (jdbcUrl == null) {
+            mysql = new MySQLContainer<>(DockerImageName.parse(config.mysqlImage()))
+                    .withDatabaseName("twitter")
+                    .withUsername("twitter")
+                    .withPassword("twitter");
+            mysql.start();
+            jdbcUrl = mysql.getJdbcUrl();
+            jdbcUser = mysql.getUsername();
+            jdbcPassword = mysql.getPassword();
+        }
+
+        try (StubUms ums = new StubUms();
+             ConfigurableApplicationContext app = startTwitter(jdbcUrl, jdbcUser, jdbcPassword, ums.port())) {
+            int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+            Workload workload = new Workload(config, "http://localhost:" + port);
+
+            workload.seed();
+            System.out.printf("warming up for %s%n", config.warmup());
+            workload.run(config.warmup(), null);
+
+            System.out.printf("measuring %s at %.0f req/s%n", config.duration(), config.rate());
+            LatencyReport report = new LatencyReport();
+            long start = System.nanoTime();
+            workload.run(config.duration(), report);
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            report.print(elapsed);
+            report.write(Path.of(config.report()), config, elapsed);
+            System.out.printf("report written to %s%n", config.report());
+        } finally {
+            if (mysql != null) {
+                mysql.stop();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startTwitter(String jdbcUrl, String user, String password,
+                                                               int umsPort) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", jdbcUrl);
+        properties.put("spring.datasource.username", user);
+        properties.put("spring.datasource.password", password);
+        properties.put("ums.host", "http://localhost");
+        properties.put("ums.port", umsPort);
+        properties.put("ums.media-type", "application/json");
+        // a single client would otherwise be throttled by design
+        properties.put("app.rate-limit.enabled", false);
+        properties.put("management.tracing.sampling.probability", 0.0);
+        return new SpringApplicationBuilder(TwitterCloneApp.class)
+                .properties(properties)
+                .run();
+    }
+}
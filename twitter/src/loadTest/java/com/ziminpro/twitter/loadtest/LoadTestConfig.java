@@ -0,0 +1,79 @@
+package com.ziminpro.twitter.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings read from {@code -Dloadtest.*} system properties; {@code gradle loadTest}
+ * forwards them from its own command line.
+ */
+record LoadTestConfig(double rate,
+                      Duration warmup,
+                      Duration duration,
+                      int users,
+                      int follows,
+                      int seedMessages,
+                      double zipfExponent,
+                      Map<Operation, Integer> mix,
+                      int maxInFlight,
+                      long seed,
+                      String jdbcUrl,
+                      String jdbcUser,
+                      String jdbcPassword,
+                      String mysqlImage,
+                      String report) {
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Double.parseDouble(property("rate", "200")),
+                Duration.parse("PT" + property("warmup", "10s")),
+                Duration.parse("PT" + property("duration", "60s")),
+                Integer.parseInt(property("users", "1000")),
+                Integer.parseInt(property("follows", "20")),
+                Integer.parseInt(property("seed-messages", "3")),
+                Double.parseDouble(property("zipf-exponent", "1.1")),
+                parseMix(property("mix", "post=15,feed=65,producer=15,subscribe=5")),
+                Integer.parseInt(property("max-in-flight", "5000")),
+                Long.parseLong(property("seed", "42")),
+                property("jdbc-url", null),
+                property("jdbc-user", "root"),
+                property("jdbc-password", ""),
+                property("mysql-image", "mysql:8.0"),
+                property("report", "build/results/loadtest/summary.json"));
+    }
+
+    /** Everything except credentials, for the report. */
+    Map<String, Object> describe() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("rate", rate);
+        values.put("warmup", warmup.toString());
+        values.put("duration", duration.toString());
+        values.put("users", users);
+        values.put("follows", follows);
+        values.put("seedMessages", seedMessages);
+        values.put("zipfExponent", zipfExponent);
+        values.put("mix", mix);
+        values.put("maxInFlight", maxInFlight);
+        values.put("seed", seed);
+        values.put("database", jdbcUrl == null ? mysqlImage : jdbcUrl);
+        return values;
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Bad loadtest.mix entry: " + entry);
+            }
+            weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+        }
+        return weights;
+    }
+}
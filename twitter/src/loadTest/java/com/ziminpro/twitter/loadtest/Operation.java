@@ -0,0 +1,12 @@
+package com.ziminpro.twitter.loadtest;
+
+enum Operation {
+    /** POST /messages/message as a random user. */
+    POST,
+    /** GET /messages/subscriber/{id}, the home feed of a random user. */
+    FEED,
+    /** GET /messages/producer/{id} of a producer picked by popularity. */
+    PRODUCER,
+    /** POST /subscriptions following one more producer picked by popularity. */
+    SUBSCRIBE
+}
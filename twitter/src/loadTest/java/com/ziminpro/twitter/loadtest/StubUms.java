@@ -0,0 +1,112 @@
+package com.ziminpro.twitter.loadtest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpHeaderNames;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * In-process stand-in for the UMS endpoints twitter calls. Every token
+ * introspects as active and every user has both roles, so all load lands on
+ * twitter and its database.
+ */
+final class StubUms implements AutoCloseable {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final UUID SUBSCRIBER_ROLE = UUID.nameUUIDFromBytes("SUBSCRIBER".getBytes(StandardCharsets.UTF_8));
+    private static final UUID PRODUCER_ROLE = UUID.nameUUIDFromBytes("PRODUCER".getBytes(StandardCharsets.UTF_8));
+
+    private final DisposableServer server;
+
+    StubUms() {
+        this.server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .post("/auth/introspect", (request, response) -> request.receive().aggregate().asString()
+                                .map(StubUms::introspect)
+                                .flatMap(body -> response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                        .sendString(Mono.just(body)).then()))
+                        .post("/auth/introspect/batch", (request, response) -> request.receive().aggregate()
+                                .asString()
+                                .map(StubUms::introspectBatch)
+                                .flatMap(body -> response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                        .sendString(Mono.just(body)).then()))
+                        // no user ever changes; the heartbeats keep twitter's introspection cache live
+                        .get("/auth/changes", (request, response) -> response
+                                .header(HttpHeaderNames.CONTENT_TYPE, "text/event-stream")
+                                .sendString(Flux.interval(Duration.ZERO, Duration.ofSeconds(15))
+                                        .map(tick -> ":heartbeat\n\n")))
+                        .get("/users/user/{id}", (request, response) -> response
+                                .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                .sendString(Mono.just(user(request.param("id"))))))
+                .bindNow();
+    }
+
+    int port() {
+        return server.port();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private static String introspect(String body) {
+        try {
+            JsonNode request = MAPPER.readTree(body);
+            return MAPPER.writeValueAsString(result(request.path("token").asText()));
+        } catch (Exception e) {
+            return "{\"active\":false,\"roles\":[]}";
+        }
+    }
+
+    private static String introspectBatch(String body) {
+        try {
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (JsonNode token : MAPPER.readTree(body).path("tokens")) {
+                results.add(result(token.asText()));
+            }
+            return MAPPER.writeValueAsString(Map.of("results", results));
+        } catch (Exception e) {
+            return "{\"results\":[]}";
+        }
+    }
+
+    private static Map<String, Object> result(String token) {
+        String subject = Tokens.subject(token);
+        return Map.of(
+                "active", subject != null,
+                "sub", subject == null ? "" : subject,
+                "roles", Tokens.ROLES);
+    }
+
+    private static String user(String id) {
+        try {
+            return MAPPER.writeValueAsString(Map.of(
+                    "code", "200",
+                    "message", "User has been retrieved successfully",
+                    "data", Map.of(
+                            "id", id,
+                            "name", "user-" + id,
+                            "email", id + "@load.test",
+                            "created", 0,
+                            "roles", new Object[] {
+                                    Map.of("roleId", SUBSCRIBER_ROLE, "role", "SUBSCRIBER", "description", ""),
+                                    Map.of("roleId", PRODUCER_ROLE, "role", "PRODUCER", "description", "")
+                            })));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
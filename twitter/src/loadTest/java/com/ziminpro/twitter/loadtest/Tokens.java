@@ -0,0 +1,55 @@
+package com.ziminpro.twitter.loadtest;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * Tokens shaped like the ones UMS issues. twitter never checks the signature
+ * itself (it asks UMS), so a fixed secret is enough for the stub.
+ */
+final class Tokens {
+    static final String ISSUER = "ums-service";
+    static final List<String> ROLES = List.of("SUBSCRIBER", "PRODUCER");
+
+    private static final byte[] SECRET = "load-test-secret-load-test-secret".getBytes(StandardCharsets.UTF_8);
+
+    private Tokens() {
+    }
+
+    static String issue(UUID userId) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(ISSUER)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(24 * 3600)))
+                .subject(userId.toString())
+                .claim("roles", ROLES)
+                .build();
+        try {
+            SignedJWT signed = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+            signed.sign(new MACSigner(SECRET));
+            return signed.serialize();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String subject(String token) {
+        try {
+            return SignedJWT.parse(token).getJWTClaimsSet().getSubject();
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+}
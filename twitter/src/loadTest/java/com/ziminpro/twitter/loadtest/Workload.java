@@ -0,0 +1,184 @@
+package com.ziminpro.twitter.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.random.RandomGenerator;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Simulated users against a running twitter instance. Who posts and who is
+ * followed is skewed by a Zipf distribution, so a few producers dominate feeds
+ * the way celebrity accounts do.
+ */
+final class Workload {
+    private static final Duration TICK = Duration.ofMillis(10);
+    private static final int SEED_CONCURRENCY = 32;
+
+    private final LoadTestConfig config;
+    private final WebClient client;
+    private final UUID[] users;
+    private final String[] tokens;
+    private final Zipf popularity;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    Workload(LoadTestConfig config, String baseUrl) {
+        this.config = config;
+        this.client = WebClient.builder()
+                .baseUrl(baseUrl)
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+                .build();
+        SplittableRandom random = new SplittableRandom(config.seed());
+        this.users = new UUID[config.users()];
+        this.tokens = new String[config.users()];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new UUID(random.nextLong(), random.nextLong());
+            tokens[i] = Tokens.issue(users[i]);
+        }
+        this.popularity = new Zipf(users.length, config.zipfExponent());
+
+        List<Operation> ops = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<Operation, Integer> entry : config.mix().entrySet()) {
+            if (entry.getValue() > 0) {
+                total += entry.getValue();
+                ops.add(entry.getKey());
+                weights.add(total);
+            }
+        }
+        this.operations = ops.toArray(Operation[]::new);
+        this.cumulativeWeights = weights.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Every user follows {@code follows} popular producers and posts a few messages. */
+    void seed() {
+        SplittableRandom random = new SplittableRandom(config.seed() + 1);
+        List<Mono<Boolean>> calls = new ArrayList<>();
+        for (int i = 0; i < users.length; i++) {
+            List<UUID> producers = new ArrayList<>();
+            for (int f = 0; f < config.follows(); f++) {
+                producers.add(users[popularity.next(random)]);
+            }
+            calls.add(subscribe(i, producers));
+        }
+        for (int m = 0; m < config.seedMessages(); m++) {
+            for (int i = 0; i < users.length; i++) {
+                calls.add(post(popularity.next(random), random));
+            }
+        }
+        long failed = Flux.fromIterable(calls)
+                .flatMap(call -> call, SEED_CONCURRENCY)
+                .filter(ok -> !ok)
+                .count()
+                .block();
+        System.out.printf("seeded %d users, %d calls failed%n", users.length, failed);
+    }
+
+    /** Open-loop load: requests are started on schedule whether or not earlier ones finished. */
+    void run(Duration length, LatencyReport report) throws InterruptedException {
+        double perTick = config.rate() * TICK.toNanos() / 1_000_000_000.0;
+        double[] carry = { 0 };
+        Flux.interval(TICK)
+                .take(length.toMillis() / TICK.toMillis())
+                .doOnNext(tick -> {
+                    carry[0] += perTick;
+                    int count = (int) carry[0];
+                    carry[0] -= count;
+                    long scheduled = System.nanoTime();
+                    for (int i = 0; i < count; i++) {
+                        start(scheduled, report);
+                    }
+                })
+                .blockLast();
+        while (inFlight.get() > 0) {
+            Thread.sleep(TICK.toMillis());
+        }
+    }
+
+    private void start(long scheduled, LatencyReport report) {
+        if (inFlight.incrementAndGet() > config.maxInFlight()) {
+            inFlight.decrementAndGet();
+            if (report != null) {
+                report.dropped();
+            }
+            return;
+        }
+        RandomGenerator random = ThreadLocalRandom.current();
+        Operation operation = pick(random);
+        Mono<Boolean> call = switch (operation) {
+            case POST -> post(popularity.next(random), random);
+            case FEED -> feed(random.nextInt(users.length));
+            case PRODUCER -> producer(popularity.next(random));
+            case SUBSCRIBE -> subscribe(random.nextInt(users.length), List.of(users[popularity.next(random)]));
+        };
+        call.onErrorReturn(false)
+                .doFinally(signal -> inFlight.decrementAndGet())
+                .subscribe(ok -> {
+                    if (report != null) {
+                        report.record(operation, scheduled, ok);
+                    }
+                });
+    }
+
+    private Operation pick(RandomGenerator random) {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private Mono<Boolean> post(int user, RandomGenerator random) {
+        return exchange(client.post().uri("/messages/message")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokens[user])
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("author", users[user], "content", content(random))));
+    }
+
+    private Mono<Boolean> feed(int user) {
+        return exchange(client.get().uri("/messages/subscriber/{id}", users[user])
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokens[user]));
+    }
+
+    private Mono<Boolean> producer(int producer) {
+        return exchange(client.get().uri("/messages/producer/{id}", users[producer])
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokens[producer]));
+    }
+
+    private Mono<Boolean> subscribe(int user, List<UUID> producers) {
+        return exchange(client.post().uri("/subscriptions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokens[user])
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("subscriber", users[user], "producers", producers)));
+    }
+
+    private static Mono<Boolean> exchange(WebClient.RequestHeadersSpec<?> request) {
+        return request.exchangeToMono(response -> response.releaseBody()
+                .thenReturn(response.statusCode().is2xxSuccessful()));
+    }
+
+    private static String content(RandomGenerator random) {
+        int length = 20 + random.nextInt(120);
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(i % 6 == 5 ? ' ' : (char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+}
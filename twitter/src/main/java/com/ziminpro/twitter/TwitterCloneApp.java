@@ -2,8 +2,10 @@ package com.ziminpro.twitter;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+@SpringBootApplication(scanBasePackages = { "com.ziminpro.twitter", "com.ziminpro.common" })
+@EnableScheduling
 public class TwitterCloneApp {
 
 	public static void main(String[] args) {
@@ -0,0 +1,5 @@
+package com.ziminpro.twitter.auth;
+
+import java.util.List;
+
+public record IntrospectBatchRequest(List<String> tokens) {}
@@ -0,0 +1,124 @@
+package com.ziminpro.twitter.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Active introspection results, keyed by the SHA-256 of the token and kept for
+ * {@code ums.introspection-cache.ttl} or until the token expires. The cache is
+ * only consulted while {@link UserChangeSubscriber} is connected to the UMS
+ * change stream: a rotated secret, a role change or a deletion drops the
+ * user's entries as soon as UMS publishes it, and losing the stream drops
+ * everything, so the TTL can be long without serving revoked tokens.
+ */
+@Component
+public class IntrospectionCache {
+    private final long ttlMillis;
+    private final int maxSize;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private volatile boolean live;
+
+    public IntrospectionCache(@Value("${ums.introspection-cache.ttl}") Duration ttl,
+                              @Value("${ums.introspection-cache.max-size}") int maxSize,
+                              MeterRegistry registry) {
+        this.ttlMillis = ttl.toMillis();
+        this.maxSize = maxSize;
+        this.hits = registry.counter("ums.introspection.cache", "result", "hit");
+        this.misses = registry.counter("ums.introspection.cache", "result", "miss");
+    }
+
+    /** The cached response for {@code token}, or null. */
+    public IntrospectResponse get(String token) {
+        if (!live) {
+            return null;
+        }
+        String key = digest(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.response;
+    }
+
+    /**
+     * Caches an active response. {@code generation} is {@link #generation()} sampled
+     * before the introspection call; if anything was invalidated since, the response
+     * may predate the change and is not kept.
+     */
+    public void put(String token, IntrospectResponse response, Instant tokenExpiresAt, long generation) {
+        if (!live || !response.active() || response.sub() == null || tokenExpiresAt == null) {
+            return;
+        }
+        long expiresAt = Math.min(System.currentTimeMillis() + ttlMillis, tokenExpiresAt.toEpochMilli());
+        if (entries.size() >= maxSize) {
+            entries.clear();
+        }
+        String key = digest(token);
+        entries.put(key, new Entry(response, expiresAt));
+        if (invalidations.get() != generation) {
+            entries.remove(key);
+        }
+    }
+
+    public long generation() {
+        return invalidations.get();
+    }
+
+    public void invalidate(String userId) {
+        invalidations.incrementAndGet();
+        entries.values().removeIf(entry -> userId.equals(entry.response.sub()));
+        // a put that sampled the generation after the first bump may have landed during the sweep
+        invalidations.incrementAndGet();
+    }
+
+    public void clear() {
+        invalidations.incrementAndGet();
+        entries.clear();
+        invalidations.incrementAndGet();
+    }
+
+    /** Starts answering from the cache; called once the change stream is up. */
+    public void resume() {
+        live = true;
+    }
+
+    /** Stops answering from the cache and forgets it; changes may be missed from here on. */
+    public void suspend() {
+        live = false;
+        clear();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Entry(IntrospectResponse response, long expiresAt) {
+    }
+}
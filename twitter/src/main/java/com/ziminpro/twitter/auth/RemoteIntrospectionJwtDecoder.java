@@ -1,6 +1,8 @@
 package com.ziminpro.twitter.auth;
 
 import java.text.ParseException;
+import java.time.Instant;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -15,10 +17,13 @@ import reactor.core.scheduler.Schedulers;
 
 public class RemoteIntrospectionJwtDecoder implements ReactiveJwtDecoder {
     private final UmsIntrospectionClient introspectionClient;
+    private final IntrospectionCache introspectionCache;
     private final String issuer;
 
-    public RemoteIntrospectionJwtDecoder(UmsIntrospectionClient introspectionClient, String issuer) {
+    public RemoteIntrospectionJwtDecoder(UmsIntrospectionClient introspectionClient,
+                                         IntrospectionCache introspectionCache, String issuer) {
         this.introspectionClient = introspectionClient;
+        this.introspectionCache = introspectionCache;
         this.issuer = issuer;
     }
 
@@ -26,7 +31,7 @@ public class RemoteIntrospectionJwtDecoder implements ReactiveJwtDecoder {
     public Mono<Jwt> decode(String token) {
         return Mono.fromCallable(() -> SignedJWT.parse(token))
                 .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(signed -> introspectionClient.introspect(token)
+                .flatMap(signed -> introspect(token, signed)
                         .flatMap(response -> {
                             if (!response.active()) {
                                 return Mono.error(new BadJwtException("Token revoked"));
@@ -37,6 +42,25 @@ public class RemoteIntrospectionJwtDecoder implements ReactiveJwtDecoder {
                 .onErrorMap(ex -> ex instanceof BadJwtException ? ex : new BadJwtException("Invalid token", ex));
     }
 
+    private Mono<IntrospectResponse> introspect(String token, SignedJWT signed) {
+        IntrospectResponse cached = introspectionCache.get(token);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        long generation = introspectionCache.generation();
+        return introspectionClient.introspect(token)
+                .doOnNext(response -> introspectionCache.put(token, response, expiresAt(signed), generation));
+    }
+
+    private static Instant expiresAt(SignedJWT signed) {
+        try {
+            Date expiration = signed.getJWTClaimsSet().getExpirationTime();
+            return expiration == null ? null : expiration.toInstant();
+        } catch (ParseException ex) {
+            return null;
+        }
+    }
+
     private Jwt buildJwt(String token, SignedJWT signed, IntrospectResponse response) throws ParseException {
         JWTClaimsSet claimsSet = signed.getJWTClaimsSet();
         if (claimsSet.getIssuer() == null || !claimsSet.getIssuer().equals(issuer)) {
@@ -1,33 +1,143 @@
 package com.ziminpro.twitter.auth;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ziminpro.common.metrics.Instrumentation;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
+/**
+ * Introspects tokens against UMS. With {@code ums.introspect-batch.enabled},
+ * tokens arriving within {@code window} of each other are sent together to the
+ * batch endpoint, at most {@code max-size} per call, so a burst of requests
+ * costs UMS one round trip and one secret query instead of one per token. A
+ * token that shows up twice in a window is sent once. A failed batch call
+ * fails every token in it, just as the single call would have.
+ */
 @Service
 public class UmsIntrospectionClient {
     private final WebClient client;
     private final String introspectPath;
+    private final String introspectBatchPath;
+    private final MediaType mediaType;
+    private final Instrumentation instrumentation;
+    private final boolean batchEnabled;
+    private final DistributionSummary batchSizes;
+    private final Disposable batches;
+    // FluxSink serializes callers from any thread through its own MPSC queue, without retrying or spinning
+    private volatile FluxSink<Pending> queue;
 
-    public UmsIntrospectionClient(@Value("${ums.host}") String host,
+    public UmsIntrospectionClient(WebClient.Builder webClientBuilder,
+                                  Instrumentation instrumentation,
+                                  MeterRegistry registry,
+                                  @Value("${ums.host}") String host,
                                   @Value("${ums.port}") String port,
-                                  @Value("${ums.paths.introspect}") String introspectPath) {
-        this.client = WebClient.builder()
+                                  @Value("${ums.paths.introspect}") String introspectPath,
+                                  @Value("${ums.paths.introspect-batch}") String introspectBatchPath,
+                                  @Value("${ums.media-type}") String mediaType,
+                                  @Value("${ums.introspect-batch.enabled}") boolean batchEnabled,
+                                  @Value("${ums.introspect-batch.window}") Duration batchWindow,
+                                  @Value("${ums.introspect-batch.max-size}") int batchMaxSize) {
+        this.client = webClientBuilder.clone()
                 .baseUrl(host + ":" + port)
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .build();
         this.introspectPath = introspectPath;
+        this.introspectBatchPath = introspectBatchPath;
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.instrumentation = instrumentation;
+        this.batchEnabled = batchEnabled;
+        this.batchSizes = registry.summary("ums.introspect.batch.size");
+        this.batches = batchEnabled
+                ? Flux.<Pending>create(sink -> queue = sink)
+                        .bufferTimeout(batchMaxSize, batchWindow)
+                        .flatMap(this::dispatch)
+                        .subscribe()
+                : null;
     }
 
     public Mono<IntrospectResponse> introspect(String token) {
-        return client.post()
+        if (!batchEnabled) {
+            return introspectOne(token);
+        }
+        return Mono.defer(() -> {
+            Sinks.One<IntrospectResponse> result = Sinks.one();
+            queue.next(new Pending(token, result));
+            return result.asMono();
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        if (batches != null) {
+            batches.dispose();
+        }
+    }
+
+    private Mono<IntrospectResponse> introspectOne(String token) {
+        return instrumentation.time("ums.client.calls", "introspect", client.post()
                 .uri(introspectPath)
+                .contentType(mediaType)
+                .accept(mediaType)
                 .bodyValue(new IntrospectRequest(token))
                 .retrieve()
-                .bodyToMono(IntrospectResponse.class);
+                .bodyToMono(IntrospectResponse.class));
+    }
+
+    private Mono<Void> dispatch(List<Pending> batch) {
+        List<String> tokens = batch.stream().map(Pending::token).distinct().toList();
+        batchSizes.record(tokens.size());
+        return instrumentation.time("ums.client.calls", "introspect.batch", client.post()
+                        .uri(introspectBatchPath)
+                        .contentType(mediaType)
+                        .accept(mediaType)
+                        .bodyValue(new IntrospectBatchRequest(tokens))
+                        .retrieve()
+                        .bodyToMono(IntrospectBatchResponse.class))
+                .doOnNext(response -> complete(batch, tokens, response))
+                .switchIfEmpty(Mono.fromRunnable(() -> fail(batch, new IllegalStateException("Empty batch response"))))
+                .doOnError(ex -> fail(batch, ex))
+                .onErrorResume(ex -> Mono.empty())
+                .then();
+    }
+
+    private void complete(List<Pending> batch, List<String> tokens, IntrospectBatchResponse response) {
+        List<IntrospectResponse> results = response.results();
+        if (results == null || results.size() != tokens.size()) {
+            fail(batch, new IllegalStateException("Batch response does not match the request"));
+            return;
+        }
+        Map<String, IntrospectResponse> byToken = new HashMap<>(tokens.size() * 2);
+        for (int i = 0; i < tokens.size(); i++) {
+            byToken.put(tokens.get(i), results.get(i));
+        }
+        for (Pending pending : batch) {
+            IntrospectResponse result = byToken.get(pending.token);
+            if (result == null) {
+                pending.result.tryEmitError(new IllegalStateException("Batch response is missing a result"));
+            } else {
+                pending.result.tryEmitValue(result);
+            }
+        }
+    }
+
+    private void fail(List<Pending> batch, Throwable ex) {
+        batch.forEach(pending -> pending.result.tryEmitError(ex));
+    }
+
+    private record Pending(String token, Sinks.One<IntrospectResponse> result) {
     }
 }
@@ -0,0 +1,11 @@
+package com.ziminpro.twitter.auth;
+
+import java.util.UUID;
+
+/** A change to a UMS user, as published on the UMS change stream. */
+public record UserChange(long sequence, UUID userId, String type, long created) {
+    public static final String SECRET_ROTATED = "SecretRotated";
+    public static final String ROLES_CHANGED = "RolesChanged";
+    public static final String USER_DELETED = "UserDeleted";
+    public static final String RESET = "Reset";
+}
@@ -0,0 +1,164 @@
+package com.ziminpro.twitter.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+import com.ziminpro.twitter.dao.OutboxRepository;
+import com.ziminpro.twitter.retention.RetentionJob;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+/**
+ * Follows the UMS user change stream and drops exactly what each change makes
+ * stale: the user's cached introspections on a rotated secret or role change,
+ * and on a deletion also everything the user left in twitter (through
+ * {@link RetentionJob#userDeleted}). While connected the introspection cache is
+ * live; when the stream breaks or stays silent past
+ * {@code ums.changes.idle-timeout} it is suspended and emptied until the
+ * subscriber is back. Reconnects resume after the last applied change, so
+ * deletions published while this replica was cut off are still applied. The
+ * position is also stored in {@code outbox_offsets} once a change is applied,
+ * so a restart of every replica resumes from it too. Only a position older
+ * than UMS keeps changes for ({@code app.user-changes.ttl}) is lost; UMS then
+ * answers with a {@code Reset}, counted in {@code ums.changes.received}.
+ * UMS only serves the stream to a service presenting
+ * {@code ums.service-auth.*}; without a secret the subscriber stays off, like
+ * with {@code ums.changes.enabled=false}.
+ */
+@Component
+public class UserChangeSubscriber implements ApplicationRunner {
+    private static final ParameterizedTypeReference<ServerSentEvent<UserChange>> EVENT_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final String POSITION = "ums.user-changes";
+
+    private final WebClient client;
+    private final String changesPath;
+    private final boolean enabled;
+    private final Duration idleTimeout;
+    private final IntrospectionCache introspectionCache;
+    private final RetentionJob retentionJob;
+    private final OutboxRepository outboxRepository;
+    private final MeterRegistry registry;
+    private volatile String lastEventId;
+    private volatile Disposable subscription;
+
+    public UserChangeSubscriber(WebClient.Builder webClientBuilder,
+                                IntrospectionCache introspectionCache,
+                                RetentionJob retentionJob,
+                                OutboxRepository outboxRepository,
+                                MeterRegistry registry,
+                                @Value("${ums.host}") String host,
+                                @Value("${ums.port}") String port,
+                                @Value("${ums.paths.changes}") String changesPath,
+                                @Value("${ums.changes.enabled}") boolean enabled,
+                                @Value("${ums.changes.idle-timeout}") Duration idleTimeout,
+                                @Value("${ums.service-auth.name}") String serviceName,
+                                @Value("${ums.service-auth.secret}") String serviceSecret) {
+        this.client = webClientBuilder.clone()
+                .baseUrl(host + ":" + port)
+                .defaultHeaders(headers -> headers.setBasicAuth(serviceName, serviceSecret, StandardCharsets.UTF_8))
+                .build();
+        this.changesPath = changesPath;
+        this.enabled = enabled && !serviceSecret.isBlank();
+        this.idleTimeout = idleTimeout;
+        this.introspectionCache = introspectionCache;
+        this.retentionJob = retentionJob;
+        this.outboxRepository = outboxRepository;
+        this.registry = registry;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        subscription = Flux.defer(this::connect)
+                .concatMap(this::apply)
+                .doOnTerminate(this::disconnected)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .transientErrors(true))
+                .repeatWhen(completed -> completed.delayElements(Duration.ofSeconds(1)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private void disconnected() {
+        introspectionCache.suspend();
+        registry.counter("ums.changes.disconnects").increment();
+    }
+
+    private Flux<ServerSentEvent<UserChange>> connect() {
+        return resumeFrom().flatMapMany(resumeFrom -> {
+            WebClient.RequestHeadersSpec<?> request = client.get()
+                    .uri(changesPath)
+                    .accept(MediaType.TEXT_EVENT_STREAM);
+            if (!resumeFrom.isEmpty()) {
+                request = request.header("Last-Event-ID", resumeFrom);
+            }
+            return request.retrieve()
+                    .bodyToFlux(EVENT_TYPE)
+                    .timeout(idleTimeout);
+        });
+    }
+
+    // what this replica applied last, else the stored position; empty when there is neither
+    private Mono<String> resumeFrom() {
+        String applied = lastEventId;
+        if (applied != null) {
+            return Mono.just(applied);
+        }
+        return Mono.fromCallable(() -> outboxRepository.getOffset(POSITION))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(position -> position > 0 ? Long.toString(position) : "");
+    }
+
+    private Mono<Void> apply(ServerSentEvent<UserChange> event) {
+        // a heartbeat is enough to know nothing was missed so far
+        introspectionCache.resume();
+        UserChange change = event.data();
+        if (change == null) {
+            return Mono.empty();
+        }
+        Mono<Void> applied = Mono.empty();
+        if (UserChange.RESET.equals(change.type())) {
+            introspectionCache.clear();
+        } else if (change.userId() != null) {
+            introspectionCache.invalidate(change.userId().toString());
+            if (UserChange.USER_DELETED.equals(change.type())) {
+                UUID userId = change.userId();
+                applied = Mono.<Void>fromRunnable(() -> retentionJob.userDeleted(userId))
+                        .subscribeOn(Schedulers.boundedElastic());
+            }
+        }
+        // stored only once applied: a failure reconnects from the previous change and applies this one again
+        Mono<Void> stored = Mono.<Void>fromRunnable(() -> outboxRepository.saveOffset(POSITION, change.sequence()))
+                .subscribeOn(Schedulers.boundedElastic());
+        return applied.then(stored).doOnSuccess(done -> {
+            lastEventId = event.id();
+            registry.counter("ums.changes.received", "type", change.type()).increment();
+        });
+    }
+}
@@ -0,0 +1,22 @@
+package com.ziminpro.twitter.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.ziminpro.twitter.dtos.ResponseEnvelopeSerializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public Module responseEnvelopeModule() {
+        return envelopeModule();
+    }
+
+    public static SimpleModule envelopeModule() {
+        SimpleModule module = new SimpleModule("response-envelope");
+        module.addSerializer(new ResponseEnvelopeSerializer());
+        return module;
+    }
+}
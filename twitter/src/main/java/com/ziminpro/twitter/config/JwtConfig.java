@@ -1,5 +1,6 @@
 package com.ziminpro.twitter.config;
 
+import com.ziminpro.twitter.auth.IntrospectionCache;
 import com.ziminpro.twitter.auth.RemoteIntrospectionJwtDecoder;
 import com.ziminpro.twitter.auth.UmsIntrospectionClient;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,7 +15,8 @@ public class JwtConfig {
     @Bean
     @Primary
     public ReactiveJwtDecoder jwtDecoder(UmsIntrospectionClient introspectionClient,
+                                         IntrospectionCache introspectionCache,
                                          @Value("${app.jwt.issuer}") String issuer) {
-        return new RemoteIntrospectionJwtDecoder(introspectionClient, issuer);
+        return new RemoteIntrospectionJwtDecoder(introspectionClient, introspectionCache, issuer);
     }
 }
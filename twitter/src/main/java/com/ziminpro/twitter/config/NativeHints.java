@@ -0,0 +1,42 @@
+package com.ziminpro.twitter.config;
+
+import com.ziminpro.twitter.auth.IntrospectBatchRequest;
+import com.ziminpro.twitter.auth.IntrospectBatchResponse;
+import com.ziminpro.twitter.auth.IntrospectRequest;
+import com.ziminpro.twitter.auth.IntrospectResponse;
+import com.ziminpro.twitter.auth.UserChange;
+import com.ziminpro.twitter.dtos.FeedDelta;
+import com.ziminpro.twitter.dtos.LastSession;
+import com.ziminpro.twitter.dtos.Message;
+import com.ziminpro.twitter.dtos.ProducerSubscribers;
+import com.ziminpro.twitter.dtos.ResponseEnvelope;
+import com.ziminpro.twitter.dtos.Subscription;
+import com.ziminpro.twitter.dtos.User;
+import com.ziminpro.twitter.dtos.UserCounts;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Reachability metadata for the native image. Controller signatures are
+ * covered by AOT processing; this adds the types Jackson binds elsewhere
+ * (UMS responses, filters writing envelopes) and the Flyway scripts. The MySQL
+ * driver and Flyway itself come from the GraalVM reachability metadata repository.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHints.Resources.class)
+@RegisterReflectionForBinding({ ResponseEnvelope.class, User.class, LastSession.class, Message.class,
+        Subscription.class, ProducerSubscribers.class, FeedDelta.class, UserCounts.class,
+        IntrospectRequest.class, IntrospectResponse.class, IntrospectBatchRequest.class,
+        IntrospectBatchResponse.class, UserChange.class })
+public class NativeHints {
+
+    static class Resources implements RuntimeHintsRegistrar {
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.resources().registerPattern("db/migration/*.sql");
+        }
+    }
+}
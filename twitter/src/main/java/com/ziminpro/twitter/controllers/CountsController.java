@@ -0,0 +1,31 @@
+package com.ziminpro.twitter.controllers;
+
+import java.util.UUID;
+
+import com.ziminpro.twitter.dtos.Constants;
+import com.ziminpro.twitter.dtos.ResponseEnvelope;
+import com.ziminpro.twitter.dtos.UserCounts;
+import com.ziminpro.twitter.services.UserCounters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import reactor.core.publisher.Mono;
+
+@RestController
+public class CountsController {
+
+    @Autowired
+    private UserCounters userCounters;
+
+    @RequestMapping(method = RequestMethod.GET, path = Constants.URI_COUNTS + "/{user-id}")
+    public Mono<ResponseEntity<ResponseEnvelope<UserCounts>>> getCounts(
+            @PathVariable(value = "user-id", required = true) UUID userId) {
+        return Mono.just(ResponseEntity.ok().header(Constants.ACCEPT, Constants.APPLICATION_JSON)
+                .body(new ResponseEnvelope<>("200", "Counts have been requested successfully",
+                        userCounters.counts(userId))));
+    }
+}
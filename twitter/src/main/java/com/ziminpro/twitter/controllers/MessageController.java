@@ -1,10 +1,14 @@
 package com.ziminpro.twitter.controllers;
 
-import java.util.Map;
+import java.security.Principal;
+import java.util.List;
 import java.util.UUID;
 
 import com.ziminpro.twitter.dtos.Constants;
+import com.ziminpro.twitter.dtos.FeedDelta;
 import com.ziminpro.twitter.dtos.Message;
+import com.ziminpro.twitter.dtos.ResponseEnvelope;
+import com.ziminpro.twitter.services.FeedVersions;
 import com.ziminpro.twitter.services.MessagesService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -14,7 +18,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 
 import reactor.core.publisher.Mono;
 
@@ -24,33 +30,65 @@ public class MessageController {
     @Autowired
     private MessagesService messages;
 
+    @Autowired
+    private FeedVersions feedVersions;
+
     @RequestMapping(method = RequestMethod.GET, path = Constants.URI_MESSAGE + "/{message-id}")
-    public Mono<ResponseEntity<Map<String, Object>>> getMessagebyId(
+    public Mono<ResponseEntity<ResponseEnvelope<Message>>> getMessagebyId(
             @PathVariable(value = "message-id", required = true) String messageId) {
         return messages.getMessagebyId(UUID.fromString(messageId));
     }
 
     @RequestMapping(method = RequestMethod.GET, path = Constants.URI_PRODUCER + "/{producer-id}")
-    public Mono<ResponseEntity<Map<String, Object>>> getMessagesForProducerById(
-            @PathVariable(value = "producer-id", required = true) String producerId) {
-        return messages.getMessagesForProducerById(UUID.fromString(producerId));
+    public Mono<ResponseEntity<ResponseEnvelope<List<Message>>>> getMessagesForProducerById(
+            @PathVariable(value = "producer-id", required = true) String producerId,
+            ServerWebExchange exchange) {
+        UUID producer = UUID.fromString(producerId);
+        if (exchange.checkNotModified(feedVersions.producerTag(producer))) {
+            return Mono.empty();
+        }
+        return messages.getMessagesForProducerById(producer);
     }
 
     @RequestMapping(method = RequestMethod.GET, path = Constants.URI_SUBSCRIBER + "/{subscriber-id}")
-    public Mono<ResponseEntity<Map<String, Object>>> getMessagesForSubscriberById(
+    public Mono<ResponseEntity<ResponseEnvelope<List<Message>>>> getMessagesForSubscriberById(
             @PathVariable(value = "subscriber-id", required = true) String subscriberId,
-            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
-        return messages.getMessagesForSubscriberById(UUID.fromString(subscriberId), authorizationHeader);
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(value = "before-id", required = false) String beforeId,
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader,
+            ServerWebExchange exchange) {
+        UUID subscriber = UUID.fromString(subscriberId);
+        if (exchange.checkNotModified(feedVersions.feedTag(subscriber))) {
+            return Mono.empty();
+        }
+        if (limit == null) {
+            return messages.getMessagesForSubscriberById(subscriber, authorizationHeader);
+        }
+        return messages.getFeedPageForSubscriberById(subscriber, limit, before,
+                beforeId == null ? null : UUID.fromString(beforeId), authorizationHeader);
     }
 
-    @RequestMapping(method = RequestMethod.POST, path = Constants.URI_MESSAGE, consumes = Constants.APPLICATION_JSON)
-    public Mono<ResponseEntity<Map<String, Object>>> createMessage(@RequestBody Message message,
+    @RequestMapping(method = RequestMethod.GET, path = Constants.URI_SUBSCRIBER + "/{subscriber-id}" + Constants.URI_SYNC)
+    public Mono<ResponseEntity<ResponseEnvelope<FeedDelta>>> syncMessagesForSubscriberById(
+            @PathVariable(value = "subscriber-id", required = true) String subscriberId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
             @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
-        return messages.createMessage(message, authorizationHeader);
+        return messages.syncMessagesForSubscriberById(UUID.fromString(subscriberId), cursor, limit,
+                authorizationHeader);
+    }
+
+    @RequestMapping(method = RequestMethod.POST, path = Constants.URI_MESSAGE, consumes = { Constants.APPLICATION_JSON, Constants.APPLICATION_CBOR })
+    public Mono<ResponseEntity<ResponseEnvelope<String>>> createMessage(@RequestBody Message message,
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader,
+            @RequestHeader(value = Constants.IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            Principal principal) {
+        return messages.createMessage(message, authorizationHeader, principal.getName(), idempotencyKey);
     }
 
     @RequestMapping(method = RequestMethod.DELETE, path = Constants.URI_MESSAGE + "/{message-id}")
-    public Mono<ResponseEntity<Map<String, Object>>> deleteMessageById(
+    public Mono<ResponseEntity<ResponseEnvelope<Boolean>>> deleteMessageById(
             @PathVariable(value = "message-id", required = true) String messageId) {
         return messages.deleteMessageById(UUID.fromString(messageId));
     }
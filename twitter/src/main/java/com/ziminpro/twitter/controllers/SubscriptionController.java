@@ -1,10 +1,10 @@
 package com.ziminpro.twitter.controllers;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
 
 import com.ziminpro.twitter.dtos.Constants;
+import com.ziminpro.twitter.dtos.ProducerSubscribers;
+import com.ziminpro.twitter.dtos.ResponseEnvelope;
 import com.ziminpro.twitter.dtos.Subscription;
 import com.ziminpro.twitter.services.SubscriptionsService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,36 +25,34 @@ public class SubscriptionController {
     @Autowired
     private SubscriptionsService subscriptionsService;
 
-    Map<String, Object> response = new HashMap<>();
-
     @RequestMapping(method = RequestMethod.GET, path = Constants.URI_SUBSCRIPTION + "/{subscriber-id}")
-    public Mono<ResponseEntity<Map<String, Object>>> getSubscriptionBySubscriberId(
+    public Mono<ResponseEntity<ResponseEnvelope<Subscription>>> getSubscriptionBySubscriberId(
             @PathVariable(value = "subscriber-id", required = true) UUID subscriberId,
             @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
         return subscriptionsService.getSubscriptionsForSubscriberById(subscriberId, authorizationHeader);
     }
 
     @RequestMapping(method = RequestMethod.GET, path = Constants.URI_PRODUCER_SUBSCRIBERS + "/{producer-id}")
-    public Mono<ResponseEntity<Map<String, Object>>> getSubscribersByProducerId(
+    public Mono<ResponseEntity<ResponseEnvelope<ProducerSubscribers>>> getSubscribersByProducerId(
             @PathVariable(value = "producer-id", required = true) UUID producerId,
             @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
         return subscriptionsService.getSubscribersForProducerById(producerId, authorizationHeader);
     }
 
-    @RequestMapping(method = RequestMethod.PUT, path = Constants.URI_SUBSCRIPTIONS, consumes = Constants.APPLICATION_JSON)
-    public Mono<ResponseEntity<Map<String, Object>>> up(@RequestBody Subscription subscription,
+    @RequestMapping(method = RequestMethod.PUT, path = Constants.URI_SUBSCRIPTIONS, consumes = { Constants.APPLICATION_JSON, Constants.APPLICATION_CBOR })
+    public Mono<ResponseEntity<ResponseEnvelope<Boolean>>> up(@RequestBody Subscription subscription,
             @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
         return subscriptionsService.updateSubscriptionForSubscriberById(subscription, authorizationHeader);
     }
 
-    @RequestMapping(method = RequestMethod.POST, path = Constants.URI_SUBSCRIPTIONS, consumes = Constants.APPLICATION_JSON)
-    public Mono<ResponseEntity<Map<String, Object>>> createSubscription(@RequestBody Subscription subscription,
+    @RequestMapping(method = RequestMethod.POST, path = Constants.URI_SUBSCRIPTIONS, consumes = { Constants.APPLICATION_JSON, Constants.APPLICATION_CBOR })
+    public Mono<ResponseEntity<ResponseEnvelope<Boolean>>> createSubscription(@RequestBody Subscription subscription,
             @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
         return subscriptionsService.createSubscription(subscription, authorizationHeader);
     }
 
     @RequestMapping(method = RequestMethod.DELETE, path = Constants.URI_SUBSCRIPTION + "/{subscriber-id}")
-    public Mono<ResponseEntity<Map<String, Object>>> createSubscription(
+    public Mono<ResponseEntity<ResponseEnvelope<Boolean>>> createSubscription(
             @PathVariable(value = "subscriber-id", required = true) UUID subscriberId,
             @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
         return subscriptionsService.deleteSubscriptionForSubscriberById(subscriberId, authorizationHeader);
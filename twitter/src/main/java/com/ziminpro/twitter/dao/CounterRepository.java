@@ -0,0 +1,19 @@
+package com.ziminpro.twitter.dao;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.ziminpro.twitter.dtos.UserCounts;
+
+public interface CounterRepository {
+    public UserCounts getCounts(UUID userId);
+    /** Adds each entry to the stored counters, creating rows as needed. */
+    public void addCounts(List<UserCounts> deltas);
+    /** Producers and subscribers after {@code userId} in id order. */
+    public List<UUID> getCountedUsersAfter(UUID userId, int limit);
+    /** Counts each user from the source tables, in the current transaction's snapshot. */
+    public List<UserCounts> countUsers(List<UUID> userIds);
+    /** Overwrites the stored counters of the given users. */
+    public void setCounts(List<UserCounts> counts);
+    public void deleteCounts(List<UUID> userIds);
+}
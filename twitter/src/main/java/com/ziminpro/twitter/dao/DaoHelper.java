@@ -17,4 +17,11 @@ public class DaoHelper {
         bb.putLong(uuid.getLeastSignificantBits());
         return bb.array();
     }
+
+    // same order as MySQL sorts binary(16) columns (unsigned, byte by byte); UUID.compareTo is signed
+    public static int compareAsBinary(UUID first, UUID second) {
+        int result = Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits());
+        return result != 0 ? result
+                : Long.compareUnsigned(first.getLeastSignificantBits(), second.getLeastSignificantBits());
+    }
 }
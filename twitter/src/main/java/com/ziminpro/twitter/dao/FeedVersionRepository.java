@@ -0,0 +1,12 @@
+package com.ziminpro.twitter.dao;
+
+import java.util.UUID;
+
+import com.ziminpro.twitter.dtos.FeedVersion;
+
+public interface FeedVersionRepository {
+    /** 0 for a producer that has never posted. */
+    public long getProducerVersion(UUID producerId);
+    /** All zeroes for a subscriber that has never subscribed. */
+    public FeedVersion getFeedVersion(UUID subscriberId);
+}
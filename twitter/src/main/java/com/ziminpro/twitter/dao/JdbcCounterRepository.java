@@ -0,0 +1,68 @@
+package com.ziminpro.twitter.dao;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import com.ziminpro.twitter.dtos.Constants;
+import com.ziminpro.twitter.dtos.UserCounts;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class JdbcCounterRepository implements CounterRepository {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public UserCounts getCounts(UUID userId) {
+        List<UserCounts> counts = jdbcTemplate.query(Constants.GET_USER_COUNTERS,
+                (rs, rowNum) -> new UserCounts(DaoHelper.bytesArrayToUuid(rs.getBytes("user_id")),
+                        rs.getLong("followers"), rs.getLong("following"), rs.getLong("messages")),
+                userId.toString());
+        return counts.isEmpty() ? new UserCounts(userId, 0, 0, 0) : counts.getFirst();
+    }
+
+    @Override
+    public void addCounts(List<UserCounts> deltas) {
+        long now = Instant.now().getEpochSecond();
+        jdbcTemplate.batchUpdate(Constants.ADD_USER_COUNTERS, deltas.stream()
+                .map(delta -> new Object[] { delta.user().toString(), delta.followers(), delta.following(),
+                        delta.messages(), now })
+                .toList());
+    }
+
+    @Override
+    public List<UUID> getCountedUsersAfter(UUID userId, int limit) {
+        return jdbcTemplate.query(Constants.GET_COUNTED_USERS_AFTER,
+                (rs, rowNum) -> DaoHelper.bytesArrayToUuid(rs.getBytes("id")),
+                userId.toString(), userId.toString(), limit);
+    }
+
+    @Override
+    public List<UserCounts> countUsers(List<UUID> userIds) {
+        return userIds.stream()
+                .map(id -> jdbcTemplate.queryForObject(Constants.COUNT_USER,
+                        (rs, rowNum) -> new UserCounts(id, rs.getLong("followers"), rs.getLong("following"),
+                                rs.getLong("messages")),
+                        id.toString(), id.toString(), id.toString()))
+                .toList();
+    }
+
+    @Override
+    public void setCounts(List<UserCounts> counts) {
+        long now = Instant.now().getEpochSecond();
+        jdbcTemplate.batchUpdate(Constants.SET_USER_COUNTERS, counts.stream()
+                .map(count -> new Object[] { count.user().toString(), count.followers(), count.following(),
+                        count.messages(), now })
+                .toList());
+    }
+
+    @Override
+    public void deleteCounts(List<UUID> userIds) {
+        jdbcTemplate.batchUpdate(Constants.DELETE_USER_COUNTERS, userIds.stream()
+                .map(userId -> new Object[] { userId.toString() })
+                .toList());
+    }
+}
@@ -0,0 +1,32 @@
+package com.ziminpro.twitter.dao;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.ziminpro.twitter.dtos.Constants;
+import com.ziminpro.twitter.dtos.FeedVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class JdbcFeedVersionRepository implements FeedVersionRepository {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public long getProducerVersion(UUID producerId) {
+        List<Long> versions = jdbcTemplate.query(Constants.GET_PRODUCER_VERSION,
+                (rs, rowNum) -> rs.getLong("version"), producerId.toString());
+        return versions.isEmpty() ? 0 : versions.getFirst();
+    }
+
+    @Override
+    public FeedVersion getFeedVersion(UUID subscriberId) {
+        List<FeedVersion> versions = jdbcTemplate.query(Constants.GET_FEED_VERSION,
+                (rs, rowNum) -> new FeedVersion(rs.getLong("subscriber_version"), rs.getLong("producers"),
+                        rs.getLong("producer_versions")),
+                subscriberId.toString());
+        return versions.isEmpty() ? new FeedVersion(0, 0, 0) : versions.getFirst();
+    }
+}
@@ -2,21 +2,33 @@ package com.ziminpro.twitter.dao;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
+import com.ziminpro.common.concurrency.ConcurrencyLimitExceededException;
 import com.ziminpro.twitter.dtos.Constants;
 import com.ziminpro.twitter.dtos.Message;
+import com.ziminpro.twitter.dtos.MessageClaim;
+import com.ziminpro.twitter.dtos.OutboxEvent;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Repository
 public class JdbcMessageRepository implements MessageRepository {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
     @Override
     public Message getMessagebyId(UUID messageId) {
         List<Message> messages = jdbcTemplate.query(Constants.GET_MESSAGE_BY_ID,
@@ -26,7 +38,7 @@ public class JdbcMessageRepository implements MessageRepository {
                 messageId.toString());
 
         // better to return empty message instead of null (for automatic processing)
-        return Optional.ofNullable(messages.getFirst()).orElse(new Message());
+        return messages.isEmpty() ? new Message() : messages.getFirst();
     }
 
     @Override
@@ -50,6 +62,31 @@ public class JdbcMessageRepository implements MessageRepository {
         return Optional.of(messages).orElse(new ArrayList<>());
     }
 
+    @Override
+    public List<Message> getMessagesForProducerBefore(UUID producerId, long created, UUID messageId, int limit) {
+        return jdbcTemplate.query(Constants.GET_MESSAGES_FOR_PRODUCER_BEFORE,
+                (rs, rowNum) -> new Message(DaoHelper.bytesArrayToUuid(rs.getBytes("id")),
+                        DaoHelper.bytesArrayToUuid(rs.getBytes("producer_id")),
+                        rs.getString("content"), rs.getLong("created")),
+                producerId.toString(), created, created, messageId.toString(), limit);
+    }
+
+    @Override
+    public List<Message> getMessagesForSubscriberSince(UUID subscriberId, long created, UUID messageId, int limit) {
+        return jdbcTemplate.query(Constants.GET_MESSAGES_FOR_SUBSCRIBER_SINCE,
+                (rs, rowNum) -> new Message(DaoHelper.bytesArrayToUuid(rs.getBytes("id")),
+                        DaoHelper.bytesArrayToUuid(rs.getBytes("producer_id")),
+                        rs.getString("content"), rs.getLong("created")),
+                subscriberId.toString(), created, created, messageId.toString(), limit);
+    }
+
+    @Override
+    public List<UUID> getDeletedMessagesForSubscriber(UUID subscriberId, long deletedSince, int limit) {
+        return jdbcTemplate.query(Constants.GET_TOMBSTONES_FOR_SUBSCRIBER_SINCE,
+                (rs, rowNum) -> DaoHelper.bytesArrayToUuid(rs.getBytes("message_id")),
+                subscriberId.toString(), deletedSince, limit);
+    }
+
     @Override
     public UUID createMessage(Message message) {
         message.setId(UUID.randomUUID());
@@ -60,22 +97,97 @@ public class JdbcMessageRepository implements MessageRepository {
             return null;
 
         try {
-            jdbcTemplate.update(Constants.CREATE_MESSAGE, message.getId().toString(), message.getAuthor().toString(),
-                    message.getContent(), message.getTimestamp());
+            transactionTemplate.executeWithoutResult(status -> {
+                // the producer row first: every write that touches a producer's messages locks it in that order
+                jdbcTemplate.update(Constants.BUMP_PRODUCER_VERSION, message.getAuthor().toString());
+                jdbcTemplate.update(Constants.CREATE_MESSAGE, message.getId().toString(),
+                        message.getAuthor().toString(), message.getContent(), message.getTimestamp());
+                outboxRepository.append(OutboxEvent.MESSAGE_CREATED, message.getId(), messageCreated(message));
+            });
+        } catch (ConcurrencyLimitExceededException e) {
+            throw e;
         } catch (Exception e) {
             return null;
         }
         return message.getId();
     }
 
+    @Override
+    public MessageClaim createMessageOnce(Message message, String subject, String idempotencyKey,
+                                          byte[] requestHash) {
+        if (message.getAuthor() == null || message.getContent() == null
+                || this.createProducer(message.getAuthor()) == null)
+            return null;
+
+        UUID messageId = UUID.randomUUID();
+        long timestamp = Instant.now().getEpochSecond();
+        try {
+            // the key row and the message commit together, so a claimed key always points at a stored message
+            return transactionTemplate.execute(status -> {
+                int claimed = jdbcTemplate.update(Constants.CLAIM_IDEMPOTENCY_KEY, subject, idempotencyKey,
+                        messageId.toString(), requestHash, timestamp);
+                if (claimed == 0) {
+                    return jdbcTemplate.queryForObject(Constants.GET_IDEMPOTENCY_KEY,
+                            (rs, rowNum) -> {
+                                byte[] stored = rs.getBytes("request_hash");
+                                // keys claimed before V8 carry no hash and are taken at their word
+                                boolean same = stored == null || Arrays.equals(stored, requestHash);
+                                return new MessageClaim(DaoHelper.bytesArrayToUuid(rs.getBytes("message_id")),
+                                        same ? MessageClaim.Status.EXISTING : MessageClaim.Status.CONFLICT);
+                            },
+                            subject, idempotencyKey);
+                }
+                message.setId(messageId);
+                message.setTimestamp(timestamp);
+                jdbcTemplate.update(Constants.BUMP_PRODUCER_VERSION, message.getAuthor().toString());
+                jdbcTemplate.update(Constants.CREATE_MESSAGE, messageId.toString(), message.getAuthor().toString(),
+                        message.getContent(), timestamp);
+                outboxRepository.append(OutboxEvent.MESSAGE_CREATED, messageId, messageCreated(message));
+                return new MessageClaim(messageId, MessageClaim.Status.CREATED);
+            });
+        } catch (ConcurrencyLimitExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int deleteExpiredIdempotencyKeys(long createdBefore, int limit) {
+        return jdbcTemplate.update(Constants.DELETE_EXPIRED_IDEMPOTENCY_KEYS, createdBefore, limit);
+    }
+
     @Override
     public int deleteMessageById(UUID messageId) {
-        return jdbcTemplate.update(Constants.DELETE_MESSAGE, messageId.toString());
+        Integer deleted = transactionTemplate.execute(status -> {
+            List<UUID> producers = jdbcTemplate.query(Constants.GET_MESSAGE_PRODUCER,
+                    (rs, rowNum) -> DaoHelper.bytesArrayToUuid(rs.getBytes("producer_id")), messageId.toString());
+            if (producers.isEmpty()) {
+                return 0;
+            }
+            jdbcTemplate.update(Constants.BUMP_PRODUCER_VERSION, producers.getFirst().toString());
+            int rows = jdbcTemplate.update(Constants.DELETE_MESSAGE, messageId.toString());
+            if (rows == 1) {
+                jdbcTemplate.update(Constants.CREATE_MESSAGE_TOMBSTONE, messageId.toString(),
+                        producers.getFirst().toString(), Instant.now().getEpochSecond());
+                outboxRepository.append(OutboxEvent.MESSAGE_DELETED, messageId,
+                        Map.of("messageId", messageId, "producerId", producers.getFirst()));
+            }
+            return rows;
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    private static Map<String, Object> messageCreated(Message message) {
+        return Map.of("messageId", message.getId(), "producerId", message.getAuthor(),
+                "created", message.getTimestamp());
     }
 
     UUID createProducer(UUID producerID) {
         try {
             jdbcTemplate.update(Constants.CREATE_PRODUCER, producerID.toString());
+        } catch (ConcurrencyLimitExceededException e) {
+            throw e;
         } catch (Exception e) {
             return null;
         }
@@ -0,0 +1,89 @@
+package com.ziminpro.twitter.dao;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ziminpro.twitter.dtos.Constants;
+import com.ziminpro.twitter.dtos.OutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class JdbcOutboxRepository implements OutboxRepository {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // ER_LOCK_NOWAIT: a NOWAIT locking read met a row another transaction holds
+    private static final int LOCK_NOWAIT = 3572;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void append(String type, UUID aggregateId, Map<String, Object> payload) {
+        String json;
+        try {
+            json = MAPPER.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Event payload is not serializable", e);
+        }
+        jdbcTemplate.update(Constants.CREATE_OUTBOX_EVENT, type, aggregateId.toString(), json,
+                Instant.now().getEpochSecond());
+    }
+
+    @Override
+    public List<OutboxEvent> getEventsAfter(long offset, int limit) {
+        return jdbcTemplate.query(Constants.GET_OUTBOX_EVENTS_AFTER,
+                (rs, rowNum) -> new OutboxEvent(rs.getLong("id"), rs.getString("event_type"),
+                        DaoHelper.bytesArrayToUuid(rs.getBytes("aggregate_id")), rs.getString("payload"),
+                        rs.getLong("created")),
+                offset, limit);
+    }
+
+    @Override
+    public long getOffset(String consumer) {
+        List<Long> offsets = jdbcTemplate.query(Constants.GET_OUTBOX_OFFSET,
+                (rs, rowNum) -> rs.getLong("position"), consumer);
+        return offsets.isEmpty() ? 0 : offsets.getFirst();
+    }
+
+    @Override
+    public void saveOffset(String consumer, long offset) {
+        jdbcTemplate.update(Constants.SAVE_OUTBOX_OFFSET, consumer, offset, Instant.now().getEpochSecond());
+    }
+
+    @Override
+    public void createOffset(String consumer) {
+        jdbcTemplate.update(Constants.CREATE_OUTBOX_OFFSET, consumer, Instant.now().getEpochSecond());
+    }
+
+    @Override
+    public Long lockOffset(String consumer) {
+        List<Long> offsets = jdbcTemplate.query(Constants.LOCK_OUTBOX_OFFSET,
+                (rs, rowNum) -> rs.getLong("position"), consumer);
+        return offsets.isEmpty() ? null : offsets.getFirst();
+    }
+
+    @Override
+    public long awaitOffset(String consumer) {
+        return jdbcTemplate.queryForObject(Constants.AWAIT_OUTBOX_OFFSET, Long.class, consumer);
+    }
+
+    @Override
+    public boolean isGapSettled(long after, long before) {
+        // an insert that is still in flight holds its row, so the locking read fails instead of skipping it
+        try {
+            return jdbcTemplate.queryForList(Constants.PROBE_OUTBOX_GAP, Long.class, after, before).isEmpty();
+        } catch (DataAccessException e) {
+            if (e.getMostSpecificCause() instanceof SQLException sql && sql.getErrorCode() == LOCK_NOWAIT) {
+                return false;
+            }
+            throw e;
+        }
+    }
+}
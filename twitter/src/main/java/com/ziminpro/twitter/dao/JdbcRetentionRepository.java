@@ -0,0 +1,133 @@
+package com.ziminpro.twitter.dao;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.ziminpro.twitter.dtos.Constants;
+import com.ziminpro.twitter.dtos.OutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Repository
+public class JdbcRetentionRepository implements RetentionRepository {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public List<UUID> getExpiredMessageIds(long createdBefore, int limit) {
+        return jdbcTemplate.query(Constants.GET_EXPIRED_MESSAGE_IDS,
+                (rs, rowNum) -> DaoHelper.bytesArrayToUuid(rs.getBytes("id")), createdBefore, limit);
+    }
+
+    @Override
+    public List<UUID> getMessageIdsForProducer(UUID producerId, int limit) {
+        return jdbcTemplate.query(Constants.GET_MESSAGE_IDS_FOR_PRODUCER,
+                (rs, rowNum) -> DaoHelper.bytesArrayToUuid(rs.getBytes("id")), producerId.toString(), limit);
+    }
+
+    @Override
+    public int deleteMessages(List<UUID> messageIds) {
+        if (messageIds.isEmpty()) {
+            return 0;
+        }
+        // binary ids in primary key order, so concurrent chunks lock rows in the same order
+        List<byte[]> ids = new ArrayList<>(messageIds.stream().sorted(DaoHelper::compareAsBinary)
+                .map(DaoHelper::uuidToBytesArray).toList());
+        String placeholders = "(" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        String in = placeholders + ";";
+        List<Object> tombstoneArgs = new ArrayList<>(ids.size() + 1);
+        tombstoneArgs.add(Instant.now().getEpochSecond());
+        tombstoneArgs.addAll(ids);
+        Integer deleted = transactionTemplate.execute(status -> {
+            jdbcTemplate.update(Constants.BUMP_PRODUCER_VERSIONS_FOR + placeholders + ");", ids.toArray());
+            Map<UUID, Long> messages = new LinkedHashMap<>();
+            jdbcTemplate.query(Constants.LOCK_MESSAGE_PRODUCERS_FOR + placeholders + " FOR UPDATE;",
+                    (rs, rowNum) -> DaoHelper.bytesArrayToUuid(rs.getBytes("producer_id")), ids.toArray())
+                    .forEach(producerId -> messages.merge(producerId, 1L, Long::sum));
+            jdbcTemplate.update(Constants.CREATE_MESSAGE_TOMBSTONES_FOR + in, tombstoneArgs.toArray());
+            int removed = jdbcTemplate.update(Constants.DELETE_MESSAGES_FOR + in, ids.toArray());
+            countsRemoved(Map.of(), Map.of(), messages);
+            return removed;
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    @Override
+    public int deleteExpiredOutboxEvents(long createdBefore, int limit) {
+        return jdbcTemplate.update(Constants.DELETE_EXPIRED_OUTBOX_EVENTS, createdBefore, limit);
+    }
+
+    @Override
+    public int deleteExpiredTombstones(long deletedBefore, int limit) {
+        return jdbcTemplate.update(Constants.DELETE_EXPIRED_TOMBSTONES, deletedBefore, limit);
+    }
+
+    @Override
+    public void requestUserPurge(UUID userId) {
+        jdbcTemplate.update(Constants.CREATE_USER_PURGE, userId.toString(), Instant.now().getEpochSecond());
+    }
+
+    @Override
+    public List<UUID> getUserPurges(int limit) {
+        return jdbcTemplate.query(Constants.GET_USER_PURGES,
+                (rs, rowNum) -> DaoHelper.bytesArrayToUuid(rs.getBytes("user_id")), limit);
+    }
+
+    @Override
+    public int deleteSubscriptionsForUser(UUID userId, int limit) {
+        Integer deleted = transactionTemplate.execute(status -> {
+            List<UUID[]> pairs = jdbcTemplate.query(Constants.LOCK_SUBSCRIPTIONS_FOR_USER,
+                    (rs, rowNum) -> new UUID[] { DaoHelper.bytesArrayToUuid(rs.getBytes("subscriber_id")),
+                            DaoHelper.bytesArrayToUuid(rs.getBytes("producer_id")) },
+                    userId.toString(), userId.toString(), limit);
+            if (pairs.isEmpty()) {
+                return 0;
+            }
+            jdbcTemplate.batchUpdate(Constants.DELETE_SUBSCRIPTION_PAIR, pairs.stream()
+                    .map(pair -> new Object[] { pair[0].toString(), pair[1].toString() })
+                    .toList());
+            Map<UUID, Long> followers = new LinkedHashMap<>();
+            Map<UUID, Long> following = new LinkedHashMap<>();
+            for (UUID[] pair : pairs) {
+                following.merge(pair[0], 1L, Long::sum);
+                followers.merge(pair[1], 1L, Long::sum);
+            }
+            countsRemoved(followers, following, Map.of());
+            return pairs.size();
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    @Override
+    public void completeUserPurge(UUID userId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(Constants.DELETE_PRODUCER, userId.toString());
+            jdbcTemplate.update(Constants.DELETE_SUBSCRIBER, userId.toString());
+            jdbcTemplate.update(Constants.DELETE_USER_PURGE, userId.toString());
+            // the counters consumer drops the row after the deltas queued ahead of it
+            outboxRepository.append(OutboxEvent.USER_PURGED, userId, Map.of("userId", userId));
+        });
+    }
+
+    // retention deletes carry no per-row events, so the counters learn of them from one summary
+    private void countsRemoved(Map<UUID, Long> followers, Map<UUID, Long> following, Map<UUID, Long> messages) {
+        if (followers.isEmpty() && following.isEmpty() && messages.isEmpty()) {
+            return;
+        }
+        outboxRepository.append(OutboxEvent.COUNTS_REMOVED, new UUID(0, 0),
+                Map.of("followers", followers, "following", following, "messages", messages));
+    }
+}
@@ -1,14 +1,23 @@
 package com.ziminpro.twitter.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.BooleanSupplier;
 
+import com.ziminpro.common.concurrency.ConcurrencyLimitExceededException;
 import com.ziminpro.twitter.dtos.Constants;
+import com.ziminpro.twitter.dtos.OutboxEvent;
 import com.ziminpro.twitter.dtos.ProducerSubscribers;
 import com.ziminpro.twitter.dtos.Subscription;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Repository
 public class JdbcSupsriptionRepository implements SubscriptionRepository {
@@ -18,30 +27,83 @@ public class JdbcSupsriptionRepository implements SubscriptionRepository {
     @Autowired
     private JdbcMessageRepository jdbcMessageRepository;
 
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Override
     public boolean createSubscription(Subscription subscription) {
+        return inTransaction(() -> {
+            if (!lockedSubscriber(subscription)) {
+                return false;
+            }
+            List<UUID> added = insertSubscription(subscription);
+            return added != null && appended(OutboxEvent.SUBSCRIPTION_CREATED, subscription, added, List.of());
+        });
+    }
+
+    @Override
+    public boolean updateSubscription(Subscription subscription) {
+        return inTransaction(() -> {
+            if (!lockedSubscriber(subscription)) {
+                return false;
+            }
+            List<UUID> before = lockedProducers(subscription.getSubscriber());
+            if (before == null || !removeSubscription(subscription.getSubscriber())) {
+                return false;
+            }
+            List<UUID> inserted = insertSubscription(subscription);
+            if (inserted == null) {
+                return false;
+            }
+            Set<UUID> added = new HashSet<>(inserted);
+            added.removeAll(before);
+            Set<UUID> removed = new HashSet<>(before);
+            removed.removeAll(inserted);
+            return appended(OutboxEvent.SUBSCRIPTION_REPLACED, subscription, added, removed);
+        });
+    }
+
+    // creates the subscriber and bumps its feed version; the row lock orders concurrent changes to one subscriber
+    private boolean lockedSubscriber(Subscription subscription) {
         if (subscription.getSubscriber() == null || subscription.getProducers() == null
                 || subscription.getProducers().isEmpty()
                 || this.createSubscriber(subscription.getSubscriber()) == null)
             return false;
+        return bumped(subscription.getSubscriber());
+    }
 
+    // the producers actually subscribed to, or null on failure
+    private List<UUID> insertSubscription(Subscription subscription) {
+        List<UUID> inserted = new ArrayList<>();
         try {
-            subscription.getProducers().forEach(producerId -> {
-                if (jdbcMessageRepository.createProducer(producerId) != null) {
-                    jdbcTemplate.update(Constants.CREATE_SUBSCRIPTION, subscription.getSubscriber().toString(),
-                            producerId.toString());
+            for (UUID producerId : subscription.getProducers()) {
+                if (jdbcMessageRepository.createProducer(producerId) != null
+                        && jdbcTemplate.update(Constants.CREATE_SUBSCRIPTION, subscription.getSubscriber().toString(),
+                                producerId.toString()) > 0) {
+                    inserted.add(producerId);
                 }
-            });
+            }
+        } catch (ConcurrencyLimitExceededException e) {
+            throw e;
         } catch (Exception e) {
-            return false;
+            return null;
         }
-        return true;
+        return inserted;
     }
 
-    @Override
-    public boolean updateSubscription(Subscription subscription) {
-        this.deleteSubscription(subscription.getSubscriber());
-        return this.createSubscription(subscription);
+    // read under the subscriber's lock, so the change recorded in the outbox is exactly what this transaction did
+    private List<UUID> lockedProducers(UUID subscriberId) {
+        try {
+            return jdbcTemplate.query(Constants.LOCK_SUBSCRIBED_PRODUCERS,
+                    (rs, rowNum) -> DaoHelper.bytesArrayToUuid(rs.getBytes("producer_id")), subscriberId.toString());
+        } catch (ConcurrencyLimitExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            return null;
+        }
     }
 
     @Override
@@ -80,19 +142,71 @@ public class JdbcSupsriptionRepository implements SubscriptionRepository {
         return subscribers;
     }
 
+    @Override
+    public UUID getSubscriberWithMessages() {
+        List<UUID> subscribers = jdbcTemplate.query(Constants.GET_SUBSCRIBER_WITH_MESSAGES,
+                (rs, rowNum) -> DaoHelper.bytesArrayToUuid(rs.getBytes("subscriber_id")));
+        return subscribers.isEmpty() ? null : subscribers.getFirst();
+    }
+
     @Override
     public boolean deleteSubscription(UUID subscriberId) {
+        return inTransaction(() -> {
+            bumped(subscriberId);
+            List<UUID> before = lockedProducers(subscriberId);
+            return before != null && removeSubscription(subscriberId)
+                    && appended(OutboxEvent.SUBSCRIPTION_DELETED, new Subscription(subscriberId, List.of()),
+                            List.of(), before);
+        });
+    }
+
+    private boolean removeSubscription(UUID subscriberId) {
         try {
             jdbcTemplate.update(Constants.DELETE_SUBSCRIPTION, subscriberId.toString());
+        } catch (ConcurrencyLimitExceededException e) {
+            throw e;
         } catch (Exception e) {
             return false;
         }
         return true;
     }
 
+    // the subscription rows and their outbox event commit or roll back together
+    private boolean inTransaction(BooleanSupplier work) {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (work.getAsBoolean()) {
+                    return true;
+                }
+                status.setRollbackOnly();
+                return false;
+            }));
+        } catch (ConcurrencyLimitExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // the subscriber's feed version, read for its ETag
+    private boolean bumped(UUID subscriberId) {
+        jdbcTemplate.update(Constants.BUMP_SUBSCRIBER_VERSION, subscriberId.toString());
+        return true;
+    }
+
+    private boolean appended(String type, Subscription subscription, Collection<UUID> added,
+                             Collection<UUID> removed) {
+        outboxRepository.append(type, subscription.getSubscriber(),
+                Map.of("subscriberId", subscription.getSubscriber(), "producerIds", subscription.getProducers(),
+                        "added", added, "removed", removed));
+        return true;
+    }
+
     UUID createSubscriber(UUID subscriberId) {
         try {
             jdbcTemplate.update(Constants.CREATE_SUBSCRIBER, subscriberId.toString());
+        } catch (ConcurrencyLimitExceededException e) {
+            throw e;
         } catch (Exception e) {
             return null;
         }
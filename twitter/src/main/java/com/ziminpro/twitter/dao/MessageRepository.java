@@ -4,11 +4,20 @@ import java.util.List;
 import java.util.UUID;
 
 import com.ziminpro.twitter.dtos.Message;
+import com.ziminpro.twitter.dtos.MessageClaim;
 
 public interface MessageRepository {
     public Message getMessagebyId(UUID messageId);
     public List<Message> getMessagesForProducerById(UUID producerId);
     public List<Message> getMessagesForSubscriberById(UUID subscriberId);
+    /** Newest first, strictly before the given (created, id) position. */
+    public List<Message> getMessagesForProducerBefore(UUID producerId, long created, UUID messageId, int limit);
+    /** Keyset page ordered by (created, id), strictly after the given position. */
+    public List<Message> getMessagesForSubscriberSince(UUID subscriberId, long created, UUID messageId, int limit);
+    public List<UUID> getDeletedMessagesForSubscriber(UUID subscriberId, long deletedSince, int limit);
     public UUID createMessage(Message message);
+    /** Claims {@code idempotencyKey} for {@code subject} and stores the message, or reports the earlier claim. */
+    public MessageClaim createMessageOnce(Message message, String subject, String idempotencyKey, byte[] requestHash);
+    public int deleteExpiredIdempotencyKeys(long createdBefore, int limit);
     public int deleteMessageById(UUID messageId);
 }
@@ -0,0 +1,30 @@
+package com.ziminpro.twitter.dao;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.ziminpro.twitter.dtos.OutboxEvent;
+
+public interface OutboxRepository {
+    /** Must run inside the transaction of the change it describes. */
+    public void append(String type, UUID aggregateId, Map<String, Object> payload);
+    public List<OutboxEvent> getEventsAfter(long offset, int limit);
+    public long getOffset(String consumer);
+    public void saveOffset(String consumer, long offset);
+    /** Creates the consumer's offset row at the current end of the outbox unless it exists. */
+    public void createOffset(String consumer);
+    /**
+     * Locks the consumer's offset row until the current transaction ends and
+     * returns its position, or null while another transaction holds it.
+     */
+    public Long lockOffset(String consumer);
+    /** Like {@link #lockOffset}, but waits for the current holder; the row must exist. */
+    public long awaitOffset(String consumer);
+    /**
+     * Whether the ids strictly between {@code after} and {@code before} are gone
+     * for good: false while a writer still holds one of them or one has been
+     * committed since it was last read.
+     */
+    public boolean isGapSettled(long after, long before);
+}
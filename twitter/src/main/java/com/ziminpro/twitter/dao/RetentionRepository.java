@@ -0,0 +1,26 @@
+package com.ziminpro.twitter.dao;
+
+import java.util.List;
+import java.util.UUID;
+
+/** Small, bounded deletes for the background retention job; every call touches at most {@code limit} rows. */
+public interface RetentionRepository {
+    public List<UUID> getExpiredMessageIds(long createdBefore, int limit);
+    public List<UUID> getMessageIdsForProducer(UUID producerId, int limit);
+    /**
+     * Deletes the messages, leaves tombstones for feed sync, bumps their producers'
+     * versions and queues the counter decrements, in one transaction.
+     */
+    public int deleteMessages(List<UUID> messageIds);
+    public int deleteExpiredOutboxEvents(long createdBefore, int limit);
+    public int deleteExpiredTombstones(long deletedBefore, int limit);
+    public void requestUserPurge(UUID userId);
+    public List<UUID> getUserPurges(int limit);
+    /** Deletes subscriptions from or to the user and queues the counter decrements, in one transaction. */
+    public int deleteSubscriptionsForUser(UUID userId, int limit);
+    /**
+     * Drops the producer and subscriber rows and the purge request once nothing
+     * references them; the counter row goes when the consumer reaches the event.
+     */
+    public void completeUserPurge(UUID userId);
+}
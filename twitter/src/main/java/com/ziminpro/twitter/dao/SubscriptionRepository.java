@@ -8,6 +8,8 @@ import com.ziminpro.twitter.dtos.Subscription;
 public interface SubscriptionRepository {
     public Subscription getSubscription(UUID subscriberId);
     public ProducerSubscribers getSubscribers(UUID producerId);
+    /** Some subscriber whose feed has messages, or null when no feed has any. */
+    public UUID getSubscriberWithMessages();
     public boolean createSubscription(Subscription subscription);
     public boolean updateSubscription(Subscription subscription);
     public boolean deleteSubscription(UUID subscriberId);
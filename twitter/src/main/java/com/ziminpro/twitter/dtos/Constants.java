@@ -13,14 +13,18 @@ public class Constants {
         public static final String URI_MESSAGES = "/messages";
         public static final String URI_PRODUCER = "/messages/producer";
         public static final String URI_SUBSCRIBER = "/messages/subscriber";
+        public static final String URI_SYNC = "/sync";
+        public static final String URI_COUNTS = "/counts/user";
         public static final String URI_SUBSCRIPTION = "/subscriptions/subscriber";
         public static final String URI_SUBSCRIPTIONS = "/subscriptions";
         public static final String URI_PRODUCER_SUBSCRIBERS = "/subscriptions/producer";
 
         // HEADERS Section
         public static final String APPLICATION_JSON = "application/json";
+        public static final String APPLICATION_CBOR = "application/cbor";
         public static final String CONTENT_TYPE = "Content-Type";
         public static final String ACCEPT = "Accept";
+        public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
 
         // Database Section
         public static final String DB = "`twitter`";
@@ -28,6 +32,12 @@ public class Constants {
         public static final String TABLE_PRODUCERS = "`producers`";
         public static final String TABLE_SUBSCRIBERS = "`subscribers`";
         public static final String TABLE_SUBSCRIPTIONS = "`subscriptions`";
+        public static final String TABLE_IDEMPOTENCY_KEYS = "`idempotency_keys`";
+        public static final String TABLE_OUTBOX = "`outbox`";
+        public static final String TABLE_OUTBOX_OFFSETS = "`outbox_offsets`";
+        public static final String TABLE_MESSAGE_TOMBSTONES = "`message_tombstones`";
+        public static final String TABLE_USER_PURGES = "`user_purges`";
+        public static final String TABLE_USER_COUNTERS = "`user_counters`";
 
         public static final String GET_MESSAGE_BY_ID = "SELECT * FROM " + TABLE_MESSAGES + " WHERE id = UUID_TO_BIN(?)";
         public static final String GET_MESSAGES_FOR_PRODUCER = "SELECT * FROM " + TABLE_MESSAGES
@@ -52,6 +62,123 @@ public class Constants {
                         + " WHERE `subscriber_id`=UUID_TO_BIN(?);";
         public static final String GET_SUBSCRIPTION = "SELECT * FROM " + TABLE_SUBSCRIPTIONS
                         + " WHERE subscriber_id=UUID_TO_BIN(?);";
+        public static final String LOCK_SUBSCRIBED_PRODUCERS = "SELECT producer_id FROM " + TABLE_SUBSCRIPTIONS
+                        + " WHERE subscriber_id=UUID_TO_BIN(?) FOR UPDATE;";
         public static final String GET_SUBSCRIBERS_FOR_PRODUCER = "SELECT subscriber_id, producer_id FROM "
                         + TABLE_SUBSCRIPTIONS + " WHERE producer_id=UUID_TO_BIN(?);";
+        public static final String GET_SUBSCRIBER_WITH_MESSAGES = "SELECT subscriber_id FROM " + TABLE_SUBSCRIPTIONS
+                        + " WHERE EXISTS (SELECT 1 FROM " + TABLE_MESSAGES
+                        + " WHERE messages.producer_id = subscriptions.producer_id) LIMIT 1;";
+        public static final String CLAIM_IDEMPOTENCY_KEY = "INSERT IGNORE INTO " + TABLE_IDEMPOTENCY_KEYS
+                        + " (`subject`, `idempotency_key`, `message_id`, `request_hash`, `created`) "
+                        + "VALUES(?, ?, UUID_TO_BIN(?), ?, ?);";
+        public static final String GET_IDEMPOTENCY_KEY = "SELECT message_id, request_hash FROM "
+                        + TABLE_IDEMPOTENCY_KEYS + " WHERE subject=? AND idempotency_key=?;";
+        public static final String DELETE_EXPIRED_IDEMPOTENCY_KEYS = "DELETE FROM " + TABLE_IDEMPOTENCY_KEYS
+                        + " WHERE created < ? LIMIT ?;";
+        public static final String GET_MESSAGE_PRODUCER = "SELECT producer_id FROM " + TABLE_MESSAGES
+                        + " WHERE id=UUID_TO_BIN(?);";
+        public static final String CREATE_OUTBOX_EVENT = "INSERT INTO " + TABLE_OUTBOX
+                        + " (`event_type`, `aggregate_id`, `payload`, `created`) VALUES(?, UUID_TO_BIN(?), ?, ?);";
+        public static final String GET_OUTBOX_EVENTS_AFTER = "SELECT id, event_type, aggregate_id, payload, created FROM "
+                        + TABLE_OUTBOX + " WHERE id > ? ORDER BY id LIMIT ?;";
+        public static final String GET_OUTBOX_OFFSET = "SELECT position FROM " + TABLE_OUTBOX_OFFSETS
+                        + " WHERE consumer=?;";
+        public static final String SAVE_OUTBOX_OFFSET = "INSERT INTO " + TABLE_OUTBOX_OFFSETS
+                        + " (`consumer`, `position`, `updated`) VALUES(?, ?, ?) "
+                        + "ON DUPLICATE KEY UPDATE position=GREATEST(position, VALUES(position)), updated=VALUES(updated);";
+        public static final String CREATE_OUTBOX_OFFSET = "INSERT IGNORE INTO " + TABLE_OUTBOX_OFFSETS
+                        + " (`consumer`, `position`, `updated`) SELECT ?, COALESCE(MAX(id), 0), ? FROM " + TABLE_OUTBOX + ";";
+        public static final String LOCK_OUTBOX_OFFSET = "SELECT position FROM " + TABLE_OUTBOX_OFFSETS
+                        + " WHERE consumer=? FOR UPDATE SKIP LOCKED;";
+        public static final String AWAIT_OUTBOX_OFFSET = "SELECT position FROM " + TABLE_OUTBOX_OFFSETS
+                        + " WHERE consumer=? FOR UPDATE;";
+        public static final String PROBE_OUTBOX_GAP = "SELECT id FROM " + TABLE_OUTBOX
+                        + " WHERE id > ? AND id < ? FOR SHARE NOWAIT;";
+        public static final String GET_MESSAGES_FOR_SUBSCRIBER_SINCE = "SELECT messages.id as id, "
+                        + "messages.producer_id as producer_id, messages.content as content, messages.created as created "
+                        + "FROM " + TABLE_SUBSCRIPTIONS + " JOIN " + TABLE_MESSAGES
+                        + " ON messages.producer_id = subscriptions.producer_id "
+                        + "WHERE subscriptions.subscriber_id = UUID_TO_BIN(?) "
+                        + "AND (messages.created > ? OR (messages.created = ? AND messages.id > UUID_TO_BIN(?))) "
+                        + "ORDER BY messages.created, messages.id LIMIT ?;";
+        public static final String CREATE_MESSAGE_TOMBSTONE = "INSERT IGNORE INTO " + TABLE_MESSAGE_TOMBSTONES
+                        + " (`message_id`, `producer_id`, `deleted`) VALUES(UUID_TO_BIN(?), UUID_TO_BIN(?), ?);";
+        public static final String GET_TOMBSTONES_FOR_SUBSCRIBER_SINCE = "SELECT message_tombstones.message_id as message_id "
+                        + "FROM " + TABLE_SUBSCRIPTIONS + " JOIN " + TABLE_MESSAGE_TOMBSTONES
+                        + " ON message_tombstones.producer_id = subscriptions.producer_id "
+                        + "WHERE subscriptions.subscriber_id = UUID_TO_BIN(?) AND message_tombstones.deleted >= ? LIMIT ?;";
+        public static final String DELETE_EXPIRED_TOMBSTONES = "DELETE FROM " + TABLE_MESSAGE_TOMBSTONES
+                        + " WHERE deleted < ? LIMIT ?;";
+        public static final String GET_MESSAGES_FOR_PRODUCER_BEFORE = "SELECT id, producer_id, content, created FROM "
+                        + TABLE_MESSAGES + " WHERE producer_id = UUID_TO_BIN(?) "
+                        + "AND (created < ? OR (created = ? AND id < UUID_TO_BIN(?))) "
+                        + "ORDER BY created DESC, id DESC LIMIT ?;";
+        public static final String GET_EXPIRED_MESSAGE_IDS = "SELECT id FROM " + TABLE_MESSAGES
+                        + " WHERE created < ? ORDER BY created, id LIMIT ?;";
+        public static final String GET_MESSAGE_IDS_FOR_PRODUCER = "SELECT id FROM " + TABLE_MESSAGES
+                        + " WHERE producer_id = UUID_TO_BIN(?) ORDER BY id LIMIT ?;";
+        // the IN list is appended by the repository, one placeholder per id
+        public static final String CREATE_MESSAGE_TOMBSTONES_FOR = "INSERT IGNORE INTO " + TABLE_MESSAGE_TOMBSTONES
+                        + " (`message_id`, `producer_id`, `deleted`) SELECT id, producer_id, ? FROM " + TABLE_MESSAGES
+                        + " WHERE id IN ";
+        public static final String DELETE_MESSAGES_FOR = "DELETE FROM " + TABLE_MESSAGES + " WHERE id IN ";
+        // one row per message, locked so the delete removes exactly the rows counted
+        public static final String LOCK_MESSAGE_PRODUCERS_FOR = "SELECT producer_id FROM " + TABLE_MESSAGES
+                        + " WHERE id IN ";
+        public static final String DELETE_EXPIRED_OUTBOX_EVENTS = "DELETE FROM " + TABLE_OUTBOX
+                        + " WHERE created < ? ORDER BY id LIMIT ?;";
+        public static final String CREATE_USER_PURGE = "INSERT IGNORE INTO " + TABLE_USER_PURGES
+                        + " (`user_id`, `requested`) VALUES(UUID_TO_BIN(?), ?);";
+        public static final String GET_USER_PURGES = "SELECT user_id FROM " + TABLE_USER_PURGES
+                        + " ORDER BY requested, user_id LIMIT ?;";
+        public static final String DELETE_USER_PURGE = "DELETE FROM " + TABLE_USER_PURGES
+                        + " WHERE user_id = UUID_TO_BIN(?);";
+        public static final String LOCK_SUBSCRIPTIONS_FOR_USER = "SELECT subscriber_id, producer_id FROM "
+                        + TABLE_SUBSCRIPTIONS + " WHERE subscriber_id = UUID_TO_BIN(?) OR producer_id = UUID_TO_BIN(?) "
+                        + "LIMIT ? FOR UPDATE;";
+        public static final String DELETE_SUBSCRIPTION_PAIR = "DELETE FROM " + TABLE_SUBSCRIPTIONS
+                        + " WHERE subscriber_id = UUID_TO_BIN(?) AND producer_id = UUID_TO_BIN(?);";
+        public static final String DELETE_PRODUCER = "DELETE FROM " + TABLE_PRODUCERS
+                        + " WHERE producer_id = UUID_TO_BIN(?);";
+        public static final String DELETE_SUBSCRIBER = "DELETE FROM " + TABLE_SUBSCRIBERS
+                        + " WHERE subscriber_id = UUID_TO_BIN(?);";
+        public static final String BUMP_PRODUCER_VERSION = "UPDATE " + TABLE_PRODUCERS
+                        + " SET version = version + 1 WHERE producer_id = UUID_TO_BIN(?);";
+        // the IN list is appended by the repository, one placeholder per message id
+        public static final String BUMP_PRODUCER_VERSIONS_FOR = "UPDATE " + TABLE_PRODUCERS
+                        + " SET version = version + 1 WHERE producer_id IN (SELECT producer_id FROM "
+                        + TABLE_MESSAGES + " WHERE id IN ";
+        public static final String BUMP_SUBSCRIBER_VERSION = "UPDATE " + TABLE_SUBSCRIBERS
+                        + " SET version = version + 1 WHERE subscriber_id = UUID_TO_BIN(?);";
+        public static final String GET_PRODUCER_VERSION = "SELECT version FROM " + TABLE_PRODUCERS
+                        + " WHERE producer_id = UUID_TO_BIN(?);";
+        public static final String GET_FEED_VERSION = "SELECT subscribers.version AS subscriber_version, "
+                        + "COUNT(producers.producer_id) AS producers, COALESCE(SUM(producers.version), 0) AS producer_versions "
+                        + "FROM " + TABLE_SUBSCRIBERS + " LEFT JOIN " + TABLE_SUBSCRIPTIONS
+                        + " ON subscriptions.subscriber_id = subscribers.subscriber_id LEFT JOIN " + TABLE_PRODUCERS
+                        + " ON producers.producer_id = subscriptions.producer_id "
+                        + "WHERE subscribers.subscriber_id = UUID_TO_BIN(?) GROUP BY subscribers.version;";
+        public static final String GET_LEADER_LOCK = "SELECT GET_LOCK(?, 0);";
+        public static final String RELEASE_LEADER_LOCK = "SELECT RELEASE_LOCK(?);";
+        public static final String DELETE_USER_COUNTERS = "DELETE FROM " + TABLE_USER_COUNTERS
+                        + " WHERE user_id = UUID_TO_BIN(?);";
+        public static final String GET_USER_COUNTERS = "SELECT user_id, followers, following, messages FROM "
+                        + TABLE_USER_COUNTERS + " WHERE user_id = UUID_TO_BIN(?);";
+        public static final String ADD_USER_COUNTERS = "INSERT INTO " + TABLE_USER_COUNTERS
+                        + " (`user_id`, `followers`, `following`, `messages`, `updated`) VALUES(UUID_TO_BIN(?), ?, ?, ?, ?) "
+                        + "ON DUPLICATE KEY UPDATE followers=followers+VALUES(followers), "
+                        + "following=following+VALUES(following), messages=messages+VALUES(messages), "
+                        + "updated=VALUES(updated);";
+        public static final String GET_COUNTED_USERS_AFTER = "SELECT id FROM (SELECT producer_id AS id FROM "
+                        + TABLE_PRODUCERS + " WHERE producer_id > UUID_TO_BIN(?) UNION SELECT subscriber_id FROM "
+                        + TABLE_SUBSCRIBERS + " WHERE subscriber_id > UUID_TO_BIN(?)) users ORDER BY id LIMIT ?;";
+        public static final String COUNT_USER = "SELECT "
+                        + "(SELECT COUNT(*) FROM " + TABLE_SUBSCRIPTIONS + " WHERE producer_id = UUID_TO_BIN(?)) AS followers, "
+                        + "(SELECT COUNT(*) FROM " + TABLE_SUBSCRIPTIONS + " WHERE subscriber_id = UUID_TO_BIN(?)) AS following, "
+                        + "(SELECT COUNT(*) FROM " + TABLE_MESSAGES + " WHERE producer_id = UUID_TO_BIN(?)) AS messages;";
+        public static final String SET_USER_COUNTERS = "INSERT INTO " + TABLE_USER_COUNTERS
+                        + " (`user_id`, `followers`, `following`, `messages`, `updated`) VALUES(UUID_TO_BIN(?), ?, ?, ?, ?) "
+                        + "ON DUPLICATE KEY UPDATE followers=VALUES(followers), following=VALUES(following), "
+                        + "messages=VALUES(messages), updated=VALUES(updated);";
 }
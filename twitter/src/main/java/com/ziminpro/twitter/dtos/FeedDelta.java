@@ -0,0 +1,14 @@
+package com.ziminpro.twitter.dtos;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Changes to a subscriber feed since a sync cursor. {@code resync} means the
+ * old cursor could not be served and the client must drop its local copy
+ * before applying {@code messages}; {@code hasMore} asks it to call again
+ * right away with {@code cursor}.
+ */
+public record FeedDelta(List<Message> messages, List<UUID> deleted, String cursor, boolean resync,
+                        boolean hasMore) {
+}
@@ -0,0 +1,5 @@
+package com.ziminpro.twitter.dtos;
+
+/** What a subscriber's feed depends on: its subscription version and the followed producers' versions. */
+public record FeedVersion(long subscriberVersion, long producers, long producerVersions) {
+}
@@ -5,8 +5,9 @@ import java.util.HashMap;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class HttpResponseExtractor {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     public static <T> T extractDataFromHttpClientResponse(Object data, Class<T> clazz) {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.convertValue(((HashMap<String, T>) data).get("data"), clazz);
+        return MAPPER.convertValue(((HashMap<String, T>) data).get("data"), clazz);
     }
 }
@@ -0,0 +1,16 @@
+package com.ziminpro.twitter.dtos;
+
+import java.util.UUID;
+
+/** Outcome of creating a message under an idempotency key. */
+public record MessageClaim(UUID messageId, Status status) {
+
+    public enum Status {
+        /** The key was free; the message was stored now. */
+        CREATED,
+        /** An earlier request with the same body already stored {@code messageId}. */
+        EXISTING,
+        /** The key was used before for a different body; nothing was stored. */
+        CONFLICT
+    }
+}
@@ -0,0 +1,20 @@
+package com.ziminpro.twitter.dtos;
+
+import java.util.UUID;
+
+/**
+ * A committed domain change. {@code offset} is the outbox row id: events are
+ * delivered in offset order and a consumer resumes after the last offset it saw.
+ * {@code payload} is the JSON body as stored.
+ */
+public record OutboxEvent(long offset, String type, UUID aggregateId, String payload, long created) {
+    public static final String MESSAGE_CREATED = "MessageCreated";
+    public static final String MESSAGE_DELETED = "MessageDeleted";
+    public static final String SUBSCRIPTION_CREATED = "SubscriptionCreated";
+    public static final String SUBSCRIPTION_REPLACED = "SubscriptionReplaced";
+    public static final String SUBSCRIPTION_DELETED = "SubscriptionDeleted";
+    /** Retention removed rows without a per-row event; the payload maps user ids to what each lost. */
+    public static final String COUNTS_REMOVED = "CountsRemoved";
+    /** A purged user's rows are gone; its counters go with them. */
+    public static final String USER_PURGED = "UserPurged";
+}
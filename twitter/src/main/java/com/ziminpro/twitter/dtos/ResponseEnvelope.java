@@ -0,0 +1,3 @@
+package com.ziminpro.twitter.dtos;
+
+public record ResponseEnvelope<T>(String code, String message, T data) {}
@@ -0,0 +1,35 @@
+package com.ziminpro.twitter.dtos;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes {@link ResponseEnvelope} field by field instead of going through the
+ * reflective record serializer; the {@code data} serializer is resolved from the
+ * provider cache by runtime type.
+ */
+public class ResponseEnvelopeSerializer extends StdSerializer<ResponseEnvelope<?>> {
+
+    @SuppressWarnings("unchecked")
+    public ResponseEnvelopeSerializer() {
+        super((Class<ResponseEnvelope<?>>) (Class<?>) ResponseEnvelope.class);
+    }
+
+    @Override
+    public void serialize(ResponseEnvelope<?> value, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        gen.writeStartObject(value);
+        gen.writeStringField(Constants.CODE, value.code());
+        gen.writeStringField(Constants.MESSAGE, value.message());
+        gen.writeFieldName(Constants.DATA);
+        if (value.data() == null) {
+            gen.writeNull();
+        } else {
+            provider.findValueSerializer(value.data().getClass()).serialize(value.data(), gen, provider);
+        }
+        gen.writeEndObject();
+    }
+}
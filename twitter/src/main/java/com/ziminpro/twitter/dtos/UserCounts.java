@@ -0,0 +1,6 @@
+package com.ziminpro.twitter.dtos;
+
+import java.util.UUID;
+
+public record UserCounts(UUID user, long followers, long following, long messages) {
+}
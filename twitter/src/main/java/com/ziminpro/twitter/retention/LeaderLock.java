@@ -0,0 +1,50 @@
+package com.ziminpro.twitter.retention;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.ziminpro.twitter.dtos.Constants;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cluster-wide mutex on a MySQL named lock. The lock belongs to the session
+ * that took it, so the connection is held for the whole run; if the replica
+ * dies its connection closes and another replica takes over on its next try.
+ */
+@Component
+public class LeaderLock {
+    private final JdbcTemplate jdbcTemplate;
+
+    public LeaderLock(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Runs {@code work} only if no other replica holds {@code name}; returns whether it ran. */
+    public boolean runIfLeader(String name, Runnable work) {
+        Boolean ran = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!call(connection, Constants.GET_LEADER_LOCK, name)) {
+                return false;
+            }
+            try {
+                work.run();
+            } finally {
+                call(connection, Constants.RELEASE_LEADER_LOCK, name);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(ran);
+    }
+
+    private static boolean call(Connection connection, String sql, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+}
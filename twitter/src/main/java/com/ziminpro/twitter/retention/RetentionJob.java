@@ -0,0 +1,138 @@
+package com.ziminpro.twitter.retention;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+import com.ziminpro.twitter.dao.RetentionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Background expiry of messages, outbox events and sync tombstones, plus
+ * removal of everything a deleted UMS user left behind. Deletes go in chunks of
+ * {@code app.retention.chunk-size} rows with a pause in between, so no single
+ * statement holds locks or floods the binlog for long; at most
+ * {@code max-chunks-per-run} chunks per kind are deleted before the run yields
+ * to the next one. Only the replica holding the leader lock purges.
+ */
+@Component
+@EnableConfigurationProperties(RetentionProperties.class)
+public class RetentionJob {
+    private static final String LOCK = "twitter.retention";
+    private static final String MESSAGES = "messages";
+
+    private final RetentionProperties properties;
+    private final RetentionRepository retentionRepository;
+    private final LeaderLock leaderLock;
+    private final long tombstoneTtlSeconds;
+    private final MeterRegistry registry;
+    private final Map<String, Counter> deleted = new ConcurrentHashMap<>();
+    private final AtomicLong lastCompleted = new AtomicLong();
+
+    public RetentionJob(RetentionProperties properties, RetentionRepository retentionRepository,
+                        LeaderLock leaderLock, MeterRegistry registry,
+                        @Value("${app.sync.tombstone-ttl}") Duration tombstoneTtl) {
+        this.properties = properties;
+        this.retentionRepository = retentionRepository;
+        this.leaderLock = leaderLock;
+        this.tombstoneTtlSeconds = tombstoneTtl.toSeconds();
+        this.registry = registry;
+        Gauge.builder("retention.last.completed", lastCompleted, AtomicLong::get)
+                .description("Epoch seconds of the last retention run that caught up with every backlog")
+                .register(registry);
+    }
+
+    /** Queues the user's messages, subscriptions and producer/subscriber rows for removal. */
+    public void userDeleted(UUID userId) {
+        retentionRepository.requestUserPurge(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.retention.interval}")
+    public void run() {
+        if (!properties.enabled()) {
+            return;
+        }
+        String outcome;
+        try {
+            outcome = leaderLock.runIfLeader(LOCK, this::purge) ? "leader" : "follower";
+        } catch (RuntimeException e) {
+            // whatever was deleted stays deleted; the next run picks up from there
+            outcome = "error";
+        }
+        registry.counter("retention.runs", "outcome", outcome).increment();
+    }
+
+    private void purge() {
+        long now = Instant.now().getEpochSecond();
+        int chunkSize = properties.chunkSize();
+        boolean caughtUp = true;
+
+        if (!properties.messageTtl().isZero()) {
+            long createdBefore = now - properties.messageTtl().toSeconds();
+            caughtUp &= drain(MESSAGES, () -> retentionRepository.deleteMessages(
+                    retentionRepository.getExpiredMessageIds(createdBefore, chunkSize)));
+        }
+        long outboxBefore = now - properties.outboxTtl().toSeconds();
+        caughtUp &= drain("outbox", () -> retentionRepository.deleteExpiredOutboxEvents(outboxBefore, chunkSize));
+        long tombstonesBefore = now - tombstoneTtlSeconds;
+        caughtUp &= drain("tombstones",
+                () -> retentionRepository.deleteExpiredTombstones(tombstonesBefore, chunkSize));
+
+        for (UUID userId : retentionRepository.getUserPurges(chunkSize)) {
+            boolean purged = drain(MESSAGES, () -> retentionRepository.deleteMessages(
+                    retentionRepository.getMessageIdsForProducer(userId, chunkSize)))
+                    && drain("subscriptions", () -> retentionRepository.deleteSubscriptionsForUser(userId, chunkSize));
+            if (!purged) {
+                caughtUp = false;
+                break;
+            }
+            retentionRepository.completeUserPurge(userId);
+            counter("users").increment();
+        }
+        if (caughtUp) {
+            lastCompleted.set(now);
+        }
+    }
+
+    // deletes chunk after chunk until one comes back short; false if the chunk budget ran out first
+    private boolean drain(String kind, IntSupplier chunk) {
+        for (int chunks = 0; chunks < properties.maxChunksPerRun(); chunks++) {
+            int rows = chunk.getAsInt();
+            counter(kind).increment(rows);
+            if (rows < properties.chunkSize()) {
+                return true;
+            }
+            if (!pause()) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.chunkPause());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Counter counter(String kind) {
+        return deleted.computeIfAbsent(kind, k -> Counter.builder("retention.deleted")
+                .description("Rows removed by the retention job")
+                .tag("kind", k)
+                .register(registry));
+    }
+}
@@ -0,0 +1,14 @@
+package com.ziminpro.twitter.retention;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.retention")
+public record RetentionProperties(boolean enabled,
+                                  Duration messageTtl,
+                                  Duration outboxTtl,
+                                  int chunkSize,
+                                  Duration chunkPause,
+                                  int maxChunksPerRun) {
+}
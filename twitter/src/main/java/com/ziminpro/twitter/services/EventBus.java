@@ -0,0 +1,171 @@
+package com.ziminpro.twitter.services;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import com.ziminpro.twitter.dao.OutboxRepository;
+import com.ziminpro.twitter.dtos.OutboxEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+/**
+ * In-process bus over the transactional {@code outbox} table. Writers append
+ * events in the same transaction as the change and call {@link #published()};
+ * a scheduled poll covers writes made by other replicas. Readers get events in
+ * offset order. Auto-increment ids become visible in commit order, not id
+ * order, so a reader stops at a gap. Once the gap is older than
+ * {@code app.outbox.gap-timeout} the reader probes it with a locking read:
+ * while a writer still holds an id the reader keeps waiting, however long the
+ * transaction runs, and only ids that are gone for good (rolled back) are
+ * skipped.
+ */
+@Service
+public class EventBus {
+    private final OutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long gapTimeoutNanos;
+    private final Sinks.Many<Long> ticks = Sinks.many().multicast().directBestEffort();
+    private final List<Disposable> consumers = new CopyOnWriteArrayList<>();
+
+    public EventBus(OutboxRepository outboxRepository, TransactionTemplate transactionTemplate,
+                    @Value("${app.outbox.batch-size}") int batchSize,
+                    @Value("${app.outbox.gap-timeout}") Duration gapTimeout) {
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+    }
+
+    /** Wakes readers up after a local write instead of waiting for the next poll. */
+    public void published() {
+        ticks.tryEmitNext(System.nanoTime());
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval}")
+    public void poll() {
+        published();
+    }
+
+    /** Hot stream of events after {@code fromOffset}; ticks arriving mid-drain collapse into one. */
+    public Flux<OutboxEvent> events(long fromOffset) {
+        return Flux.defer(() -> {
+            Cursor cursor = new Cursor(fromOffset);
+            return ticks.asFlux()
+                    .startWith(System.nanoTime())
+                    .onBackpressureLatest()
+                    .publishOn(Schedulers.boundedElastic(), 1)
+                    .concatMap(tick -> drain(cursor), 1);
+        });
+    }
+
+    /**
+     * Hands {@code handler} batches of events after the consumer's stored
+     * offset. Each batch runs in one transaction with the offset update, so a
+     * handler writing through the same data source applies every event exactly
+     * once. The offset row is locked with SKIP LOCKED: one replica consumes at a
+     * time and the others skip the tick. A new consumer starts at the current
+     * end of the outbox; a failed batch rolls back and is retried with backoff.
+     */
+    public Disposable subscribe(String consumer, Consumer<List<OutboxEvent>> handler) {
+        Disposable subscription = Flux.defer(() -> {
+                    outboxRepository.createOffset(consumer);
+                    Cursor cursor = new Cursor(0);
+                    return ticks.asFlux()
+                            .startWith(System.nanoTime())
+                            .onBackpressureLatest()
+                            .publishOn(Schedulers.boundedElastic(), 1)
+                            .concatMap(tick -> Mono.fromRunnable(() -> consume(consumer, cursor, handler)), 1);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofMinutes(1)))
+                .subscribe();
+        consumers.add(subscription);
+        return subscription;
+    }
+
+    @PreDestroy
+    public void close() {
+        consumers.forEach(Disposable::dispose);
+        ticks.tryEmitComplete();
+    }
+
+    private Flux<OutboxEvent> drain(Cursor cursor) {
+        return Flux.defer(() -> {
+            List<OutboxEvent> page = outboxRepository.getEventsAfter(cursor.position, batchSize);
+            List<OutboxEvent> ready = cursor.advance(page, System.nanoTime());
+            Flux<OutboxEvent> events = Flux.fromIterable(ready);
+            return ready.size() == batchSize ? events.concatWith(drain(cursor)) : events;
+        });
+    }
+
+    private void consume(String consumer, Cursor cursor, Consumer<List<OutboxEvent>> handler) {
+        boolean more = true;
+        while (more) {
+            more = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                Long position = outboxRepository.lockOffset(consumer);
+                if (position == null) {
+                    return false;
+                }
+                cursor.moveTo(position);
+                List<OutboxEvent> page = outboxRepository.getEventsAfter(position, batchSize);
+                List<OutboxEvent> ready = cursor.advance(page, System.nanoTime());
+                if (ready.isEmpty()) {
+                    return false;
+                }
+                handler.accept(ready);
+                outboxRepository.saveOffset(consumer, cursor.position);
+                return ready.size() == batchSize;
+            }));
+        }
+    }
+
+    private final class Cursor {
+        private long position;
+        private long gapSeenAt;
+
+        private Cursor(long position) {
+            this.position = position;
+        }
+
+        // the stored offset wins: a rolled back batch or another replica may have moved it
+        private void moveTo(long stored) {
+            if (stored != position) {
+                position = stored;
+                gapSeenAt = 0;
+            }
+        }
+
+        private List<OutboxEvent> advance(List<OutboxEvent> page, long now) {
+            List<OutboxEvent> ready = new ArrayList<>(page.size());
+            for (OutboxEvent event : page) {
+                if (event.offset() != position + 1) {
+                    if (gapSeenAt == 0) {
+                        gapSeenAt = now;
+                    }
+                    if (now - gapSeenAt < gapTimeoutNanos
+                            || !outboxRepository.isGapSettled(position, event.offset())) {
+                        break;
+                    }
+                }
+                gapSeenAt = 0;
+                position = event.offset();
+                ready.add(event);
+            }
+            return ready;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.ziminpro.twitter.services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+import com.ziminpro.twitter.dao.DaoHelper;
+import com.ziminpro.twitter.dao.MessageRepository;
+import com.ziminpro.twitter.dao.SubscriptionRepository;
+import com.ziminpro.twitter.dtos.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Builds one page of a subscriber feed, newest first, without joining the
+ * whole feed in MySQL. Every followed producer gets a cursor over the
+ * {@code (producer_id, created, id)} index that reads {@code app.feed.chunk-size}
+ * rows at a time; first chunks are fetched in parallel, then a heap keyed on
+ * each cursor's head merges them and stops as soon as the page is full.
+ */
+@Service
+public class FeedAssembler {
+    // newest first; ties on the second-resolution timestamp are broken the way MySQL orders the ids
+    private static final Comparator<Message> NEWEST_FIRST = Comparator.comparingLong(Message::getTimestamp)
+            .thenComparing(Message::getId, DaoHelper::compareAsBinary)
+            .reversed();
+
+    private final MessageRepository messageRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final int chunkSize;
+    private final int prefetchConcurrency;
+
+    public FeedAssembler(MessageRepository messageRepository, SubscriptionRepository subscriptionRepository,
+                         @Value("${app.feed.chunk-size}") int chunkSize,
+                         @Value("${app.feed.prefetch-concurrency}") int prefetchConcurrency) {
+        this.messageRepository = messageRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.chunkSize = chunkSize;
+        this.prefetchConcurrency = prefetchConcurrency;
+    }
+
+    /** The {@code limit} newest messages strictly older than ({@code beforeCreated}, {@code beforeId}). */
+    public Mono<List<Message>> page(UUID subscriberId, long beforeCreated, UUID beforeId, int limit) {
+        return Mono.fromCallable(() -> subscriptionRepository.getSubscription(subscriberId).getProducers())
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(Flux::fromIterable)
+                .flatMap(producerId -> Mono.fromCallable(() -> {
+                    ProducerCursor cursor = new ProducerCursor(producerId, beforeCreated, beforeId,
+                            Math.min(chunkSize, limit));
+                    cursor.fill();
+                    return cursor;
+                }).subscribeOn(Schedulers.boundedElastic()), prefetchConcurrency)
+                .filter(cursor -> !cursor.buffer.isEmpty())
+                .collectList()
+                .map(cursors -> merge(cursors, limit));
+    }
+
+    // O(limit log P): each step pops the newest head and re-queues its cursor
+    private List<Message> merge(List<ProducerCursor> cursors, int limit) {
+        PriorityQueue<ProducerCursor> heads = new PriorityQueue<>(Math.max(1, cursors.size()),
+                Comparator.comparing(ProducerCursor::head, NEWEST_FIRST));
+        heads.addAll(cursors);
+        List<Message> page = new ArrayList<>(limit);
+        while (page.size() < limit && !heads.isEmpty()) {
+            ProducerCursor cursor = heads.poll();
+            page.add(cursor.buffer.poll());
+            if (cursor.buffer.isEmpty() && cursor.exhausted) {
+                continue;
+            }
+            if (cursor.buffer.isEmpty()) {
+                cursor.chunk = Math.min(cursor.chunk * 2, limit - page.size());
+                if (cursor.chunk == 0) {
+                    break;
+                }
+                cursor.fill();
+                if (cursor.buffer.isEmpty()) {
+                    continue;
+                }
+            }
+            heads.add(cursor);
+        }
+        return page;
+    }
+
+    private final class ProducerCursor {
+        private final UUID producerId;
+        private final Deque<Message> buffer = new ArrayDeque<>();
+        private long created;
+        private UUID messageId;
+        private int chunk;
+        private boolean exhausted;
+
+        private ProducerCursor(UUID producerId, long created, UUID messageId, int chunk) {
+            this.producerId = producerId;
+            this.created = created;
+            this.messageId = messageId;
+            this.chunk = chunk;
+        }
+
+        private Message head() {
+            return buffer.peek();
+        }
+
+        private void fill() {
+            List<Message> rows = messageRepository.getMessagesForProducerBefore(producerId, created, messageId, chunk);
+            buffer.addAll(rows);
+            exhausted = rows.size() < chunk;
+            if (!rows.isEmpty()) {
+                created = rows.getLast().getTimestamp();
+                messageId = rows.getLast().getId();
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.ziminpro.twitter.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import com.ziminpro.twitter.dao.MessageRepository;
+import com.ziminpro.twitter.dao.SubscriptionRepository;
+import com.ziminpro.twitter.dtos.FeedDelta;
+import com.ziminpro.twitter.dtos.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Incremental subscriber feed sync. The cursor carries the last delivered
+ * (created, id) position, the time deletes were last checked, a hash of the
+ * followed producers and whether the client is paging through a pass.
+ * Timestamps are taken before commit and ids are random, so a message can
+ * become visible behind a position already handed out: every new pass starts
+ * {@code app.sync.overlap} back and re-reads that window, as does the delete
+ * check. Delivery is at-least-once; clients apply messages and deletes by id.
+ * Deletes are served from {@code message_tombstones}, which the retention job
+ * keeps for {@code app.sync.tombstone-ttl}; a cursor older than that, or taken
+ * before the subscription changed, restarts the feed from scratch.
+ */
+@Service
+public class FeedSync {
+    private static final UUID ORIGIN = new UUID(0, 0);
+
+    private final MessageRepository messageRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final int defaultLimit;
+    private final int maxLimit;
+    private final long tombstoneTtlSeconds;
+    private final long overlapSeconds;
+
+    public FeedSync(MessageRepository messageRepository, SubscriptionRepository subscriptionRepository,
+                    @Value("${app.sync.default-limit}") int defaultLimit,
+                    @Value("${app.sync.max-limit}") int maxLimit,
+                    @Value("${app.sync.tombstone-ttl}") Duration tombstoneTtl,
+                    @Value("${app.sync.overlap}") Duration overlap) {
+        this.messageRepository = messageRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+        this.tombstoneTtlSeconds = tombstoneTtl.toSeconds();
+        this.overlapSeconds = overlap.toSeconds();
+    }
+
+    public FeedDelta delta(UUID subscriberId, String cursor, Integer limit) {
+        int pageSize = limit == null || limit <= 0 ? defaultLimit : Math.min(limit, maxLimit);
+        long now = Instant.now().getEpochSecond();
+        String following = following(subscriberId);
+        Cursor position = Cursor.decode(cursor);
+        Cursor origin = new Cursor(0, ORIGIN, now, following, false);
+
+        boolean resync = position == null || position.checked() < now - tombstoneTtlSeconds
+                || !position.following().equals(following);
+        List<UUID> deleted = List.of();
+        if (!resync) {
+            deleted = messageRepository.getDeletedMessagesForSubscriber(subscriberId,
+                    position.checked() - overlapSeconds, pageSize + 1);
+            // more deletes than fit a page: starting over is cheaper for both sides
+            resync = deleted.size() > pageSize;
+        }
+        if (resync) {
+            position = origin;
+            deleted = List.of();
+        }
+
+        // pages within a pass continue exactly where the last one stopped, or a busy window would never end
+        long floor = now - overlapSeconds;
+        Cursor start = position.paging() || position.created() < floor ? position
+                : new Cursor(floor, ORIGIN, position.checked(), following, false);
+        List<Message> messages = messageRepository.getMessagesForSubscriberSince(subscriberId, start.created(),
+                start.messageId(), pageSize + 1);
+        boolean hasMore = messages.size() > pageSize;
+        if (hasMore) {
+            messages = messages.subList(0, pageSize);
+        }
+        Cursor next = messages.isEmpty() ? position
+                : new Cursor(messages.getLast().getTimestamp(), messages.getLast().getId(), position.checked(),
+                        following, hasMore);
+        if (!hasMore) {
+            next = new Cursor(next.created(), next.messageId(), now, following, false);
+        }
+        return new FeedDelta(messages, deleted, next.encode(), resync, hasMore);
+    }
+
+    // UUID hash codes are stable across JVMs, so any replica computes the same value
+    private String following(UUID subscriberId) {
+        List<UUID> producers = subscriptionRepository.getSubscription(subscriberId).getProducers();
+        return Integer.toHexString(producers.stream().sorted().toList().hashCode());
+    }
+
+    private record Cursor(long created, UUID messageId, long checked, String following, boolean paging) {
+        private String encode() {
+            String raw = created + ":" + messageId + ":" + checked + ":" + following + ":" + (paging ? 1 : 0);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static Cursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                        .split(":");
+                // cursors issued before the paging flag existed end a pass
+                if (parts.length != 4 && parts.length != 5) {
+                    return null;
+                }
+                return new Cursor(Long.parseLong(parts[0]), UUID.fromString(parts[1]), Long.parseLong(parts[2]),
+                        parts[3], parts.length == 5 && "1".equals(parts[4]));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
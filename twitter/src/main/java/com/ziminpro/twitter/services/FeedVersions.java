@@ -0,0 +1,31 @@
+package com.ziminpro.twitter.services;
+
+import java.util.UUID;
+
+import com.ziminpro.twitter.dao.FeedVersionRepository;
+import com.ziminpro.twitter.dtos.FeedVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * ETags for producer pages and subscriber feeds. The versions live in MySQL and are
+ * bumped inside the transactions that change what a page shows, so every replica
+ * hands out the same tag and a restart does not reset them. A feed's tag combines
+ * the subscriber's version (subscription changes), the number of followed producers
+ * (purged accounts) and the sum of their versions (posts, deletes, retention).
+ */
+@Component
+public class FeedVersions {
+    @Autowired
+    private FeedVersionRepository feedVersionRepository;
+
+    public String producerTag(UUID producerId) {
+        return "W/\"" + Long.toHexString(feedVersionRepository.getProducerVersion(producerId)) + "\"";
+    }
+
+    public String feedTag(UUID subscriberId) {
+        FeedVersion version = feedVersionRepository.getFeedVersion(subscriberId);
+        return "W/\"" + Long.toHexString(version.subscriberVersion()) + "-" + Long.toHexString(version.producers())
+                + "-" + Long.toHexString(version.producerVersions()) + "\"";
+    }
+}
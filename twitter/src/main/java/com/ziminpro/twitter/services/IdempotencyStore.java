@@ -0,0 +1,119 @@
+package com.ziminpro.twitter.services;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import com.ziminpro.twitter.dao.MessageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded, TTL'd map from idempotency key to the cached outcome of the first
+ * request that used it. Concurrent duplicates subscribe to the same in-flight
+ * {@link Mono}; failed attempts are dropped so the client can retry, and a key
+ * reused for a request with a different fingerprint is refused. Only settled
+ * entries are evicted, so a retry never starts a second attempt while the first
+ * is still running. With {@code app.idempotency.store=mysql} keys are also
+ * claimed in the {@code idempotency_keys} table so retries landing on another
+ * replica are deduplicated as well.
+ */
+@Component
+public class IdempotencyStore {
+    private static final int PURGE_BATCH = 1000;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final MessageRepository messageRepository;
+    private final long ttlMillis;
+    private final int maxKeys;
+    private final boolean durable;
+
+    public IdempotencyStore(MessageRepository messageRepository,
+                            @Value("${app.idempotency.ttl}") Duration ttl,
+                            @Value("${app.idempotency.max-keys}") int maxKeys,
+                            @Value("${app.idempotency.store}") String store) {
+        this.messageRepository = messageRepository;
+        this.ttlMillis = ttl.toMillis();
+        this.maxKeys = maxKeys;
+        this.durable = "mysql".equalsIgnoreCase(store);
+    }
+
+    public boolean isDurable() {
+        return durable;
+    }
+
+    /**
+     * Runs {@code action} at most once per live key and replays its outcome to later
+     * calls with the same {@code fingerprint}; a call with another fingerprint gets
+     * {@code conflict} instead. Outcomes failing {@code keep} are not remembered.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> execute(String key, String fingerprint, Supplier<Mono<T>> action, Predicate<T> keep,
+                               Supplier<Mono<T>> conflict) {
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxKeys) {
+            evict(now);
+        }
+        Entry fresh = new Entry(now + ttlMillis, fingerprint);
+        fresh.result = Mono.defer(action)
+                .doOnNext(value -> {
+                    if (!keep.test(value)) {
+                        entries.remove(key, fresh);
+                    }
+                })
+                .doOnError(ex -> entries.remove(key, fresh))
+                .doOnTerminate(() -> fresh.settled = true)
+                .cache();
+        Entry entry = entries.compute(key,
+                (k, existing) -> existing != null && existing.expiresAt > now ? existing : fresh);
+        if (entry != fresh && !entry.fingerprint.equals(fingerprint)) {
+            return conflict.get();
+        }
+        return (Mono<T>) entry.result;
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval}")
+    public void purge() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(e -> e.getValue().expiresAt <= now);
+        if (durable) {
+            long createdBefore = (now - ttlMillis) / 1000;
+            while (messageRepository.deleteExpiredIdempotencyKeys(createdBefore, PURGE_BATCH) == PURGE_BATCH) {
+                // keep deleting in small batches until the backlog is gone
+            }
+        }
+    }
+
+    // expired entries first, then settled ones; with only in-flight entries left the map may run over max-keys
+    private void evict(long now) {
+        entries.entrySet().removeIf(e -> e.getValue().expiresAt <= now);
+        Iterator<Entry> values = entries.values().iterator();
+        while (entries.size() >= maxKeys && values.hasNext()) {
+            if (values.next().settled) {
+                values.remove();
+            }
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final long expiresAt;
+        private final String fingerprint;
+        private Mono<?> result;
+        private volatile boolean settled;
+
+        private Entry(long expiresAt, String fingerprint) {
+            this.expiresAt = expiresAt;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
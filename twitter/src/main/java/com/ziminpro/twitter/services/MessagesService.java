@@ -1,20 +1,24 @@
 package com.ziminpro.twitter.services;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 import com.ziminpro.twitter.dao.MessageRepository;
 import com.ziminpro.twitter.dtos.Constants;
+import com.ziminpro.twitter.dtos.FeedDelta;
 import com.ziminpro.twitter.dtos.HttpResponseExtractor;
 import com.ziminpro.twitter.dtos.Message;
+import com.ziminpro.twitter.dtos.MessageClaim;
+import com.ziminpro.twitter.dtos.ResponseEnvelope;
 import com.ziminpro.twitter.dtos.Roles;
 import com.ziminpro.twitter.dtos.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
@@ -22,77 +26,116 @@ import reactor.core.publisher.Mono;
 
 @Service
 public class MessagesService {
-    
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     @Autowired
     private MessageRepository messageRepository;
 
     @Autowired
     private UMSConnector umsConnector;
 
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private FeedSync feedSync;
+
+    @Autowired
+    private FeedAssembler feedAssembler;
+
+    @Value("${app.feed.max-limit}")
+    private int maxFeedLimit;
+
     @Value("${ums.paths.user}")
     private String uriUser;
 
-    Map<String, Object> response = new HashMap<>();
+    public Mono<ResponseEntity<ResponseEnvelope<String>>> createMessage(Message message, String authorizationHeader,
+            String subject, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return createMessageOnce(message, authorizationHeader, subject, null, null);
+        }
+        if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return Mono.just(buildResponse("400", "Message has not been created",
+                    Constants.IDEMPOTENCY_KEY + " is too long"));
+        }
+        // keyed by the caller, who cannot be spoofed, rather than by the author named in the body
+        byte[] requestHash = requestHash(message);
+        return idempotencyStore.execute(subject + ":" + idempotencyKey, HexFormat.of().formatHex(requestHash),
+                () -> createMessageOnce(message, authorizationHeader, subject, idempotencyKey, requestHash),
+                response -> "201".equals(response.getBody().code()),
+                () -> Mono.just(keyReused()));
+    }
 
-    public Mono<ResponseEntity<Map<String, Object>>> createMessage(Message message, String authorizationHeader) {
+    private Mono<ResponseEntity<ResponseEnvelope<String>>> createMessageOnce(Message message,
+            String authorizationHeader, String subject, String idempotencyKey, byte[] requestHash) {
         return umsConnector.retrieveUmsData(uriUser + "/" + message.getAuthor().toString(), authorizationHeader)
-            .flatMap(res -> {
-            UUID messageId = null;
+            .map(res -> {
+            MessageClaim claim = null;
             User user = HttpResponseExtractor.extractDataFromHttpClientResponse(res, User.class);
 
             if (user.hasRole(Roles.PRODUCER)) {
-                messageId = messageRepository.createMessage(message);
+                if (idempotencyKey != null && idempotencyStore.isDurable()) {
+                    claim = messageRepository.createMessageOnce(message, subject, idempotencyKey, requestHash);
+                } else {
+                    UUID messageId = messageRepository.createMessage(message);
+                    claim = messageId == null ? null : new MessageClaim(messageId, MessageClaim.Status.CREATED);
+                }
+            }
+            if (claim == null) {
+                return buildResponse("400", "Message has not been created", "Something went wrong");
+            }
+            if (claim.status() == MessageClaim.Status.CONFLICT) {
+                return keyReused();
             }
-            if (messageId == null) {
-                response.put(Constants.CODE, "400");
-                response.put(Constants.MESSAGE, "Message has not been created");
-                response.put(Constants.DATA, "Something went wrong");
-            } else {
-                response.put(Constants.CODE, "201");
-                response.put(Constants.MESSAGE, "Message has been created");
-                response.put(Constants.DATA, messageId.toString());
+            // a retry that found the message stored by the first attempt has nothing left to announce
+            if (claim.status() == MessageClaim.Status.CREATED) {
+                eventBus.published();
             }
-            return Mono.just(ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                    .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
+            return buildResponse("201", "Message has been created", claim.messageId().toString());
         });
     }
 
-    public Mono<ResponseEntity<Map<String, Object>>> getMessagebyId(UUID messageId) {
+    private ResponseEntity<ResponseEnvelope<String>> keyReused() {
+        return buildResponse("422", "Message has not been created",
+                Constants.IDEMPOTENCY_KEY + " has already been used for a different message");
+    }
+
+    private static byte[] requestHash(Message message) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(message.getAuthor()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(message.getContent()).getBytes(StandardCharsets.UTF_8));
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public Mono<ResponseEntity<ResponseEnvelope<Message>>> getMessagebyId(UUID messageId) {
         Message message = messageRepository.getMessagebyId(messageId);
         if (message.getId() == null) {
-            response.put(Constants.CODE, "404");
-            response.put(Constants.MESSAGE, "Message not found");
-            response.put(Constants.DATA, message);
-        } else {
-            response.put(Constants.CODE, "200");
-            response.put(Constants.MESSAGE, "Message has been found");
-            response.put(Constants.DATA, message);
+            return Mono.just(buildResponse("404", "Message not found", message));
         }
-        return Mono.just(ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
-
+        return Mono.just(buildResponse("200", "Message has been found", message));
     }
 
-    public Mono<ResponseEntity<Map<String, Object>>> getMessagesForProducerById(UUID producerId) {
+    public Mono<ResponseEntity<ResponseEnvelope<List<Message>>>> getMessagesForProducerById(UUID producerId) {
         List<Message> messages = messageRepository.getMessagesForProducerById(producerId);
         if (messages.size() == 0) {
-            response.put(Constants.CODE, "404");
-            response.put(Constants.MESSAGE, "Either producer didn't produce any messages or producer not found");
-            response.put(Constants.DATA, new ArrayList<>());
-        } else {
-            response.put(Constants.CODE, "200");
-            response.put(Constants.MESSAGE, "List of messages has been requested successfully");
-            response.put(Constants.DATA, messages);
+            return Mono.just(buildResponse("404", "Either producer didn't produce any messages or producer not found",
+                    List.of()));
         }
-        return Mono.just(ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
-
+        return Mono.just(buildResponse("200", "List of messages has been requested successfully", messages));
     }
 
-    public Mono<ResponseEntity<Map<String, Object>>> getMessagesForSubscriberById(UUID subscriberId,
+    public Mono<ResponseEntity<ResponseEnvelope<List<Message>>>> getMessagesForSubscriberById(UUID subscriberId,
             String authorizationHeader) {
         return umsConnector.retrieveUmsData(uriUser + "/" + subscriberId.toString(), authorizationHeader)
-                .flatMap(res -> {
+                .map(res -> {
             User user = HttpResponseExtractor.extractDataFromHttpClientResponse(res, User.class);
             List<Message> messages = new ArrayList<>();
 
@@ -100,31 +143,57 @@ public class MessagesService {
                 messages = messageRepository.getMessagesForSubscriberById(subscriberId);
             }
             if (messages.size() == 0) {
-                response.put(Constants.CODE, "404");
-                response.put(Constants.MESSAGE, "Subscription not found or empty");
-                response.put(Constants.DATA, new ArrayList<>());
-            } else {
-                response.put(Constants.CODE, "200");
-                response.put(Constants.MESSAGE, "List of messages has been requested successfully");
-                response.put(Constants.DATA, messages);
+                return buildResponse("404", "Subscription not found or empty", List.<Message>of());
+            }
+            return buildResponse("200", "List of messages has been requested successfully", messages);
+        });
+    }
+
+    public Mono<ResponseEntity<ResponseEnvelope<List<Message>>>> getFeedPageForSubscriberById(UUID subscriberId,
+            int limit, Long before, UUID beforeId, String authorizationHeader) {
+        if (limit <= 0) {
+            return Mono.just(buildResponse("400", "Limit must be positive", List.<Message>of()));
+        }
+        return umsConnector.retrieveUmsData(uriUser + "/" + subscriberId.toString(), authorizationHeader)
+                .flatMap(res -> {
+            User user = HttpResponseExtractor.extractDataFromHttpClientResponse(res, User.class);
+
+            if (!user.hasRole(Roles.SUBSCRIBER)) {
+                return Mono.just(List.<Message>of());
+            }
+            // without before-id a page continues strictly below the given second
+            return feedAssembler.page(subscriberId, before == null ? Long.MAX_VALUE : before,
+                    beforeId == null ? new UUID(0, 0) : beforeId, Math.min(limit, maxFeedLimit));
+        }).map(messages -> messages.isEmpty()
+                ? buildResponse("404", "Subscription not found or empty", List.<Message>of())
+                : buildResponse("200", "List of messages has been requested successfully", messages));
+    }
+
+    public Mono<ResponseEntity<ResponseEnvelope<FeedDelta>>> syncMessagesForSubscriberById(UUID subscriberId,
+            String cursor, Integer limit, String authorizationHeader) {
+        return umsConnector.retrieveUmsData(uriUser + "/" + subscriberId.toString(), authorizationHeader)
+                .map(res -> {
+            User user = HttpResponseExtractor.extractDataFromHttpClientResponse(res, User.class);
+
+            if (!user.hasRole(Roles.SUBSCRIBER)) {
+                return buildResponse("404", "Subscription not found", (FeedDelta) null);
             }
-            return Mono.just(ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                    .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
+            return buildResponse("200", "Feed changes have been requested successfully",
+                    feedSync.delta(subscriberId, cursor, limit));
         });
     }
 
-    public Mono<ResponseEntity<Map<String, Object>>> deleteMessageById(UUID messageId) {
+    public Mono<ResponseEntity<ResponseEnvelope<Boolean>>> deleteMessageById(UUID messageId) {
         int result = messageRepository.deleteMessageById(messageId);
         if (result != 1) {
-            response.put(Constants.CODE, "500");
-            response.put(Constants.MESSAGE, "Message " + messageId.toString() + " has not been deleted");
-            response.put(Constants.DATA, false);
-        } else {
-            response.put(Constants.CODE, "200");
-            response.put(Constants.MESSAGE, "Message " + messageId.toString() + " successfully deleted");
-            response.put(Constants.DATA, true);
+            return Mono.just(buildResponse("500", "Message " + messageId.toString() + " has not been deleted", false));
         }
-        return Mono.just(ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
+        eventBus.published();
+        return Mono.just(buildResponse("200", "Message " + messageId.toString() + " successfully deleted", true));
+    }
+
+    private <T> ResponseEntity<ResponseEnvelope<T>> buildResponse(String code, String message, T data) {
+        return ResponseEntity.ok().header(Constants.ACCEPT, Constants.APPLICATION_JSON)
+                .body(new ResponseEnvelope<>(code, message, data));
     }
 }
@@ -1,19 +1,17 @@
 package com.ziminpro.twitter.services;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
 
 import com.ziminpro.twitter.dao.SubscriptionRepository;
 import com.ziminpro.twitter.dtos.Constants;
 import com.ziminpro.twitter.dtos.HttpResponseExtractor;
 import com.ziminpro.twitter.dtos.ProducerSubscribers;
+import com.ziminpro.twitter.dtos.ResponseEnvelope;
 import com.ziminpro.twitter.dtos.Roles;
 import com.ziminpro.twitter.dtos.Subscription;
 import com.ziminpro.twitter.dtos.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
@@ -28,14 +26,15 @@ public class SubscriptionsService {
     @Autowired
     private UMSConnector umsConnector;
 
+    @Autowired
+    private EventBus eventBus;
+
     @Value("${ums.paths.user}")
     private String uriUser;
 
-    Map<String, Object> response = new HashMap<>();
-
-    public Mono<ResponseEntity<Map<String, Object>>> getSubscriptionsForSubscriberById(UUID subscriberId,
+    public Mono<ResponseEntity<ResponseEnvelope<Subscription>>> getSubscriptionsForSubscriberById(UUID subscriberId,
             String authorizationHeader) {
-        return umsConnector.retrieveUmsData(uriUser + "/" + subscriberId.toString(), authorizationHeader).flatMap(res -> {
+        return umsConnector.retrieveUmsData(uriUser + "/" + subscriberId.toString(), authorizationHeader).map(res -> {
             Subscription subscriptions = new Subscription();
             User user = HttpResponseExtractor.extractDataFromHttpClientResponse(res, User.class);
 
@@ -43,23 +42,16 @@ public class SubscriptionsService {
                 subscriptions = subscriptionRepository.getSubscription(subscriberId);
             }
             if (subscriptions.getSubscriber() == null) {
-                response.put(Constants.CODE, "404");
-                response.put(Constants.MESSAGE,
-                        "Subscriptions for user with ID " + subscriberId.toString() + " is not found");
-                response.put(Constants.DATA, subscriptions);
-            } else {
-                response.put(Constants.CODE, "201");
-                response.put(Constants.MESSAGE, "Subscriptions have been retrieved");
-                response.put(Constants.DATA, subscriptions);
+                return buildResponse("404",
+                        "Subscriptions for user with ID " + subscriberId.toString() + " is not found", subscriptions);
             }
-            return Mono.just(ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                    .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
+            return buildResponse("201", "Subscriptions have been retrieved", subscriptions);
         });
     }
 
-    public Mono<ResponseEntity<Map<String, Object>>> getSubscribersForProducerById(UUID producerId,
+    public Mono<ResponseEntity<ResponseEnvelope<ProducerSubscribers>>> getSubscribersForProducerById(UUID producerId,
             String authorizationHeader) {
-        return umsConnector.retrieveUmsData(uriUser + "/" + producerId.toString(), authorizationHeader).flatMap(res -> {
+        return umsConnector.retrieveUmsData(uriUser + "/" + producerId.toString(), authorizationHeader).map(res -> {
             ProducerSubscribers subscribers = new ProducerSubscribers();
             User user = HttpResponseExtractor.extractDataFromHttpClientResponse(res, User.class);
 
@@ -67,89 +59,69 @@ public class SubscriptionsService {
                 subscribers = subscriptionRepository.getSubscribers(producerId);
             }
             if (subscribers.getProducer() == null) {
-                response.put(Constants.CODE, "404");
-                response.put(Constants.MESSAGE,
-                        "Subscribers for producer with ID " + producerId.toString() + " is not found");
-                response.put(Constants.DATA, subscribers);
-            } else {
-                response.put(Constants.CODE, "201");
-                response.put(Constants.MESSAGE, "Subscribers have been retrieved");
-                response.put(Constants.DATA, subscribers);
+                return buildResponse("404",
+                        "Subscribers for producer with ID " + producerId.toString() + " is not found", subscribers);
             }
-            return Mono.just(ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                    .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
+            return buildResponse("201", "Subscribers have been retrieved", subscribers);
         });
     }
 
-    public Mono<ResponseEntity<Map<String, Object>>> createSubscription(Subscription subscription,
+    public Mono<ResponseEntity<ResponseEnvelope<Boolean>>> createSubscription(Subscription subscription,
             String authorizationHeader) {
         return umsConnector.retrieveUmsData(uriUser + "/" + subscription.getSubscriber().toString(),
-                authorizationHeader).flatMap(res -> {
+                authorizationHeader).map(res -> {
             boolean subscriptionId = false;
             User user = HttpResponseExtractor.extractDataFromHttpClientResponse(res, User.class);
 
             if (user.hasRole(Roles.SUBSCRIBER)) {
                 subscriptionId = subscriptionRepository.createSubscription(subscription);
+                eventBus.published();
             }
             if (!subscriptionId) {
-                response.put(Constants.CODE, "500");
-                response.put(Constants.MESSAGE, "Subscriptions has not been created");
-                response.put(Constants.DATA, false);
-            } else {
-                response.put(Constants.CODE, "200");
-                response.put(Constants.MESSAGE, "Subscription has been created");
-                response.put(Constants.DATA, true);
+                return buildResponse("500", "Subscriptions has not been created", false);
             }
-            return Mono.just(ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                    .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
+            return buildResponse("200", "Subscription has been created", true);
         });
     }
 
-    public Mono<ResponseEntity<Map<String, Object>>> updateSubscriptionForSubscriberById(Subscription subscription,
-            String authorizationHeader) {
+    public Mono<ResponseEntity<ResponseEnvelope<Boolean>>> updateSubscriptionForSubscriberById(
+            Subscription subscription, String authorizationHeader) {
         return umsConnector.retrieveUmsData(uriUser + "/" + subscription.getSubscriber().toString(),
-                authorizationHeader).flatMap(res -> {
+                authorizationHeader).map(res -> {
             boolean subscriptionId = false;
             User user = HttpResponseExtractor.extractDataFromHttpClientResponse(res, User.class);
 
             if (user.hasRole(Roles.SUBSCRIBER)) {
                 subscriptionId = subscriptionRepository.updateSubscription(subscription);
+                eventBus.published();
             }
             if (!subscriptionId) {
-                response.put(Constants.CODE, "500");
-                response.put(Constants.MESSAGE, "Subscription has not been updated");
-                response.put(Constants.DATA, false);
-            } else {
-                response.put(Constants.CODE, "201");
-                response.put(Constants.MESSAGE, "Subscription has been updated");
-                response.put(Constants.DATA, true);
+                return buildResponse("500", "Subscription has not been updated", false);
             }
-            return Mono.just(ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                    .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
+            return buildResponse("201", "Subscription has been updated", true);
         });
     }
 
-    public Mono<ResponseEntity<Map<String, Object>>> deleteSubscriptionForSubscriberById(UUID subscriberId,
+    public Mono<ResponseEntity<ResponseEnvelope<Boolean>>> deleteSubscriptionForSubscriberById(UUID subscriberId,
             String authorizationHeader) {
         return umsConnector.retrieveUmsData(uriUser + "/" + subscriberId.toString(), authorizationHeader)
-                .flatMap(res -> {
+                .map(res -> {
             boolean subscriptionId = false;
             User user = HttpResponseExtractor.extractDataFromHttpClientResponse(res, User.class);
 
             if (user.hasRole(Roles.SUBSCRIBER)) {
                 subscriptionId = subscriptionRepository.deleteSubscription(subscriberId);
+                eventBus.published();
             }
             if (!subscriptionId) {
-                response.put(Constants.CODE, "500");
-                response.put(Constants.MESSAGE, "Subscription has not been deleted");
-                response.put(Constants.DATA, false);
-            } else {
-                response.put(Constants.CODE, "201");
-                response.put(Constants.MESSAGE, "Subscription has been deleted");
-                response.put(Constants.DATA, true);
+                return buildResponse("500", "Subscription has not been deleted", false);
             }
-            return Mono.just(ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                    .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
+            return buildResponse("201", "Subscription has been deleted", true);
         });
     }
+
+    private <T> ResponseEntity<ResponseEnvelope<T>> buildResponse(String code, String message, T data) {
+        return ResponseEntity.ok().header(Constants.ACCEPT, Constants.APPLICATION_JSON)
+                .body(new ResponseEnvelope<>(code, message, data));
+    }
 }
@@ -2,6 +2,7 @@ package com.ziminpro.twitter.services;
 
 import java.nio.charset.StandardCharsets;
 
+import com.ziminpro.common.metrics.Instrumentation;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -13,25 +14,29 @@ import reactor.core.publisher.Mono;
 
 @Service
 public class UMSConnector {
-
-    @Value("${ums.host}")
-    private String uriUmsHost;
-
-    @Value("${ums.port}")
-    private String uriUmsPort;
+    private final WebClient client;
+    private final MediaType mediaType;
+    private final Instrumentation instrumentation;
+
+    public UMSConnector(WebClient.Builder webClientBuilder,
+                        Instrumentation instrumentation,
+                        @Value("${ums.host}") String uriUmsHost,
+                        @Value("${ums.port}") String uriUmsPort,
+                        @Value("${ums.media-type}") String mediaType) {
+        this.client = webClientBuilder.clone().baseUrl(uriUmsHost + ":" + uriUmsPort).build();
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.instrumentation = instrumentation;
+    }
 
     public Mono<Object> retrieveUmsData(String uri, String authorizationHeader) {
-        WebClient client = WebClient.builder().baseUrl(uriUmsHost + ":" + uriUmsPort)
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).build();
-
         WebClient.RequestHeadersSpec<?> request = client.method(HttpMethod.GET).uri(uri)
-                .accept(MediaType.APPLICATION_JSON)
+                .accept(mediaType)
                 .acceptCharset(StandardCharsets.UTF_8);
 
         if (authorizationHeader != null && !authorizationHeader.isBlank()) {
             request = request.header(HttpHeaders.AUTHORIZATION, authorizationHeader);
         }
 
-        return request.retrieve().bodyToMono(Object.class);
+        return instrumentation.time("ums.client.calls", "user", request.retrieve().bodyToMono(Object.class));
     }
 }
@@ -0,0 +1,239 @@
+package com.ziminpro.twitter.services;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ziminpro.twitter.dao.CounterRepository;
+import com.ziminpro.twitter.dao.OutboxRepository;
+import com.ziminpro.twitter.dtos.OutboxEvent;
+import com.ziminpro.twitter.dtos.UserCounts;
+import com.ziminpro.twitter.retention.LeaderLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Follower, following and message counts per user. An {@link EventBus}
+ * consumer folds each batch of outbox events into per-user deltas and adds
+ * them to {@code user_counters} in the batch's transaction, so every change
+ * is counted once no matter which replica made it. Stored values are cached
+ * for {@code cache-ttl}, up to {@code max-cached} users in least recently
+ * read order; a replica drops the entries a batch touched once it commits.
+ * Retention deletes arrive as one {@code CountsRemoved} summary per chunk and
+ * a purged user's row goes on {@code UserPurged}. The reconciliation job
+ * recounts from the source tables on one replica at a time, fenced against
+ * the consumer (see {@link #recount}).
+ */
+@Service
+public class UserCounters {
+    static final String CONSUMER = "user-counters";
+    private static final String LOCK = "twitter.counters";
+    private static final UUID ORIGIN = new UUID(0, 0);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final CounterRepository counterRepository;
+    private final OutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EventBus eventBus;
+    private final LeaderLock leaderLock;
+    private final long cacheTtlMillis;
+    private final int reconcileChunk;
+    private final Map<UUID, Cached> stored;
+
+    public UserCounters(CounterRepository counterRepository, OutboxRepository outboxRepository,
+                        TransactionTemplate transactionTemplate, EventBus eventBus, LeaderLock leaderLock,
+                        @Value("${app.counters.cache-ttl}") Duration cacheTtl,
+                        @Value("${app.counters.max-cached}") int maxCached,
+                        @Value("${app.counters.reconcile-chunk}") int reconcileChunk) {
+        this.counterRepository = counterRepository;
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventBus = eventBus;
+        this.leaderLock = leaderLock;
+        this.cacheTtlMillis = cacheTtl.toMillis();
+        this.reconcileChunk = reconcileChunk;
+        this.stored = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Cached> eldest) {
+                return size() > maxCached;
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        eventBus.subscribe(CONSUMER, this::apply);
+    }
+
+    public UserCounts counts(UUID userId) {
+        long now = System.currentTimeMillis();
+        Cached cached = stored.get(userId);
+        if (cached == null || cached.loadedAt + cacheTtlMillis <= now) {
+            cached = new Cached(counterRepository.getCounts(userId), now);
+            stored.put(userId, cached);
+        }
+        return cached.counts;
+    }
+
+    @Scheduled(fixedDelayString = "${app.counters.reconcile-interval}",
+            initialDelayString = "${app.counters.reconcile-interval}")
+    public void reconcile() {
+        leaderLock.runIfLeader(LOCK, () -> {
+            outboxRepository.createOffset(CONSUMER);
+            UUID after = ORIGIN;
+            List<UUID> users;
+            do {
+                users = counterRepository.getCountedUsersAfter(after, reconcileChunk);
+                if (!users.isEmpty()) {
+                    List<UUID> chunk = users;
+                    transactionTemplate.executeWithoutResult(status -> recount(chunk));
+                    after = users.getLast();
+                }
+            } while (users.size() == reconcileChunk);
+        });
+        stored.clear();
+    }
+
+    /**
+     * Overwrites the counters of {@code users} with a recount. Holding the
+     * consumer's offset row keeps batches out until the transaction ends. The
+     * recount, read in one snapshot taken after the lock, already includes the
+     * events after the offset that the consumer has yet to add, so their deltas
+     * are taken back out of it.
+     */
+    void recount(List<UUID> users) {
+        long position = outboxRepository.awaitOffset(CONSUMER);
+        List<UserCounts> counted = counterRepository.countUsers(users);
+        Map<UUID, UserCounts> unapplied = new HashMap<>();
+        List<OutboxEvent> events;
+        do {
+            events = outboxRepository.getEventsAfter(position, reconcileChunk);
+            for (UserCounts delta : deltas(events)) {
+                unapplied.merge(delta.user(), delta, (a, b) -> new UserCounts(a.user(),
+                        a.followers() + b.followers(), a.following() + b.following(), a.messages() + b.messages()));
+            }
+            if (!events.isEmpty()) {
+                position = events.getLast().offset();
+            }
+        } while (events.size() == reconcileChunk);
+
+        List<UserCounts> fenced = new ArrayList<>(counted.size());
+        for (UserCounts count : counted) {
+            UserCounts delta = unapplied.getOrDefault(count.user(), new UserCounts(count.user(), 0, 0, 0));
+            fenced.add(new UserCounts(count.user(), count.followers() - delta.followers(),
+                    count.following() - delta.following(), count.messages() - delta.messages()));
+        }
+        counterRepository.setCounts(fenced);
+    }
+
+    // runs inside the consumer's transaction, which also moves its offset
+    private void apply(List<OutboxEvent> events) {
+        Set<UUID> purged = purged(events);
+        List<UserCounts> batch = deltas(events).stream()
+                .filter(delta -> !purged.contains(delta.user()))
+                .toList();
+        if (batch.isEmpty() && purged.isEmpty()) {
+            return;
+        }
+        if (!batch.isEmpty()) {
+            counterRepository.addCounts(batch);
+        }
+        if (!purged.isEmpty()) {
+            counterRepository.deleteCounts(List.copyOf(purged));
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                batch.forEach(delta -> stored.remove(delta.user()));
+                purged.forEach(stored::remove);
+            }
+        });
+    }
+
+    /** Users whose purge completed within {@code events}. */
+    static Set<UUID> purged(List<OutboxEvent> events) {
+        Set<UUID> purged = new HashSet<>();
+        for (OutboxEvent event : events) {
+            if (OutboxEvent.USER_PURGED.equals(event.type())) {
+                purged.add(event.aggregateId());
+            }
+        }
+        return purged;
+    }
+
+    /** Net change per user over {@code events}; users whose counts did not move are left out. */
+    static List<UserCounts> deltas(List<OutboxEvent> events) {
+        Map<UUID, long[]> deltas = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            JsonNode payload;
+            try {
+                payload = MAPPER.readTree(event.payload());
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Outbox event " + event.offset() + " has a malformed payload", e);
+            }
+            switch (event.type()) {
+                case OutboxEvent.MESSAGE_CREATED -> add(deltas, payload.path("producerId"), 2, 1);
+                case OutboxEvent.MESSAGE_DELETED -> add(deltas, payload.path("producerId"), 2, -1);
+                case OutboxEvent.SUBSCRIPTION_CREATED, OutboxEvent.SUBSCRIPTION_REPLACED,
+                        OutboxEvent.SUBSCRIPTION_DELETED -> {
+                    JsonNode subscriber = payload.path("subscriberId");
+                    for (JsonNode producer : payload.path("added")) {
+                        add(deltas, producer, 0, 1);
+                        add(deltas, subscriber, 1, 1);
+                    }
+                    for (JsonNode producer : payload.path("removed")) {
+                        add(deltas, producer, 0, -1);
+                        add(deltas, subscriber, 1, -1);
+                    }
+                }
+                case OutboxEvent.COUNTS_REMOVED -> {
+                    payload.path("followers").fields().forEachRemaining(
+                            entry -> add(deltas, entry.getKey(), 0, -entry.getValue().asLong()));
+                    payload.path("following").fields().forEachRemaining(
+                            entry -> add(deltas, entry.getKey(), 1, -entry.getValue().asLong()));
+                    payload.path("messages").fields().forEachRemaining(
+                            entry -> add(deltas, entry.getKey(), 2, -entry.getValue().asLong()));
+                }
+                default -> {
+                }
+            }
+        }
+        List<UserCounts> batch = new ArrayList<>(deltas.size());
+        deltas.forEach((userId, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0 || delta[2] != 0) {
+                batch.add(new UserCounts(userId, delta[0], delta[1], delta[2]));
+            }
+        });
+        return batch;
+    }
+
+    // slots are followers, following and messages
+    private static void add(Map<UUID, long[]> deltas, JsonNode userId, int slot, long amount) {
+        if (userId.isTextual()) {
+            add(deltas, userId.asText(), slot, amount);
+        }
+    }
+
+    private static void add(Map<UUID, long[]> deltas, String userId, int slot, long amount) {
+        deltas.computeIfAbsent(UUID.fromString(userId), id -> new long[3])[slot] += amount;
+    }
+
+    private record Cached(UserCounts counts, long loadedAt) {
+    }
+}
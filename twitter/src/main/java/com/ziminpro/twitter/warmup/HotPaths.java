@@ -0,0 +1,112 @@
+package com.ziminpro.twitter.warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.ziminpro.common.warmup.WarmUp;
+import com.ziminpro.common.warmup.WarmUpSteps;
+import com.ziminpro.twitter.dao.SubscriptionRepository;
+import com.ziminpro.twitter.dtos.Message;
+import com.ziminpro.twitter.dtos.ResponseEnvelope;
+import com.ziminpro.twitter.dtos.Roles;
+import com.ziminpro.twitter.services.FeedAssembler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Twitter's warm-up: token introspection through UMS, one feed page and the
+ * envelope codecs. A failing step here is usually UMS not being up yet. The
+ * feed page is a real subscriber's, so the keyset query, the cursor fill and
+ * the merge all see rows; with no messages stored there is nothing to page.
+ */
+@Component
+public class HotPaths implements WarmUpSteps {
+    private static final UUID ORIGIN = new UUID(0, 0);
+    private static final int ENVELOPE_SIZE = 20;
+    private static final ResolvableType ENVELOPE_TYPE = ResolvableType.forClassWithGenerics(ResponseEnvelope.class,
+            ResolvableType.forClassWithGenerics(List.class, Message.class));
+
+    private final ReactiveJwtDecoder jwtDecoder;
+    private final FeedAssembler feedAssembler;
+    private final SubscriptionRepository subscriptionRepository;
+    private final ServerCodecConfigurer codecs;
+    private final String issuer;
+    private final int feedLimit;
+    private volatile UUID subscriber;
+
+    public HotPaths(ReactiveJwtDecoder jwtDecoder, FeedAssembler feedAssembler,
+                    SubscriptionRepository subscriptionRepository, ServerCodecConfigurer codecs,
+                    @Value("${app.jwt.issuer}") String issuer,
+                    @Value("${app.warmup.feed-limit}") int feedLimit) {
+        this.jwtDecoder = jwtDecoder;
+        this.feedAssembler = feedAssembler;
+        this.subscriptionRepository = subscriptionRepository;
+        this.codecs = codecs;
+        this.issuer = issuer;
+        this.feedLimit = feedLimit;
+    }
+
+    @Override
+    public Map<String, Callable<?>> steps(long deadline) throws JOSEException {
+        String token = syntheticToken();
+        Map<String, Callable<?>> steps = new LinkedHashMap<>();
+        // UMS answers inactive for the synthetic subject; transport failures arrive wrapped, with a cause
+        steps.put("jwt.decode", () -> jwtDecoder.decode(token)
+                .onErrorResume(ex -> ex instanceof BadJwtException && ex.getCause() == null, ex -> Mono.empty())
+                .block(WarmUp.remaining(deadline)));
+        // looked up inside the step: steps() runs once, and a database that is not up yet must not fail startup
+        steps.put("feed.page", () -> {
+            if (subscriber == null) {
+                subscriber = subscriptionRepository.getSubscriberWithMessages();
+            }
+            return subscriber == null ? null : feedAssembler.page(subscriber, Long.MAX_VALUE, ORIGIN, feedLimit)
+                    .block(WarmUp.remaining(deadline));
+        });
+        steps.putAll(WarmUp.encoderSteps(codecs, syntheticEnvelope(), ENVELOPE_TYPE));
+        return steps;
+    }
+
+    private String syntheticToken() throws JOSEException {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(issuer)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(Duration.ofHours(1))))
+                .subject(UUID.randomUUID().toString())
+                .claim("roles", List.of(Roles.SUBSCRIBER, Roles.PRODUCER))
+                .build();
+        SignedJWT signed = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        signed.sign(new MACSigner(UUID.randomUUID().toString().repeat(2).getBytes(StandardCharsets.UTF_8)));
+        return signed.serialize();
+    }
+
+    private ResponseEnvelope<List<Message>> syntheticEnvelope() {
+        UUID author = UUID.randomUUID();
+        long now = Instant.now().getEpochSecond();
+        List<Message> messages = new ArrayList<>(ENVELOPE_SIZE);
+        for (int i = 0; i < ENVELOPE_SIZE; i++) {
+            messages.add(new Message(UUID.randomUUID(), author, "warm-up message " + i, now - i));
+        }
+        return new ResponseEnvelope<>("200", "List of messages has been requested successfully", messages);
+    }
+}
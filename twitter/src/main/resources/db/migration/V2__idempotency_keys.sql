@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS `idempotency_keys` (
+  `producer_id` binary(16) NOT NULL,
+  `idempotency_key` varchar(255) NOT NULL,
+  `message_id` binary(16) NOT NULL,
+  `created` int NOT NULL,
+  PRIMARY KEY (`producer_id`,`idempotency_key`),
+  KEY `idx_idempotency_keys_created` (`created`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
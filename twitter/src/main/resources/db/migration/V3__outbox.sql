@@ -0,0 +1,16 @@
+CREATE TABLE IF NOT EXISTS `outbox` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `event_type` varchar(64) NOT NULL,
+  `aggregate_id` binary(16) NOT NULL,
+  `payload` json NOT NULL,
+  `created` int NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_outbox_created` (`created`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+CREATE TABLE IF NOT EXISTS `outbox_offsets` (
+  `consumer` varchar(64) NOT NULL,
+  `position` bigint NOT NULL,
+  `updated` int NOT NULL,
+  PRIMARY KEY (`consumer`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,10 @@
+ALTER TABLE `messages` ADD KEY `idx_messages_producer_created` (`producer_id`, `created`, `id`);
+
+CREATE TABLE IF NOT EXISTS `message_tombstones` (
+  `message_id` binary(16) NOT NULL,
+  `producer_id` binary(16) NOT NULL,
+  `deleted` int NOT NULL,
+  PRIMARY KEY (`message_id`),
+  KEY `idx_message_tombstones_producer_deleted` (`producer_id`, `deleted`),
+  KEY `idx_message_tombstones_deleted` (`deleted`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,7 @@
+ALTER TABLE `messages` ADD KEY `idx_messages_created` (`created`);
+
+CREATE TABLE IF NOT EXISTS `user_purges` (
+  `user_id` binary(16) NOT NULL,
+  `requested` int NOT NULL,
+  PRIMARY KEY (`user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS `user_counters` (
+  `user_id` binary(16) NOT NULL,
+  `followers` bigint NOT NULL DEFAULT 0,
+  `following` bigint NOT NULL DEFAULT 0,
+  `messages` bigint NOT NULL DEFAULT 0,
+  `updated` int NOT NULL,
+  PRIMARY KEY (`user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
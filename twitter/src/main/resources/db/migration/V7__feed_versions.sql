@@ -0,0 +1,3 @@
+-- bumped in the same transaction as every write that changes a producer page or a subscriber feed
+ALTER TABLE `producers` ADD COLUMN `version` bigint NOT NULL DEFAULT 0;
+ALTER TABLE `subscribers` ADD COLUMN `version` bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,11 @@
+-- keys belong to the caller (JWT subject) rather than the author named in the body,
+-- and remember a hash of the first request so a reused key with another body is refused
+ALTER TABLE `idempotency_keys`
+  ADD COLUMN `subject` varchar(255) NULL FIRST,
+  ADD COLUMN `request_hash` binary(32) NULL AFTER `message_id`;
+UPDATE `idempotency_keys` SET `subject` = BIN_TO_UUID(`producer_id`);
+ALTER TABLE `idempotency_keys`
+  MODIFY `subject` varchar(255) NOT NULL,
+  DROP PRIMARY KEY,
+  DROP COLUMN `producer_id`,
+  ADD PRIMARY KEY (`subject`, `idempotency_key`);
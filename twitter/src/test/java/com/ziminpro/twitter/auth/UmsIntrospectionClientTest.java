@@ -0,0 +1,106 @@
+package com.ziminpro.twitter.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ziminpro.common.metrics.Instrumentation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+class UmsIntrospectionClientTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+    private DisposableServer server;
+    private UmsIntrospectionClient client;
+
+    // a UMS stub answering each batch in request order, naming every result after its token
+    private UmsIntrospectionClient client(UnaryOperator<List<IntrospectResponse>> tamper) {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.post("/auth/introspect/batch", (request, response) -> request.receive()
+                        .aggregate()
+                        .asString()
+                        .flatMap(body -> {
+                            try {
+                                List<String> tokens = MAPPER.readValue(body, IntrospectBatchRequest.class).tokens();
+                                calls.add(tokens);
+                                List<IntrospectResponse> results = tokens.stream()
+                                        .map(token -> new IntrospectResponse(true, token, List.of()))
+                                        .toList();
+                                return Mono.just(MAPPER.writeValueAsString(
+                                        new IntrospectBatchResponse(tamper.apply(results))));
+                            } catch (Exception e) {
+                                return Mono.error(e);
+                            }
+                        })
+                        .flatMap(json -> response.header("Content-Type", "application/json")
+                                .sendString(Mono.just(json))
+                                .then())))
+                .bindNow();
+        client = new UmsIntrospectionClient(WebClient.builder(),
+                new Instrumentation(new SimpleMeterRegistry(),
+                        new DefaultListableBeanFactory().getBeanProvider(Tracer.class)),
+                new SimpleMeterRegistry(), "http://localhost", Integer.toString(server.port()),
+                "/auth/introspect", "/auth/introspect/batch", "application/json", true, Duration.ofMillis(20), 16);
+        return client;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    void concurrentCallersEachGetTheResultForTheirOwnToken() {
+        UmsIntrospectionClient client = client(UnaryOperator.identity());
+
+        List<Boolean> matched = Flux.range(0, 400)
+                .flatMap(i -> {
+                    String token = "token-" + (i % 50);
+                    return client.introspect(token)
+                            .map(result -> result.sub().equals(token))
+                            .subscribeOn(Schedulers.parallel());
+                }, 400)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(matched).hasSize(400).containsOnly(true);
+        assertThat(calls).allSatisfy(tokens -> assertThat(tokens).hasSizeLessThanOrEqualTo(16).doesNotHaveDuplicates());
+        assertThat(calls.size()).isLessThan(400);
+    }
+
+    @Test
+    void aResponseThatDoesNotMatchTheRequestFailsEveryCaller() {
+        UmsIntrospectionClient client = client(results -> results.subList(0, results.size() - 1));
+
+        List<String> outcomes = Flux.range(0, 4)
+                .flatMap(i -> client.introspect("token-" + i)
+                        .map(result -> "ok")
+                        .onErrorResume(ex -> Mono.just(ex.getMessage())))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(outcomes).hasSize(4).containsOnly("Batch response does not match the request");
+    }
+}
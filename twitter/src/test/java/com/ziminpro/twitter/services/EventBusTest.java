@@ -0,0 +1,173 @@
+package com.ziminpro.twitter.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import com.ziminpro.twitter.dao.OutboxRepository;
+import com.ziminpro.twitter.dtos.OutboxEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import reactor.core.Disposable;
+
+class EventBusTest {
+
+    private static EventBus bus(FakeOutbox outbox, Duration gapTimeout) {
+        return new EventBus(outbox, new TransactionTemplate(new NoTransactions()), 10, gapTimeout);
+    }
+
+    @Test
+    void waitsOnAGapWhileAWriterStillHoldsIt() throws InterruptedException {
+        FakeOutbox outbox = new FakeOutbox(1, 2, 4);
+        outbox.held = true;
+        EventBus bus = bus(outbox, Duration.ZERO);
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        Disposable reader = bus.events(0).subscribe(event -> seen.add(event.offset()));
+
+        await(() -> outbox.probes.get() >= 2, bus);
+        assertThat(seen).containsExactly(1L, 2L);
+
+        // the long transaction finally commits id 3
+        outbox.commit(3);
+        outbox.held = false;
+        await(() -> seen.size() == 4, bus);
+        assertThat(seen).containsExactly(1L, 2L, 3L, 4L);
+        reader.dispose();
+        bus.close();
+    }
+
+    @Test
+    void skipsOnlyIdsThatAreGoneForGood() {
+        FakeOutbox outbox = new FakeOutbox(1, 2, 4, 5);
+        EventBus bus = bus(outbox, Duration.ZERO);
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        Disposable reader = bus.events(0).subscribe(event -> seen.add(event.offset()));
+
+        await(() -> seen.size() == 4, bus);
+        assertThat(seen).containsExactly(1L, 2L, 4L, 5L);
+        reader.dispose();
+        bus.close();
+    }
+
+    @Test
+    void probesNothingBeforeTheGapTimeout() throws InterruptedException {
+        FakeOutbox outbox = new FakeOutbox(1, 2, 4);
+        EventBus bus = bus(outbox, Duration.ofHours(1));
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        Disposable reader = bus.events(0).subscribe(event -> seen.add(event.offset()));
+
+        await(() -> seen.size() == 2, bus);
+        bus.published();
+        Thread.sleep(50);
+        assertThat(seen).containsExactly(1L, 2L);
+        assertThat(outbox.probes).hasValue(0);
+        reader.dispose();
+        bus.close();
+    }
+
+    @Test
+    void subscriberStartsAtTheEndAndCommitsItsOffsetWithEachBatch() {
+        FakeOutbox outbox = new FakeOutbox(1);
+        EventBus bus = bus(outbox, Duration.ZERO);
+        List<List<Long>> batches = new CopyOnWriteArrayList<>();
+        AtomicInteger attempts = new AtomicInteger();
+        bus.subscribe("test", events -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("first attempt fails");
+            }
+            batches.add(events.stream().map(OutboxEvent::offset).toList());
+        });
+        await(() -> outbox.offsets.containsKey("test"), bus);
+
+        outbox.commit(2);
+        outbox.commit(3);
+        await(() -> outbox.offsets.get("test") == 3, bus);
+
+        // the failed batch rolled back without moving the offset and was handed over again
+        assertThat(attempts.get()).isGreaterThanOrEqualTo(2);
+        assertThat(batches.stream().flatMap(List::stream).toList()).containsExactly(2L, 3L);
+        bus.close();
+    }
+
+    private static void await(BooleanSupplier condition, EventBus bus) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition met in time").isLessThan(deadline);
+            bus.published();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static final class FakeOutbox implements OutboxRepository {
+        private final List<OutboxEvent> committed = new CopyOnWriteArrayList<>();
+        private final Map<String, Long> offsets = new ConcurrentHashMap<>();
+        private final AtomicInteger probes = new AtomicInteger();
+        private volatile boolean held;
+
+        private FakeOutbox(long... ids) {
+            for (long id : ids) {
+                commit(id);
+            }
+        }
+
+        private void commit(long id) {
+            committed.add(new OutboxEvent(id, OutboxEvent.MESSAGE_CREATED, UUID.randomUUID(), "{}", 0));
+            committed.sort(Comparator.comparingLong(OutboxEvent::offset));
+        }
+
+        @Override
+        public void append(String type, UUID aggregateId, Map<String, Object> payload) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<OutboxEvent> getEventsAfter(long offset, int limit) {
+            return committed.stream().filter(event -> event.offset() > offset).limit(limit).toList();
+        }
+
+        @Override
+        public long getOffset(String consumer) {
+            return offsets.getOrDefault(consumer, 0L);
+        }
+
+        @Override
+        public void saveOffset(String consumer, long offset) {
+            offsets.merge(consumer, offset, Math::max);
+        }
+
+        @Override
+        public void createOffset(String consumer) {
+            offsets.putIfAbsent(consumer, committed.isEmpty() ? 0 : committed.getLast().offset());
+        }
+
+        @Override
+        public Long lockOffset(String consumer) {
+            return offsets.get(consumer);
+        }
+
+        @Override
+        public long awaitOffset(String consumer) {
+            return offsets.get(consumer);
+        }
+
+        @Override
+        public boolean isGapSettled(long after, long before) {
+            probes.incrementAndGet();
+            return !held && committed.stream().noneMatch(event -> event.offset() > after && event.offset() < before);
+        }
+    }
+}
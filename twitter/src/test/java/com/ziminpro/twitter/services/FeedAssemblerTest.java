@@ -0,0 +1,114 @@
+package com.ziminpro.twitter.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ziminpro.twitter.dao.DaoHelper;
+import com.ziminpro.twitter.dao.MessageRepository;
+import com.ziminpro.twitter.dao.SubscriptionRepository;
+import com.ziminpro.twitter.dtos.Message;
+import com.ziminpro.twitter.dtos.Subscription;
+import org.junit.jupiter.api.Test;
+
+class FeedAssemblerTest {
+    private static final Comparator<Message> NEWEST_FIRST = Comparator.comparingLong(Message::getTimestamp)
+            .thenComparing(Message::getId, DaoHelper::compareAsBinary)
+            .reversed();
+    private static final UUID SUBSCRIBER = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+
+    private final List<Message> stored = new ArrayList<>();
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private FeedAssembler assembler(List<UUID> producers, int chunkSize) {
+        MessageRepository messages = mock(MessageRepository.class);
+        when(messages.getMessagesForProducerBefore(any(), anyLong(), any(), anyInt())).thenAnswer(call -> {
+            reads.incrementAndGet();
+            UUID producerId = call.getArgument(0);
+            Message before = new Message(call.getArgument(2), producerId, null, call.getArgument(1));
+            return stored.stream()
+                    .filter(message -> message.getAuthor().equals(producerId))
+                    .filter(message -> NEWEST_FIRST.compare(message, before) > 0)
+                    .sorted(NEWEST_FIRST)
+                    .limit(call.<Integer>getArgument(3))
+                    .toList();
+        });
+        SubscriptionRepository subscriptions = mock(SubscriptionRepository.class);
+        when(subscriptions.getSubscription(SUBSCRIBER)).thenReturn(new Subscription(SUBSCRIBER, producers));
+        return new FeedAssembler(messages, subscriptions, chunkSize, 4);
+    }
+
+    private List<UUID> producers(int count) {
+        List<UUID> producers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            producers.add(UUID.randomUUID());
+        }
+        return producers;
+    }
+
+    @Test
+    void mergesProducersIntoTheGlobalNewestFirstOrder() {
+        List<UUID> producers = producers(5);
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            // few distinct seconds, so ties are broken by id across producers
+            stored.add(new Message(UUID.randomUUID(), producers.get(random.nextInt(producers.size())), "m",
+                    1_000 + random.nextInt(20)));
+        }
+        FeedAssembler assembler = assembler(producers, 3);
+
+        List<Message> page = assembler.page(SUBSCRIBER, Long.MAX_VALUE, new UUID(0, 0), 50).block();
+
+        assertThat(page).containsExactlyElementsOf(stored.stream().sorted(NEWEST_FIRST).limit(50).toList());
+    }
+
+    @Test
+    void continuesStrictlyBeforeTheGivenPosition() {
+        List<UUID> producers = producers(3);
+        for (int i = 0; i < 30; i++) {
+            stored.add(new Message(UUID.randomUUID(), producers.get(i % 3), "m", 1_000 + i / 4));
+        }
+        FeedAssembler assembler = assembler(producers, 4);
+        List<Message> all = stored.stream().sorted(NEWEST_FIRST).toList();
+
+        List<Message> first = assembler.page(SUBSCRIBER, Long.MAX_VALUE, new UUID(0, 0), 10).block();
+        Message last = first.getLast();
+        List<Message> second = assembler.page(SUBSCRIBER, last.getTimestamp(), last.getId(), 10).block();
+
+        assertThat(first).containsExactlyElementsOf(all.subList(0, 10));
+        assertThat(second).containsExactlyElementsOf(all.subList(10, 20));
+    }
+
+    @Test
+    void readsOnlyWhatThePageNeedsFromAProducerThatDominatesIt() {
+        List<UUID> producers = producers(2);
+        for (int i = 0; i < 100; i++) {
+            stored.add(new Message(UUID.randomUUID(), producers.getFirst(), "m", 2_000 + i));
+        }
+        stored.add(new Message(UUID.randomUUID(), producers.getLast(), "m", 1_000));
+        FeedAssembler assembler = assembler(producers, 2);
+
+        List<Message> page = assembler.page(SUBSCRIBER, Long.MAX_VALUE, new UUID(0, 0), 20).block();
+
+        assertThat(page).containsExactlyElementsOf(stored.stream().sorted(NEWEST_FIRST).limit(20).toList());
+        // first chunks of 2 for both, then doubling chunks 4, 8, 6 for the busy one
+        assertThat(reads).hasValue(5);
+    }
+
+    @Test
+    void emptyWhenFollowingNobody() {
+        FeedAssembler assembler = assembler(List.of(), 10);
+
+        assertThat(assembler.page(SUBSCRIBER, Long.MAX_VALUE, new UUID(0, 0), 10).block()).isEmpty();
+    }
+}
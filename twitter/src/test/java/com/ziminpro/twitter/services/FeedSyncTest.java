@@ -0,0 +1,121 @@
+package com.ziminpro.twitter.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.ziminpro.twitter.dao.DaoHelper;
+import com.ziminpro.twitter.dao.MessageRepository;
+import com.ziminpro.twitter.dao.SubscriptionRepository;
+import com.ziminpro.twitter.dtos.FeedDelta;
+import com.ziminpro.twitter.dtos.Message;
+import com.ziminpro.twitter.dtos.Subscription;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FeedSyncTest {
+    private static final Comparator<Message> OLDEST_FIRST = Comparator.comparingLong(Message::getTimestamp)
+            .thenComparing(Message::getId, DaoHelper::compareAsBinary);
+    private static final UUID SUBSCRIBER = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID PRODUCER = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+    private final List<Message> stored = new CopyOnWriteArrayList<>();
+    private FeedSync feedSync;
+
+    @BeforeEach
+    void setUp() {
+        MessageRepository messages = mock(MessageRepository.class);
+        when(messages.getMessagesForSubscriberSince(any(), anyLong(), any(), anyInt())).thenAnswer(call -> {
+            Message after = new Message(call.getArgument(2), PRODUCER, null, call.getArgument(1));
+            return stored.stream()
+                    .filter(message -> OLDEST_FIRST.compare(message, after) > 0)
+                    .sorted(OLDEST_FIRST)
+                    .limit(call.<Integer>getArgument(3))
+                    .toList();
+        });
+        when(messages.getDeletedMessagesForSubscriber(any(), anyLong(), anyInt())).thenReturn(List.of());
+        SubscriptionRepository subscriptions = mock(SubscriptionRepository.class);
+        when(subscriptions.getSubscription(SUBSCRIBER)).thenReturn(new Subscription(SUBSCRIBER, List.of(PRODUCER)));
+        feedSync = new FeedSync(messages, subscriptions, 100, 500, Duration.ofDays(30), Duration.ofSeconds(10));
+    }
+
+    private Message store(long created, String id) {
+        Message message = new Message(UUID.fromString(id), PRODUCER, "m", created);
+        stored.add(message);
+        return message;
+    }
+
+    @Test
+    void deliversAMessageThatCommittedBehindTheCursor() {
+        long now = Instant.now().getEpochSecond();
+        store(now - 3, "ffffffff-0000-0000-0000-000000000000");
+        FeedDelta first = feedSync.delta(SUBSCRIBER, null, null);
+        assertThat(first.messages()).hasSize(1);
+
+        // same second, lower id: it sorts before the position the first sync handed out
+        Message late = store(now - 3, "00000000-0000-0000-0000-000000000001");
+        FeedDelta second = feedSync.delta(SUBSCRIBER, first.cursor(), null);
+
+        assertThat(second.resync()).isFalse();
+        assertThat(second.messages()).contains(late);
+    }
+
+    @Test
+    void leavesMessagesOlderThanTheOverlapBehind() {
+        long now = Instant.now().getEpochSecond();
+        store(now - 60, "00000000-0000-0000-0000-000000000002");
+        FeedDelta first = feedSync.delta(SUBSCRIBER, null, null);
+
+        FeedDelta second = feedSync.delta(SUBSCRIBER, first.cursor(), null);
+
+        assertThat(second.messages()).isEmpty();
+        assertThat(second.hasMore()).isFalse();
+    }
+
+    @Test
+    void pagesWithinAPassContinueWithoutRestartingTheWindow() {
+        long now = Instant.now().getEpochSecond();
+        for (int i = 1; i <= 5; i++) {
+            store(now - 2, "00000000-0000-0000-0000-00000000000" + i);
+        }
+        List<Message> delivered = new ArrayList<>();
+        String cursor = null;
+        int calls = 0;
+        FeedDelta page;
+        do {
+            page = feedSync.delta(SUBSCRIBER, cursor, 2);
+            delivered.addAll(page.messages());
+            cursor = page.cursor();
+            calls++;
+        } while (page.hasMore() && calls < 10);
+
+        assertThat(calls).isEqualTo(3);
+        assertThat(delivered).doesNotHaveDuplicates().containsExactlyElementsOf(stored);
+
+        // the next pass re-reads the overlap window, which clients apply by id
+        assertThat(feedSync.delta(SUBSCRIBER, cursor, 2).messages()).containsExactlyElementsOf(stored.subList(0, 2));
+    }
+
+    @Test
+    void acceptsCursorsIssuedBeforeThePagingFlag() {
+        long now = Instant.now().getEpochSecond();
+        String following = Integer.toHexString(List.of(PRODUCER).hashCode());
+        String legacy = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                ((now - 60) + ":" + new UUID(0, 0) + ":" + now + ":" + following).getBytes(StandardCharsets.UTF_8));
+
+        assertThat(feedSync.delta(SUBSCRIBER, legacy, null).resync()).isFalse();
+    }
+}
@@ -0,0 +1,123 @@
+package com.ziminpro.twitter.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class IdempotencyStoreTest {
+
+    private static IdempotencyStore store(Duration ttl, int maxKeys) {
+        return new IdempotencyStore(null, ttl, maxKeys, "memory");
+    }
+
+    @Test
+    void replaysTheFirstOutcomeForTheSameFingerprint() {
+        IdempotencyStore store = store(Duration.ofHours(1), 100);
+        AtomicInteger calls = new AtomicInteger();
+
+        String first = store.execute("alice:k1", "h1", () -> Mono.just("created-" + calls.incrementAndGet()),
+                value -> true, () -> Mono.just("conflict")).block();
+        String second = store.execute("alice:k1", "h1", () -> Mono.just("created-" + calls.incrementAndGet()),
+                value -> true, () -> Mono.just("conflict")).block();
+
+        assertThat(first).isEqualTo("created-1");
+        assertThat(second).isEqualTo("created-1");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void concurrentDuplicatesShareTheInFlightAttempt() {
+        IdempotencyStore store = store(Duration.ofHours(1), 100);
+        Sinks.One<String> pending = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+
+        Mono<String> first = store.execute("alice:k1", "h1", () -> {
+            calls.incrementAndGet();
+            return pending.asMono();
+        }, value -> true, () -> Mono.just("conflict"));
+        Mono<String> second = store.execute("alice:k1", "h1", () -> {
+            calls.incrementAndGet();
+            return Mono.just("second");
+        }, value -> true, () -> Mono.just("conflict"));
+
+        first.subscribe();
+        pending.tryEmitValue("first");
+        assertThat(second.block()).isEqualTo("first");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void refusesAReusedKeyWithAnotherFingerprint() {
+        IdempotencyStore store = store(Duration.ofHours(1), 100);
+        store.execute("alice:k1", "h1", () -> Mono.just("created"), value -> true,
+                () -> Mono.just("conflict")).block();
+
+        assertThat(store.execute("alice:k1", "h2", () -> Mono.just("created again"), value -> true,
+                () -> Mono.just("conflict")).block()).isEqualTo("conflict");
+        // the same key under another subject is a different key
+        assertThat(store.execute("bob:k1", "h2", () -> Mono.just("bob's"), value -> true,
+                () -> Mono.just("conflict")).block()).isEqualTo("bob's");
+    }
+
+    @Test
+    void forgetsFailedAndUnkeptAttempts() {
+        IdempotencyStore store = store(Duration.ofHours(1), 100);
+        AtomicInteger calls = new AtomicInteger();
+
+        store.execute("alice:k1", "h1", () -> Mono.<String>error(new IllegalStateException("ums down")),
+                value -> true, () -> Mono.just("conflict")).onErrorResume(ex -> Mono.empty()).block();
+        store.execute("alice:k2", "h1", () -> Mono.just("400"), "201"::equals,
+                () -> Mono.just("conflict")).block();
+        assertThat(store.size()).isZero();
+
+        assertThat(store.execute("alice:k1", "h1", () -> Mono.just("201-" + calls.incrementAndGet()),
+                value -> true, () -> Mono.just("conflict")).block()).isEqualTo("201-1");
+    }
+
+    @Test
+    void runsAgainOnceTheKeyHasExpired() throws InterruptedException {
+        IdempotencyStore store = store(Duration.ofMillis(20), 100);
+        AtomicInteger calls = new AtomicInteger();
+
+        store.execute("alice:k1", "h1", () -> Mono.just(calls.incrementAndGet()), value -> true,
+                () -> Mono.just(-1)).block();
+        Thread.sleep(40);
+        Integer again = store.execute("alice:k1", "h1", () -> Mono.just(calls.incrementAndGet()), value -> true,
+                () -> Mono.just(-1)).block();
+
+        assertThat(again).isEqualTo(2);
+        store.purge();
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void evictionSparesInFlightEntries() {
+        IdempotencyStore store = store(Duration.ofHours(1), 2);
+        Sinks.One<String> pending = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+        store.execute("alice:slow", "h1", () -> {
+            calls.incrementAndGet();
+            return pending.asMono();
+        }, value -> true, () -> Mono.just("conflict")).subscribe();
+
+        for (int i = 0; i < 10; i++) {
+            String key = "alice:k" + i;
+            store.execute(key, "h1", () -> Mono.just(key), value -> true, () -> Mono.just("conflict")).block();
+        }
+
+        Mono<String> retry = store.execute("alice:slow", "h1", () -> {
+            calls.incrementAndGet();
+            return Mono.just("second attempt");
+        }, value -> true, () -> Mono.just("conflict"));
+        pending.tryEmitValue("first attempt");
+        assertThat(retry.block()).isEqualTo("first attempt");
+        assertThat(calls).hasValue(1);
+        assertThat(store.size()).isLessThanOrEqualTo(2);
+    }
+}
@@ -0,0 +1,135 @@
+package com.ziminpro.twitter.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import com.ziminpro.twitter.dao.CounterRepository;
+import com.ziminpro.twitter.dao.OutboxRepository;
+import com.ziminpro.twitter.dtos.OutboxEvent;
+import com.ziminpro.twitter.dtos.UserCounts;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class UserCountersTest {
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+    private static final UUID CAROL = UUID.fromString("00000000-0000-0000-0000-00000000000c");
+
+    private static OutboxEvent event(long offset, String type, String payload) {
+        return new OutboxEvent(offset, type, ALICE, payload, 0);
+    }
+
+    @Test
+    void foldsABatchIntoOneDeltaPerUser() {
+        List<UserCounts> deltas = UserCounters.deltas(List.of(
+                event(1, OutboxEvent.MESSAGE_CREATED, "{\"messageId\":\"" + UUID.randomUUID()
+                        + "\",\"producerId\":\"" + BOB + "\",\"created\":1}"),
+                event(2, OutboxEvent.MESSAGE_CREATED, "{\"producerId\":\"" + BOB + "\"}"),
+                event(3, OutboxEvent.SUBSCRIPTION_CREATED, "{\"subscriberId\":\"" + ALICE
+                        + "\",\"producerIds\":[\"" + BOB + "\",\"" + CAROL + "\"],\"added\":[\"" + BOB + "\",\""
+                        + CAROL + "\"],\"removed\":[]}"),
+                event(4, OutboxEvent.SUBSCRIPTION_REPLACED, "{\"subscriberId\":\"" + ALICE
+                        + "\",\"producerIds\":[\"" + BOB + "\"],\"added\":[],\"removed\":[\"" + CAROL + "\"]}"),
+                event(5, OutboxEvent.MESSAGE_DELETED, "{\"producerId\":\"" + BOB + "\"}")));
+
+        assertThat(deltas).containsExactly(
+                new UserCounts(BOB, 1, 0, 1),
+                new UserCounts(ALICE, 0, 1, 0));
+    }
+
+    @Test
+    void leavesOutUsersWhoseCountsCancelOut() {
+        List<UserCounts> deltas = UserCounters.deltas(List.of(
+                event(1, OutboxEvent.MESSAGE_CREATED, "{\"producerId\":\"" + BOB + "\"}"),
+                event(2, OutboxEvent.MESSAGE_DELETED, "{\"producerId\":\"" + BOB + "\"}")));
+
+        assertThat(deltas).isEmpty();
+    }
+
+    @Test
+    void subscriptionEventsWithoutAChangeSetCountNothing() {
+        // written before events carried added and removed producers
+        List<UserCounts> deltas = UserCounters.deltas(List.of(
+                event(1, OutboxEvent.SUBSCRIPTION_CREATED, "{\"subscriberId\":\"" + ALICE
+                        + "\",\"producerIds\":[\"" + BOB + "\"]}")));
+
+        assertThat(deltas).isEmpty();
+    }
+
+    @Test
+    void retentionSummariesTakeBackWhatTheDeletesRemoved() {
+        List<UserCounts> deltas = UserCounters.deltas(List.of(
+                event(1, OutboxEvent.MESSAGE_CREATED, "{\"producerId\":\"" + BOB + "\"}"),
+                event(2, OutboxEvent.COUNTS_REMOVED, "{\"followers\":{\"" + BOB + "\":2},\"following\":{\""
+                        + ALICE + "\":1,\"" + CAROL + "\":1},\"messages\":{\"" + BOB + "\":3}}")));
+
+        assertThat(deltas).containsExactly(
+                new UserCounts(BOB, -2, 0, -2),
+                new UserCounts(ALICE, 0, -1, 0),
+                new UserCounts(CAROL, 0, -1, 0));
+    }
+
+    @Test
+    void findsTheUsersPurgedInABatch() {
+        assertThat(UserCounters.purged(List.of(
+                new OutboxEvent(1, OutboxEvent.USER_PURGED, BOB, "{\"userId\":\"" + BOB + "\"}", 0),
+                event(2, OutboxEvent.MESSAGE_CREATED, "{\"producerId\":\"" + CAROL + "\"}"))))
+                .containsExactly(BOB);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyReadUserWhenFull() {
+        CounterRepository counters = mock(CounterRepository.class);
+        for (UUID user : List.of(ALICE, BOB, CAROL)) {
+            when(counters.getCounts(user)).thenReturn(new UserCounts(user, 0, 0, 0));
+        }
+        UserCounters userCounters = new UserCounters(counters, null, null, null, null, Duration.ofMinutes(5), 2,
+                500);
+
+        userCounters.counts(ALICE);
+        userCounters.counts(BOB);
+        userCounters.counts(ALICE);
+        userCounters.counts(CAROL);
+        userCounters.counts(ALICE);
+        userCounters.counts(BOB);
+
+        verify(counters, times(1)).getCounts(ALICE);
+        verify(counters, times(2)).getCounts(BOB);
+        verify(counters, times(1)).getCounts(CAROL);
+    }
+
+    @Test
+    void recountLeavesEventsTheConsumerHasYetToApplyToIt() {
+        CounterRepository counters = mock(CounterRepository.class);
+        OutboxRepository outbox = mock(OutboxRepository.class);
+        when(outbox.awaitOffset(UserCounters.CONSUMER)).thenReturn(10L);
+        // the tables already show Bob's newest message and Alice's new subscription
+        when(counters.countUsers(List.of(ALICE, BOB))).thenReturn(List.of(
+                new UserCounts(ALICE, 0, 1, 0), new UserCounts(BOB, 1, 0, 3)));
+        when(outbox.getEventsAfter(anyLong(), anyInt())).thenReturn(List.of());
+        when(outbox.getEventsAfter(10L, 500)).thenReturn(List.of(
+                event(11, OutboxEvent.MESSAGE_CREATED, "{\"producerId\":\"" + BOB + "\"}"),
+                event(12, OutboxEvent.SUBSCRIPTION_CREATED, "{\"subscriberId\":\"" + ALICE
+                        + "\",\"added\":[\"" + BOB + "\"],\"removed\":[]}")));
+        UserCounters userCounters = new UserCounters(counters, outbox, new TransactionTemplate(new NoTransactions()),
+                null, null, Duration.ofSeconds(30), 1000, 500);
+
+        userCounters.recount(List.of(ALICE, BOB));
+
+        InOrder fence = inOrder(outbox, counters);
+        fence.verify(outbox).awaitOffset(UserCounters.CONSUMER);
+        fence.verify(counters).countUsers(List.of(ALICE, BOB));
+        verify(counters).setCounts(List.of(new UserCounts(ALICE, 0, 0, 0), new UserCounts(BOB, 0, 0, 2)));
+    }
+}
@@ -0,0 +1,130 @@
+package com.ziminpro.ums.auth;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.ziminpro.common.metrics.Instrumentation;
+import com.ziminpro.ums.dao.AuthRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+/**
+ * Token issue on login and token verification on every authenticated request and
+ * introspection. The repository is stubbed, so {@code decode} is the parse, MAC
+ * and claim validation cost plus the scheduler hops of the real decoder;
+ * {@code decodeUncached} misses the secret cache on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+    private static final String ISSUER = "ums-service";
+
+    private JwtService jwtService;
+    private UserSecretJwtDecoder decoder;
+    private UserSecretJwtDecoder uncachedDecoder;
+    private AuthUser user;
+    private String token;
+
+    @Setup
+    public void setup() {
+        Instrumentation instrumentation = new Instrumentation(new SimpleMeterRegistry(),
+                new StaticListableBeanFactory().getBeanProvider(Tracer.class));
+        user = new AuthUser();
+        user.setId(UUID.randomUUID());
+        user.setName("Donald Trump");
+        user.setEmail("trump@example.com");
+        user.setSecretKey(SecretGenerator.newSecret());
+        user.setRoles(List.of("SUBSCRIBER", "PRODUCER"));
+
+        jwtService = new JwtService(ISSUER, 3600, instrumentation);
+        SingleUserRepository repository = new SingleUserRepository(user);
+        decoder = new UserSecretJwtDecoder(repository,
+                new SecretCache(Duration.ofHours(1), 1000, new SimpleMeterRegistry()), ISSUER, instrumentation);
+        uncachedDecoder = new UserSecretJwtDecoder(repository,
+                new SecretCache(Duration.ZERO, 1000, new SimpleMeterRegistry()), ISSUER, instrumentation);
+        token = jwtService.buildAuthResponse(user).token();
+    }
+
+    @Benchmark
+    public AuthResponse buildAuthResponse() {
+        return jwtService.buildAuthResponse(user);
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return decoder.decode(token).block();
+    }
+
+    @Benchmark
+    public Jwt decodeUncached() {
+        return uncachedDecoder.decode(token).block();
+    }
+
+    private static final class SingleUserRepository implements AuthRepository {
+        private final AuthUser user;
+
+        private SingleUserRepository(AuthUser user) {
+            this.user = user;
+        }
+
+        @Override
+        public AuthUser findAuthUserByEmail(String email) {
+            return user;
+        }
+
+        @Override
+        public AuthUser findAuthUserById(UUID userId) {
+            return user;
+        }
+
+        @Override
+        public String findUserSecret(UUID userId) {
+            return user.getSecretKey();
+        }
+
+        @Override
+        public Map<UUID, String> findUserSecrets(Collection<UUID> userIds) {
+            return userIds.contains(user.getId()) ? Map.of(user.getId(), user.getSecretKey()) : Map.of();
+        }
+
+        @Override
+        public UUID findUserIdByIdentity(String provider, String providerUserId) {
+            return user.getId();
+        }
+
+        @Override
+        public int createUserIdentity(UUID userId, String provider, String providerUserId, String email) {
+            return 0;
+        }
+
+        @Override
+        public int updateUserSecret(UUID userId, String newSecret) {
+            return 0;
+        }
+
+        @Override
+        public int updateUserPassword(UUID userId, String passwordHash) {
+            return 0;
+        }
+    }
+}
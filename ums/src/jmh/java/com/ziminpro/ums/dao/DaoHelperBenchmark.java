@@ -0,0 +1,39 @@
+package com.ziminpro.ums.dao;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * UUID <-> BINARY(16) conversion, done for every id column of every row read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaoHelperBenchmark {
+
+    private final UUID uuid = UUID.randomUUID();
+    private final byte[] bytes = DaoHelper.uuidToBytesArray(uuid);
+
+    @Benchmark
+    public UUID bytesToUuid() {
+        return DaoHelper.bytesArrayToUuid(bytes);
+    }
+
+    @Benchmark
+    public byte[] uuidToBytes() {
+        return DaoHelper.uuidToBytesArray(uuid);
+    }
+}
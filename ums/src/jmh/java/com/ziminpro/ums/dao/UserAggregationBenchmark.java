@@ -0,0 +1,66 @@
+package com.ziminpro.ums.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.ziminpro.ums.dtos.LastSession;
+import com.ziminpro.ums.dtos.Roles;
+import com.ziminpro.ums.dtos.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Folding the users/roles join rows of a {@code GET /users} page into one
+ * {@link User} per id as they arrive, without the JDBC round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserAggregationBenchmark {
+
+    @Param({ "100", "10000" })
+    private int users;
+
+    private List<User> rows;
+
+    @Setup
+    public void setup() {
+        Roles subscriber = new Roles(UUID.randomUUID(), "SUBSCRIBER", "Subscriber role");
+        Roles producer = new Roles(UUID.randomUUID(), "PRODUCER", "Producer role");
+        rows = new ArrayList<>(users * 2);
+        for (int i = 0; i < users; i++) {
+            UUID id = UUID.randomUUID();
+            LastSession session = new LastSession(1605194709, 1605194800);
+            rows.add(new User(id, "User " + i, "user" + i + "@example.com", null, 1605194709,
+                    List.of(subscriber), session));
+            if (i % 3 == 0) {
+                rows.add(new User(id, "User " + i, "user" + i + "@example.com", null, 1605194709,
+                        List.of(producer), session));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<User> foldRows() {
+        List<User> folded = new ArrayList<>();
+        for (User row : rows) {
+            JdbcUmsRepository.foldRow(folded, row.getId(), row.getName(), row.getEmail(), row.getPassword(),
+                    row.getCreated(), row.getLastSession(), row.getRoles().get(0));
+        }
+        return folded;
+    }
+}
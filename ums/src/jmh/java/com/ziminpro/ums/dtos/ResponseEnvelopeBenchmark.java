@@ -0,0 +1,64 @@
+package com.ziminpro.ums.dtos;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ziminpro.ums.config.JacksonConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-request cost of building and serializing a {@code /users/user/{id}} response.
+ * Run with the {@code gc} profiler (enabled in build.gradle) and compare
+ * {@code gc.alloc.rate.norm} between the two envelope styles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseEnvelopeBenchmark {
+
+    private ObjectMapper mapper;
+    private User user;
+
+    @Setup
+    public void setup() {
+        mapper = new ObjectMapper().registerModule(JacksonConfig.envelopeModule());
+        List<Roles> roles = new ArrayList<>();
+        roles.add(new Roles(UUID.randomUUID(), "SUBSCRIBER", "Subscriber role"));
+        roles.add(new Roles(UUID.randomUUID(), "PRODUCER", "Producer role"));
+        user = new User(UUID.randomUUID(), "Donald Trump", "trump@example.com", null, 1605194709,
+                roles, new LastSession(1605194709, 1605194800));
+    }
+
+    @Benchmark
+    public byte[] mapEnvelope() throws JsonProcessingException {
+        Map<String, Object> response = new HashMap<>();
+        response.put(Constants.CODE, "200");
+        response.put(Constants.MESSAGE, "User has been retrieved successfully");
+        response.put(Constants.DATA, user);
+        return mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] recordEnvelope() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(
+                new ResponseEnvelope<>("200", "User has been retrieved successfully", user));
+    }
+}
@@ -2,8 +2,10 @@ package com.ziminpro.ums;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+@SpringBootApplication(scanBasePackages = { "com.ziminpro.ums", "com.ziminpro.common" })
+@EnableScheduling
 public class UmsApplication {
 
 	public static void main(String[] args) {
@@ -1,10 +1,17 @@
 package com.ziminpro.ums.auth;
 
+import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.UUID;
 
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jwt.SignedJWT;
+import com.ziminpro.common.concurrency.ConcurrencyLimitExceededException;
 import com.ziminpro.ums.dao.AuthRepository;
 import com.ziminpro.ums.dao.UmsRepository;
 import com.ziminpro.ums.dtos.Roles;
@@ -14,6 +21,7 @@ import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.stereotype.Service;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
@@ -24,17 +32,23 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final ReactiveJwtDecoder jwtDecoder;
+    private final SecretCache secretCache;
+    private final IntrospectionCache introspectionCache;
 
     public AuthService(AuthRepository authRepository,
                        UmsRepository umsRepository,
                        PasswordEncoder passwordEncoder,
                        JwtService jwtService,
-                       ReactiveJwtDecoder jwtDecoder) {
+                       ReactiveJwtDecoder jwtDecoder,
+                       SecretCache secretCache,
+                       IntrospectionCache introspectionCache) {
         this.authRepository = authRepository;
         this.umsRepository = umsRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
         this.jwtDecoder = jwtDecoder;
+        this.secretCache = secretCache;
+        this.introspectionCache = introspectionCache;
     }
 
     public Mono<AuthResponse> register(AuthRegisterRequest request) {
@@ -134,14 +148,84 @@ public class AuthService {
 
     public Mono<IntrospectResponse> introspect(String token) {
         if (isBlank(token)) {
-            return Mono.just(new IntrospectResponse(false, null, List.of()));
+            return Mono.just(inactive());
         }
+        IntrospectResponse cached = introspectionCache.get(token);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return verify(token);
+    }
+
+    /**
+     * Introspects every token, answering in request order. The secrets of all users
+     * behind tokens that miss the cache are read with one query before the tokens are
+     * verified; if that query fails, each token falls back to its own lookup.
+     */
+    public Mono<List<IntrospectResponse>> introspectBatch(List<String> tokens) {
+        IntrospectResponse[] results = new IntrospectResponse[tokens.size()];
+        List<Integer> misses = new ArrayList<>();
+        Set<UUID> subjects = new HashSet<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (isBlank(token)) {
+                results[i] = inactive();
+                continue;
+            }
+            results[i] = introspectionCache.get(token);
+            if (results[i] == null) {
+                misses.add(i);
+                UUID subject = unverifiedSubject(token);
+                if (subject != null) {
+                    subjects.add(subject);
+                }
+            }
+        }
+        if (misses.isEmpty()) {
+            return Mono.just(Arrays.asList(results));
+        }
+        Mono<Void> preload = subjects.isEmpty() ? Mono.empty()
+                : Mono.<Void>fromRunnable(() -> preloadSecrets(subjects))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .onErrorResume(ex -> !(ex instanceof ConcurrencyLimitExceededException), ex -> Mono.empty());
+        return preload.thenMany(Flux.fromIterable(misses)
+                        .flatMap(i -> verify(tokens.get(i)).doOnNext(response -> results[i] = response)))
+                .then(Mono.fromSupplier(() -> Arrays.asList(results)));
+    }
+
+    private Mono<IntrospectResponse> verify(String token) {
+        long generation = secretCache.generation();
         return jwtDecoder.decode(token)
                 .map(jwt -> {
                     List<String> roles = jwt.getClaimAsStringList("roles");
-                    return new IntrospectResponse(true, jwt.getSubject(), roles == null ? List.of() : roles);
+                    IntrospectResponse response = new IntrospectResponse(true, jwt.getSubject(),
+                            roles == null ? List.of() : roles);
+                    introspectionCache.put(token, jwt, response, generation);
+                    return response;
                 })
-                .onErrorReturn(new IntrospectResponse(false, null, List.of()));
+                .onErrorReturn(ex -> !(ex instanceof ConcurrencyLimitExceededException), inactive());
+    }
+
+    private void preloadSecrets(Set<UUID> subjects) {
+        try {
+            secretCache.preload(subjects, authRepository::findUserSecrets);
+        } catch (JOSEException ex) {
+            throw new IllegalStateException("Secret preload failed", ex);
+        }
+    }
+
+    private UUID unverifiedSubject(String token) {
+        // only picks whose secret to preload; the decoder still verifies the token
+        try {
+            String subject = SignedJWT.parse(token).getJWTClaimsSet().getSubject();
+            return subject == null ? null : UUID.fromString(subject);
+        } catch (ParseException | IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static IntrospectResponse inactive() {
+        return new IntrospectResponse(false, null, List.of());
     }
 
     public Mono<AuthResponse> handleGithubLogin(OAuth2User oauthUser) {
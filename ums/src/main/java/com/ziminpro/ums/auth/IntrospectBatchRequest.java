@@ -0,0 +1,5 @@
+package com.ziminpro.ums.auth;
+
+import java.util.List;
+
+public record IntrospectBatchRequest(List<String> tokens) {}
@@ -0,0 +1,6 @@
+package com.ziminpro.ums.auth;
+
+import java.util.List;
+
+/** One result per requested token, in request order. */
+public record IntrospectBatchResponse(List<IntrospectResponse> results) {}
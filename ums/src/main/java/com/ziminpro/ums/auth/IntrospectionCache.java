@@ -0,0 +1,114 @@
+package com.ziminpro.ums.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+
+/**
+ * Introspection results for tokens that verified, keyed by the SHA-256 of the
+ * token and kept until the token expires, but no longer than
+ * {@code app.jwt.secret-cache.ttl}. An entry only counts while its user's
+ * {@link SecretCache#epoch} is unchanged, so rotating the secret, changing
+ * roles or deleting the user on this instance turns every cached token of that
+ * user into a miss at once; a change made through another replica does not
+ * move the epoch here, and is picked up when the entry runs out, the same
+ * bound the secret cache has. Rejections are not cached: they may come from a
+ * transient failure rather than the token. At {@code max-size} the least
+ * recently used token makes room for the new one. Each entry holds its user's
+ * epoch until it is evicted, replaced or found stale.
+ */
+@Component
+public class IntrospectionCache {
+    private final SecretCache secretCache;
+    private final Duration ttl;
+    private final Map<String, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public IntrospectionCache(SecretCache secretCache,
+                              @Value("${app.jwt.secret-cache.ttl}") Duration ttl,
+                              @Value("${app.jwt.introspection-cache.max-size}") int maxSize,
+                              MeterRegistry registry) {
+        this.secretCache = secretCache;
+        this.ttl = ttl;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                secretCache.release(eldest.getValue().userId);
+                return true;
+            }
+        });
+        this.hits = registry.counter("auth.introspect.cache", "result", "hit");
+        this.misses = registry.counter("auth.introspect.cache", "result", "miss");
+    }
+
+    /** The cached response for {@code token}, or null. */
+    public IntrospectResponse get(String token) {
+        String key = digest(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt.isBefore(Instant.now()) || secretCache.epoch(entry.userId) != entry.epoch) {
+            if (entries.remove(key, entry)) {
+                secretCache.release(entry.userId);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.response;
+    }
+
+    /**
+     * Caches a verified token. {@code generation} is {@link SecretCache#generation()}
+     * sampled before verification; if any user was invalidated since, the result is
+     * not kept, as it may have been verified against a secret that is gone.
+     */
+    public void put(String token, Jwt jwt, IntrospectResponse response, long generation) {
+        if (jwt.getExpiresAt() == null || jwt.getSubject() == null) {
+            return;
+        }
+        UUID userId = UUID.fromString(jwt.getSubject());
+        long epoch = secretCache.hold(userId);
+        if (secretCache.generation() != generation) {
+            secretCache.release(userId);
+            return;
+        }
+        Instant cappedAt = Instant.now().plus(ttl);
+        Instant expiresAt = jwt.getExpiresAt().isBefore(cappedAt) ? jwt.getExpiresAt() : cappedAt;
+        Entry replaced = entries.put(digest(token), new Entry(response, userId, epoch, expiresAt));
+        if (replaced != null) {
+            secretCache.release(replaced.userId);
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Entry(IntrospectResponse response, UUID userId, long epoch, Instant expiresAt) {
+    }
+}
@@ -10,6 +10,7 @@ import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.crypto.MACSigner;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
+import com.ziminpro.common.metrics.Instrumentation;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -17,11 +18,14 @@ import org.springframework.stereotype.Service;
 public class JwtService {
     private final String issuer;
     private final long ttlSeconds;
+    private final Instrumentation instrumentation;
 
     public JwtService(@Value("${app.jwt.issuer}") String issuer,
-                      @Value("${app.jwt.ttl-seconds}") long ttlSeconds) {
+                      @Value("${app.jwt.ttl-seconds}") long ttlSeconds,
+                      Instrumentation instrumentation) {
         this.issuer = issuer;
         this.ttlSeconds = ttlSeconds;
+        this.instrumentation = instrumentation;
     }
 
     public AuthResponse buildAuthResponse(AuthUser user) {
@@ -52,7 +56,10 @@ public class JwtService {
         }
         try {
             SignedJWT signed = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
-            signed.sign(new MACSigner(user.getSecretKey().getBytes(StandardCharsets.UTF_8)));
+            instrumentation.record("auth.crypto", "jwt.sign", () -> {
+                signed.sign(new MACSigner(user.getSecretKey().getBytes(StandardCharsets.UTF_8)));
+                return signed;
+            });
             return signed.serialize();
         } catch (JOSEException e) {
             throw new IllegalStateException("Token signing failed", e);
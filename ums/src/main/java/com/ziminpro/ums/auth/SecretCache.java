@@ -0,0 +1,163 @@
+package com.ziminpro.ums.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.crypto.MACVerifier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-user signing secret with a ready {@link MACVerifier}, so verifying a
+ * token does not cost a query. Entries are dropped by the repository write
+ * paths that change a user's secret, roles or existence on this instance; a
+ * change made through another UMS replica is picked up after {@code ttl}.
+ * A load that raced with an invalidation is not cached, so it cannot bring an
+ * old secret back. At {@code max-size} the least recently used user's entry
+ * makes room for the new one.
+ * <p>
+ * Every invalidation also bumps the user's epoch, which caches of things
+ * derived from the secret or roles compare against. Such a cache {@link #hold}s
+ * the epoch for each entry it keeps and releases it when the entry goes; an
+ * epoch nobody holds is dropped, so the map only tracks users that something
+ * still caches.
+ */
+@Component
+public class SecretCache {
+    private final long ttlMillis;
+    private final Map<UUID, Entry> entries;
+    private final Map<UUID, Epoch> epochs = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    public SecretCache(@Value("${app.jwt.secret-cache.ttl}") Duration ttl,
+                       @Value("${app.jwt.secret-cache.max-size}") int maxSize,
+                       MeterRegistry registry) {
+        this.ttlMillis = ttl.toMillis();
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > maxSize;
+            }
+        });
+        this.hits = registry.counter("auth.secret.cache", "result", "hit");
+        this.misses = registry.counter("auth.secret.cache", "result", "miss");
+    }
+
+    /**
+     * The verifier for {@code userId}, loading the secret with {@code loader} on a miss.
+     * Returns null when the loader finds no secret.
+     */
+    public MACVerifier verifier(UUID userId, Function<UUID, String> loader) throws JOSEException {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(userId);
+        if (entry != null && entry.loadedAt + ttlMillis > now) {
+            hits.increment();
+            return entry.verifier;
+        }
+        misses.increment();
+        long generation = invalidations.get();
+        String secret = loader.apply(userId);
+        if (secret == null || secret.isBlank()) {
+            entries.remove(userId);
+            return null;
+        }
+        MACVerifier verifier = new MACVerifier(secret.getBytes(StandardCharsets.UTF_8));
+        entries.put(userId, new Entry(verifier, now));
+        if (invalidations.get() != generation) {
+            // the secret may have been read before a concurrent rotation committed
+            entries.remove(userId);
+        }
+        return verifier;
+    }
+
+    /**
+     * Loads the secrets of every user in {@code userIds} that is not cached yet with a
+     * single {@code loader} call, so a batch of tokens costs one query.
+     */
+    public void preload(Collection<UUID> userIds, Function<Collection<UUID>, Map<UUID, String>> loader)
+            throws JOSEException {
+        long now = System.currentTimeMillis();
+        Set<UUID> missing = new HashSet<>();
+        for (UUID userId : userIds) {
+            Entry entry = entries.get(userId);
+            if (entry == null || entry.loadedAt + ttlMillis <= now) {
+                missing.add(userId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        long generation = invalidations.get();
+        Map<UUID, String> secrets = loader.apply(missing);
+        for (Map.Entry<UUID, String> secret : secrets.entrySet()) {
+            if (secret.getValue() != null && !secret.getValue().isBlank()) {
+                entries.put(secret.getKey(), new Entry(
+                        new MACVerifier(secret.getValue().getBytes(StandardCharsets.UTF_8)), now));
+            }
+        }
+        if (invalidations.get() != generation) {
+            missing.forEach(entries::remove);
+        }
+    }
+
+    public void invalidate(UUID userId) {
+        // an unheld epoch has no entries to turn stale; a put still in flight sampled the generation first
+        epochs.computeIfPresent(userId, (id, epoch) -> new Epoch(epoch.value + 1, epoch.holders));
+        invalidations.incrementAndGet();
+        entries.remove(userId);
+        // a reader that sampled the generation after the first bump may still have used the old entry
+        invalidations.incrementAndGet();
+    }
+
+    public long epoch(UUID userId) {
+        Epoch epoch = epochs.get(userId);
+        return epoch == null ? 0 : epoch.value;
+    }
+
+    /**
+     * Keeps the user's epoch tracked for one more cached entry and returns it. Call
+     * before checking {@link #generation()}, so an invalidation after the check
+     * moves an epoch the entry compares against.
+     */
+    public long hold(UUID userId) {
+        return epochs.compute(userId, (id, epoch) -> epoch == null ? new Epoch(0, 1)
+                : new Epoch(epoch.value, epoch.holders + 1)).value;
+    }
+
+    /** Undoes one {@link #hold}; the last release drops the epoch. */
+    public void release(UUID userId) {
+        epochs.computeIfPresent(userId, (id, epoch) -> epoch.holders == 1 ? null
+                : new Epoch(epoch.value, epoch.holders - 1));
+    }
+
+    /** Users whose epoch is tracked, for tests. */
+    int trackedEpochs() {
+        return epochs.size();
+    }
+
+    /** Changes with every invalidation of any user; equal readings mean no epoch moved in between. */
+    public long generation() {
+        return invalidations.get();
+    }
+
+    private record Entry(MACVerifier verifier, long loadedAt) {
+    }
+
+    private record Epoch(long value, int holders) {
+    }
+}
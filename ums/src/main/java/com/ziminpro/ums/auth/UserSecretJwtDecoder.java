@@ -1,6 +1,5 @@
 package com.ziminpro.ums.auth;
 
-import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.HashMap;
 import java.util.Map;
@@ -10,6 +9,8 @@ import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
+import com.ziminpro.common.concurrency.ConcurrencyLimitExceededException;
+import com.ziminpro.common.metrics.Instrumentation;
 import com.ziminpro.ums.dao.AuthRepository;
 import org.springframework.security.oauth2.core.OAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
@@ -23,11 +24,16 @@ import reactor.core.scheduler.Schedulers;
 
 public class UserSecretJwtDecoder implements ReactiveJwtDecoder {
     private final AuthRepository authRepository;
+    private final SecretCache secretCache;
     private final OAuth2TokenValidator<Jwt> validator;
+    private final Instrumentation instrumentation;
 
-    public UserSecretJwtDecoder(AuthRepository authRepository, String issuer) {
+    public UserSecretJwtDecoder(AuthRepository authRepository, SecretCache secretCache, String issuer,
+                                Instrumentation instrumentation) {
         this.authRepository = authRepository;
+        this.secretCache = secretCache;
         this.validator = JwtValidators.createDefaultWithIssuer(issuer);
+        this.instrumentation = instrumentation;
     }
 
     @Override
@@ -36,7 +42,8 @@ public class UserSecretJwtDecoder implements ReactiveJwtDecoder {
                 .subscribeOn(Schedulers.boundedElastic())
                 .flatMap(signed -> Mono.fromCallable(() -> decodeSigned(token, signed))
                         .subscribeOn(Schedulers.boundedElastic()))
-                .onErrorMap(ex -> ex instanceof BadJwtException ? ex : new BadJwtException("Invalid token", ex));
+                .onErrorMap(ex -> !(ex instanceof BadJwtException || ex instanceof ConcurrencyLimitExceededException),
+                        ex -> new BadJwtException("Invalid token", ex));
     }
 
     private Jwt decodeSigned(String token, SignedJWT signed) throws ParseException, JOSEException {
@@ -46,15 +53,12 @@ public class UserSecretJwtDecoder implements ReactiveJwtDecoder {
             throw new BadJwtException("Missing subject");
         }
 
-        AuthUser user = authRepository.findAuthUserById(UUID.fromString(subject));
-        if (user.getId() == null) {
-            throw new BadJwtException("Unknown user");
-        }
-        if (user.getSecretKey() == null || user.getSecretKey().isBlank()) {
-            throw new BadJwtException("User secret missing");
+        MACVerifier verifier = secretCache.verifier(UUID.fromString(subject), authRepository::findUserSecret);
+        if (verifier == null) {
+            throw new BadJwtException("Unknown user or secret missing");
         }
 
-        boolean verified = signed.verify(new MACVerifier(user.getSecretKey().getBytes(StandardCharsets.UTF_8)));
+        boolean verified = instrumentation.record("auth.crypto", "jwt.verify", () -> signed.verify(verifier));
         if (!verified) {
             throw new BadJwtException("Invalid signature");
         }
@@ -0,0 +1,263 @@
+package com.ziminpro.ums.changes;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ziminpro.ums.dao.UserChangeRepository;
+import com.ziminpro.ums.dtos.UserChange;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Log of secret rotations, role changes and deletions for services that cache
+ * what UMS tells them. The repository write paths append each change to
+ * {@code user_changes} in the transaction that makes it and then call
+ * {@link #published()}; a scheduled poll picks up changes made through other
+ * replicas. Readers get changes in sequence order
+ * and may resume after any sequence still stored; one older than
+ * {@code app.user-changes.ttl} (or from another database) gets a
+ * {@link UserChange#RESET} first. Ids become visible in commit order, not id
+ * order, so a reader stops at a gap. Once the gap is older than
+ * {@code gap-timeout} the reader probes it with a locking read: while a writer
+ * still holds an id the reader keeps waiting, and only ids that are gone for
+ * good (rolled back) are skipped.
+ * <p>
+ * While anyone reads, one poll per tick moves a shared cursor and appends what
+ * it passed to a replay buffer of the last {@code replay-size} changes; every
+ * reader at or past the buffer's start is served from it, so open streams do
+ * not multiply queries. Only a reader resuming from before the buffer reads
+ * the table with its own cursor, and joins the buffer once it has caught up.
+ */
+@Component
+public class UserChangeFeed {
+    private final UserChangeRepository userChangeRepository;
+    private final int batchSize;
+    private final int replaySize;
+    private final long gapTimeoutNanos;
+    private final long ttlSeconds;
+    private final Sinks.Many<Long> ticks = Sinks.many().multicast().directBestEffort();
+    private final Sinks.Many<Long> polls = Sinks.many().multicast().directBestEffort();
+    private final AtomicInteger readers = new AtomicInteger();
+    private final Disposable poller;
+    private final Object lock = new Object();
+    // guarded by lock; the cursor itself is only moved by the poller
+    private final Deque<UserChange> replay = new ArrayDeque<>();
+    private Cursor shared;
+    private long floor;
+
+    public UserChangeFeed(UserChangeRepository userChangeRepository, MeterRegistry registry,
+                          @Value("${app.user-changes.batch-size}") int batchSize,
+                          @Value("${app.user-changes.replay-size}") int replaySize,
+                          @Value("${app.user-changes.gap-timeout}") Duration gapTimeout,
+                          @Value("${app.user-changes.ttl}") Duration ttl) {
+        this.userChangeRepository = userChangeRepository;
+        this.batchSize = batchSize;
+        this.replaySize = replaySize;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+        this.ttlSeconds = ttl.toSeconds();
+        Gauge.builder("user.changes.readers", readers, AtomicInteger::get)
+                .description("Open user change streams")
+                .register(registry);
+        this.poller = ticks.asFlux()
+                .onBackpressureLatest()
+                .publishOn(Schedulers.boundedElastic(), 1)
+                .concatMap(tick -> Mono.fromRunnable(this::pollShared)
+                        .onErrorResume(ex -> {
+                            registry.counter("user.changes.poll.errors").increment();
+                            return Mono.empty();
+                        })
+                        .then(Mono.fromRunnable(() -> polls.tryEmitNext(tick))), 1)
+                .subscribe();
+    }
+
+    /** Wakes readers up after a local write has committed instead of waiting for the next poll. */
+    public void published() {
+        ticks.tryEmitNext(System.nanoTime());
+    }
+
+    @Scheduled(fixedDelayString = "${app.user-changes.poll-interval}")
+    public void poll() {
+        published();
+    }
+
+    @Scheduled(fixedDelayString = "${app.user-changes.prune-interval}")
+    public void prune() {
+        long createdBefore = Instant.now().getEpochSecond() - ttlSeconds;
+        // the newest change is kept so a resume point can always be told apart from an empty table
+        long last = userChangeRepository.findSequenceBounds()[1];
+        int deleted;
+        do {
+            deleted = userChangeRepository.deleteExpiredChanges(createdBefore, last, batchSize);
+        } while (deleted == batchSize);
+    }
+
+    /**
+     * Hot stream of changes after {@code after}, or from now on if it is null.
+     * Ticks arriving mid-read collapse into one.
+     */
+    public Flux<UserChange> changes(Long after) {
+        return Mono.fromCallable(userChangeRepository::findSequenceBounds)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(bounds -> {
+                    long first = bounds[0];
+                    long last = bounds[1];
+                    share(last);
+                    if (after == null) {
+                        return follow(last);
+                    }
+                    if (after > last || (first > 0 && after < first - 1)) {
+                        UserChange reset = new UserChange(last, null, UserChange.RESET,
+                                Instant.now().getEpochSecond());
+                        return follow(last).startWith(reset);
+                    }
+                    return follow(after);
+                })
+                .doOnSubscribe(subscription -> readers.incrementAndGet())
+                .doFinally(signal -> readers.decrementAndGet());
+    }
+
+    @PreDestroy
+    public void close() {
+        poller.dispose();
+        ticks.tryEmitComplete();
+        polls.tryEmitComplete();
+    }
+
+    // the first reader since the feed went idle starts the shared cursor at the end of the table
+    private void share(long last) {
+        synchronized (lock) {
+            if (shared == null) {
+                shared = new Cursor(last);
+                floor = last;
+            }
+        }
+        published();
+    }
+
+    private void pollShared() {
+        Cursor cursor;
+        synchronized (lock) {
+            if (readers.get() == 0) {
+                // nobody to serve: stop polling and start afresh with the next reader
+                shared = null;
+                replay.clear();
+                return;
+            }
+            cursor = shared;
+        }
+        if (cursor == null) {
+            return;
+        }
+        List<UserChange> ready;
+        do {
+            List<UserChange> page = userChangeRepository.findChangesAfter(cursor.position, batchSize);
+            ready = cursor.advance(page, System.nanoTime());
+            synchronized (lock) {
+                if (shared != cursor) {
+                    return;
+                }
+                for (UserChange change : ready) {
+                    replay.addLast(change);
+                    if (replay.size() > replaySize) {
+                        floor = replay.removeFirst().sequence();
+                    }
+                }
+            }
+        } while (ready.size() == batchSize);
+    }
+
+    // what the buffer holds after position, or null while position is before the buffer
+    private List<UserChange> buffered(long position) {
+        synchronized (lock) {
+            if (shared == null || position < floor) {
+                return null;
+            }
+            List<UserChange> newer = new ArrayList<>();
+            Iterator<UserChange> newestFirst = replay.descendingIterator();
+            while (newestFirst.hasNext()) {
+                UserChange change = newestFirst.next();
+                if (change.sequence() <= position) {
+                    break;
+                }
+                newer.add(change);
+            }
+            return newer.reversed();
+        }
+    }
+
+    private Flux<UserChange> follow(long position) {
+        Cursor cursor = new Cursor(position);
+        return polls.asFlux()
+                .startWith(System.nanoTime())
+                .onBackpressureLatest()
+                .publishOn(Schedulers.boundedElastic(), 1)
+                .concatMap(poll -> read(cursor), 1);
+    }
+
+    private Flux<UserChange> read(Cursor cursor) {
+        return Flux.defer(() -> {
+            List<UserChange> buffered = buffered(cursor.position);
+            if (buffered != null) {
+                cursor.skipTo(buffered);
+                return Flux.fromIterable(buffered);
+            }
+            // behind the buffer: catch up from the table, a page at a time
+            List<UserChange> page = userChangeRepository.findChangesAfter(cursor.position, batchSize);
+            List<UserChange> ready = cursor.advance(page, System.nanoTime());
+            Flux<UserChange> changes = Flux.fromIterable(ready);
+            return ready.size() == batchSize ? changes.concatWith(read(cursor)) : changes;
+        });
+    }
+
+    private final class Cursor {
+        private long position;
+        private long gapSeenAt;
+
+        private Cursor(long position) {
+            this.position = position;
+        }
+
+        // the shared cursor already settled every gap in what the buffer hands out
+        private void skipTo(List<UserChange> buffered) {
+            if (!buffered.isEmpty()) {
+                position = buffered.getLast().sequence();
+                gapSeenAt = 0;
+            }
+        }
+
+        private List<UserChange> advance(List<UserChange> page, long now) {
+            List<UserChange> ready = new ArrayList<>(page.size());
+            for (UserChange change : page) {
+                if (change.sequence() != position + 1) {
+                    if (gapSeenAt == 0) {
+                        gapSeenAt = now;
+                    }
+                    if (now - gapSeenAt < gapTimeoutNanos
+                            || !userChangeRepository.isGapSettled(position, change.sequence())) {
+                        break;
+                    }
+                }
+                gapSeenAt = 0;
+                position = change.sequence();
+                ready.add(change);
+            }
+            return ready;
+        }
+    }
+}
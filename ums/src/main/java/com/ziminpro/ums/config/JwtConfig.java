@@ -1,7 +1,10 @@
 package com.ziminpro.ums.config;
 
+import com.ziminpro.common.metrics.Instrumentation;
+import com.ziminpro.ums.auth.SecretCache;
 import com.ziminpro.ums.auth.UserSecretJwtDecoder;
 import com.ziminpro.ums.dao.AuthRepository;
+import com.ziminpro.ums.metrics.TimedPasswordEncoder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,14 +17,16 @@ import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 public class JwtConfig {
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(Instrumentation instrumentation) {
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(), instrumentation);
     }
 
     @Bean
     @Primary
     public ReactiveJwtDecoder jwtDecoder(@Value("${app.jwt.issuer}") String issuer,
-                                         AuthRepository authRepository) {
-        return new UserSecretJwtDecoder(authRepository, issuer);
+                                         AuthRepository authRepository,
+                                         SecretCache secretCache,
+                                         Instrumentation instrumentation) {
+        return new UserSecretJwtDecoder(authRepository, secretCache, issuer, instrumentation);
     }
 }
@@ -0,0 +1,44 @@
+package com.ziminpro.ums.config;
+
+import com.ziminpro.ums.auth.AuthLoginRequest;
+import com.ziminpro.ums.auth.AuthRegisterRequest;
+import com.ziminpro.ums.auth.AuthResponse;
+import com.ziminpro.ums.auth.AuthUserSummary;
+import com.ziminpro.ums.auth.IntrospectBatchRequest;
+import com.ziminpro.ums.auth.IntrospectBatchResponse;
+import com.ziminpro.ums.auth.IntrospectRequest;
+import com.ziminpro.ums.auth.IntrospectResponse;
+import com.ziminpro.ums.dtos.LastSession;
+import com.ziminpro.ums.dtos.ResponseEnvelope;
+import com.ziminpro.ums.dtos.RoleUpdateRequest;
+import com.ziminpro.ums.dtos.User;
+import com.ziminpro.ums.dtos.UserChange;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Reachability metadata for the native image. Controller signatures are
+ * covered by AOT processing; this adds the types Jackson binds elsewhere
+ * (the GitHub login handler, filters writing envelopes) and the Flyway
+ * scripts. Nimbus only needs the JCA HMAC it signs with, which native-image
+ * keeps on its own; the MySQL driver and Flyway come from the GraalVM
+ * reachability metadata repository.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHints.Resources.class)
+@RegisterReflectionForBinding({ ResponseEnvelope.class, User.class, LastSession.class, RoleUpdateRequest.class,
+        AuthLoginRequest.class, AuthRegisterRequest.class, AuthResponse.class, AuthUserSummary.class,
+        IntrospectRequest.class, IntrospectResponse.class, IntrospectBatchRequest.class,
+        IntrospectBatchResponse.class, UserChange.class })
+public class NativeHints {
+
+    static class Resources implements RuntimeHintsRegistrar {
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.resources().registerPattern("db/migration/*.sql");
+        }
+    }
+}
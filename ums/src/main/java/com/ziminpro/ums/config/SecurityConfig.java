@@ -1,18 +1,41 @@
 package com.ziminpro.ums.config;
 
 import com.ziminpro.ums.security.GithubAuthSuccessHandler;
+import com.ziminpro.ums.security.ServiceAuthenticationManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
 
 @Configuration
 @EnableWebFluxSecurity
 @EnableReactiveMethodSecurity
 public class SecurityConfig {
+    // internal streams for other services: HTTP Basic with the shared service secret, nothing else
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public SecurityWebFilterChain serviceWebFilterChain(ServerHttpSecurity http,
+                                                        @Value("${app.service-auth.name}") String name,
+                                                        @Value("${app.service-auth.secret}") String secret) {
+        return http
+                .securityMatcher(ServerWebExchangeMatchers.pathMatchers("/auth/changes"))
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .httpBasic(basic -> basic.authenticationManager(new ServiceAuthenticationManager(name, secret)))
+                .authorizeExchange(exchanges -> exchanges
+                        .anyExchange().hasRole(ServiceAuthenticationManager.ROLE)
+                )
+                .build();
+    }
+
     @Bean
     public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
                                                          ReactiveJwtDecoder jwtDecoder,
@@ -20,7 +43,8 @@ public class SecurityConfig {
         return http
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
                 .authorizeExchange(exchanges -> exchanges
-                        .pathMatchers("/auth/register", "/auth/login", "/auth/introspect").permitAll()
+                        .pathMatchers("/auth/register", "/auth/login", "/auth/introspect",
+                                "/auth/introspect/batch").permitAll()
                         .pathMatchers("/oauth2/**", "/login/**", "/actuator/**").permitAll()
                         .anyExchange().authenticated()
                 )
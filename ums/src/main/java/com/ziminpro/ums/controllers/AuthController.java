@@ -1,17 +1,20 @@
 package com.ziminpro.ums.controllers;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
+import com.ziminpro.common.concurrency.ConcurrencyLimitExceededException;
 import com.ziminpro.ums.auth.AuthLoginRequest;
 import com.ziminpro.ums.auth.AuthRegisterRequest;
 import com.ziminpro.ums.auth.AuthResponse;
 import com.ziminpro.ums.auth.AuthService;
+import com.ziminpro.ums.auth.IntrospectBatchRequest;
+import com.ziminpro.ums.auth.IntrospectBatchResponse;
 import com.ziminpro.ums.auth.IntrospectRequest;
 import com.ziminpro.ums.auth.IntrospectResponse;
 import com.ziminpro.ums.dtos.Constants;
+import com.ziminpro.ums.dtos.ResponseEnvelope;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -27,38 +30,41 @@ import reactor.core.publisher.Mono;
 @RequestMapping("/auth")
 public class AuthController {
     private final AuthService authService;
+    private final int introspectBatchMaxTokens;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService,
+                          @Value("${app.jwt.introspect-batch.max-tokens}") int introspectBatchMaxTokens) {
         this.authService = authService;
+        this.introspectBatchMaxTokens = introspectBatchMaxTokens;
     }
 
     @PostMapping("/register")
-    public Mono<ResponseEntity<Map<String, Object>>> register(@RequestBody AuthRegisterRequest request) {
+    public Mono<ResponseEntity<ResponseEnvelope<Object>>> register(@RequestBody AuthRegisterRequest request) {
         return authService.register(request)
                 .map(response -> buildResponse("201", "User registered", response))
-                .onErrorResume(ex -> Mono.just(buildResponse("400", ex.getMessage(), false)));
+                .onErrorResume(AuthController::notShed, ex -> Mono.just(buildResponse("400", ex.getMessage(), false)));
     }
 
     @PostMapping("/login")
-    public Mono<ResponseEntity<Map<String, Object>>> login(@RequestBody AuthLoginRequest request) {
+    public Mono<ResponseEntity<ResponseEnvelope<Object>>> login(@RequestBody AuthLoginRequest request) {
         return authService.login(request)
                 .map(response -> buildResponse("200", "Login successful", response))
-                .onErrorResume(ex -> Mono.just(buildResponse("401", ex.getMessage(), false)));
+                .onErrorResume(AuthController::notShed, ex -> Mono.just(buildResponse("401", ex.getMessage(), false)));
     }
 
     @PostMapping("/rotate-secret")
-    public Mono<ResponseEntity<Map<String, Object>>> rotateSecret(@AuthenticationPrincipal Jwt jwt) {
+    public Mono<ResponseEntity<ResponseEnvelope<Object>>> rotateSecret(@AuthenticationPrincipal Jwt jwt) {
         if (jwt == null || jwt.getSubject() == null) {
             return Mono.just(buildResponse("401", "Unauthorized", false));
         }
         UUID userId = UUID.fromString(jwt.getSubject());
         return authService.rotateSecret(userId)
                 .map(response -> buildResponse("200", "Secret rotated", response))
-                .onErrorResume(ex -> Mono.just(buildResponse("400", ex.getMessage(), false)));
+                .onErrorResume(AuthController::notShed, ex -> Mono.just(buildResponse("400", ex.getMessage(), false)));
     }
 
     @PostMapping("/rotate-secret/{user-id}")
-    public Mono<ResponseEntity<Map<String, Object>>> rotateSecretForUser(
+    public Mono<ResponseEntity<ResponseEnvelope<Object>>> rotateSecretForUser(
             @PathVariable(value = "user-id") String userId,
             @AuthenticationPrincipal Jwt jwt) {
         if (jwt == null || jwt.getSubject() == null) {
@@ -77,7 +83,7 @@ public class AuthController {
 
         return authService.rotateSecretForUser(targetId)
                 .map(result -> buildResponse("200", "Secret rotated", result.toString()))
-                .onErrorResume(ex -> {
+                .onErrorResume(AuthController::notShed, ex -> {
                     String message = ex.getMessage() == null ? "Failed to rotate secret" : ex.getMessage();
                     String code = "400";
                     if ("User not found".equals(message)) {
@@ -95,15 +101,28 @@ public class AuthController {
         return authService.introspect(request.token());
     }
 
-    private ResponseEntity<Map<String, Object>> buildResponse(String code, String message, Object data) {
-        Map<String, Object> response = new HashMap<>();
-        response.put(Constants.CODE, code);
-        response.put(Constants.MESSAGE, message);
-        response.put(Constants.DATA, data);
+    @PostMapping("/introspect/batch")
+    public Mono<ResponseEntity<IntrospectBatchResponse>> introspectBatch(
+            @RequestBody IntrospectBatchRequest request) {
+        if (request == null || request.tokens() == null || request.tokens().isEmpty()) {
+            return Mono.just(ResponseEntity.ok(new IntrospectBatchResponse(List.of())));
+        }
+        if (request.tokens().size() > introspectBatchMaxTokens) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return authService.introspectBatch(request.tokens())
+                .map(results -> ResponseEntity.ok(new IntrospectBatchResponse(results)));
+    }
+
+    private ResponseEntity<ResponseEnvelope<Object>> buildResponse(String code, String message, Object data) {
         return ResponseEntity.ok()
-                .header(Constants.CONTENT_TYPE, Constants.APPLICATION_JSON)
                 .header(Constants.ACCEPT, Constants.APPLICATION_JSON)
-                .body(response);
+                .body(new ResponseEnvelope<>(code, message, data));
+    }
+
+    private static boolean notShed(Throwable ex) {
+        // shed calls surface as 503 rather than as a failed login or registration
+        return !(ex instanceof ConcurrencyLimitExceededException);
     }
 
     private boolean hasRole(Jwt jwt, String role) {
@@ -1,17 +1,20 @@
 package com.ziminpro.ums.controllers;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
-import com.ziminpro.ums.dao.UmsRepository;
+import com.ziminpro.ums.dao.ProfileVersions;
+import com.ziminpro.ums.dao.RoleRegistry;
 import com.ziminpro.ums.dtos.Constants;
+import com.ziminpro.ums.dtos.ResponseEnvelope;
 import com.ziminpro.ums.dtos.Roles;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 
 import reactor.core.publisher.Mono;
 
@@ -19,23 +22,24 @@ import reactor.core.publisher.Mono;
 public class RolesController {
 
     @Autowired
-    private UmsRepository umsRepository;
+    private RoleRegistry roleRegistry;
 
-    Map<String, Object> response = new HashMap<>();
+    @Autowired
+    private ProfileVersions profileVersions;
 
     @RequestMapping(method = RequestMethod.GET, path = "/roles")
-    public Mono<ResponseEntity<Map<String, Object>>> getAllRoles() {
-        Map<String, Roles> roles = umsRepository.findAllRoles();
-        if (roles == null) {
-            response.put(Constants.CODE, "500");
-            response.put(Constants.MESSAGE, "Roles have not been retrieved");
-            response.put(Constants.DATA, new HashMap<>());
-        } else {
-            response.put(Constants.CODE, "200");
-            response.put(Constants.MESSAGE, "List of Roles has been requested successfully");
-            response.put(Constants.DATA, new ArrayList<>(roles.values()));
+    public Mono<ResponseEntity<ResponseEnvelope<List<Roles>>>> getAllRoles(ServerWebExchange exchange) {
+        if (exchange.checkNotModified(profileVersions.rolesTag())) {
+            return Mono.empty();
+        }
+        ResponseEnvelope<List<Roles>> response;
+        try {
+            response = new ResponseEnvelope<>("200", "List of Roles has been requested successfully",
+                    new ArrayList<>(roleRegistry.roles().values()));
+        } catch (DataAccessException ex) {
+            // only before the first load succeeded
+            response = new ResponseEnvelope<>("500", "Roles have not been retrieved", List.of());
         }
-        return Mono.just(ResponseEntity.ok().header(Constants.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
+        return Mono.just(ResponseEntity.ok().header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
     }
 }
@@ -0,0 +1,65 @@
+package com.ziminpro.ums.controllers;
+
+import java.time.Duration;
+
+import com.ziminpro.ums.changes.UserChangeFeed;
+import com.ziminpro.ums.dtos.UserChange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Server-sent stream of user changes for relying services. Each event carries
+ * its sequence as the event id, so a client that reconnects with
+ * {@code Last-Event-ID} (or {@code ?after=}) continues where it stopped. A
+ * comment goes out on connect and every {@code app.user-changes.heartbeat},
+ * so clients can tell an idle stream from a dead one.
+ */
+@RestController
+@RequestMapping("/auth")
+public class UserChangeController {
+    private final UserChangeFeed userChangeFeed;
+    private final Duration heartbeat;
+
+    public UserChangeController(UserChangeFeed userChangeFeed,
+                                @Value("${app.user-changes.heartbeat}") Duration heartbeat) {
+        this.userChangeFeed = userChangeFeed;
+        this.heartbeat = heartbeat;
+    }
+
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<UserChange>>> changes(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(value = "after", required = false) String after) {
+        String from = lastEventId != null ? lastEventId : after;
+        Long sequence = null;
+        if (from != null && !from.isBlank()) {
+            try {
+                sequence = Long.parseLong(from.trim());
+            } catch (NumberFormatException ex) {
+                return ResponseEntity.badRequest().build();
+            }
+            if (sequence < 0) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        Flux<ServerSentEvent<UserChange>> changes = userChangeFeed.changes(sequence)
+                .map(change -> ServerSentEvent.builder(change)
+                        .id(Long.toString(change.sequence()))
+                        .event(change.type())
+                        .build());
+        Flux<ServerSentEvent<UserChange>> heartbeats = Flux.interval(heartbeat)
+                .map(tick -> ServerSentEvent.<UserChange>builder().comment("heartbeat").build());
+        return ResponseEntity.ok(Flux.merge(changes, heartbeats)
+                .startWith(ServerSentEvent.<UserChange>builder().comment("connected").build()));
+    }
+}
@@ -1,27 +1,36 @@
 package com.ziminpro.ums.controllers;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.UUID;
 
+import com.ziminpro.common.concurrency.ConcurrencyLimitExceededException;
 import com.ziminpro.ums.auth.AuthService;
+import com.ziminpro.ums.dao.ProfileVersions;
 import com.ziminpro.ums.dao.UmsRepository;
 import com.ziminpro.ums.dtos.Constants;
+import com.ziminpro.ums.dtos.ResponseEnvelope;
 import com.ziminpro.ums.dtos.RoleUpdateRequest;
 import com.ziminpro.ums.dtos.User;
+import com.ziminpro.ums.dtos.UserQuery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @RestController
 public class UserController {
+    private static final UUID ORIGIN = new UUID(0, 0);
 
     @Autowired
     private UmsRepository umsRepository;
@@ -29,123 +38,128 @@ public class UserController {
     @Autowired
     private AuthService authService;
 
-    Map<String, Object> response = new HashMap<>();
+    @Autowired
+    private ProfileVersions profileVersions;
+
+    @Value("${app.users.default-limit}")
+    private int defaultLimit;
+
+    @Value("${app.users.max-limit}")
+    private int maxLimit;
 
+    /**
+     * A page of users in id order; the next page continues {@code after} the id of
+     * the last user returned, and a page shorter than {@code limit} is the last one.
+     */
     @RequestMapping(method = RequestMethod.GET, path = "/users")
-    public Mono<ResponseEntity<Map<String, Object>>> getAllUsers() {
-        Map<UUID, User> users = umsRepository.findAllUsers();
-        if (users == null) {
-            response.put(Constants.CODE, "500");
-            response.put(Constants.MESSAGE, "Users have not been retrieved");
-            response.put(Constants.DATA, new HashMap<>());
-        } else {
-            response.put(Constants.CODE, "200");
-            response.put(Constants.MESSAGE, "List of Users has been requested successfully");
-            response.put(Constants.DATA, new ArrayList<>(users.values()));
+    public Mono<ResponseEntity<ResponseEnvelope<List<User>>>> getUsers(
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "role", required = false) String role,
+            @RequestParam(value = "created-from", required = false) Integer createdFrom,
+            @RequestParam(value = "created-to", required = false) Integer createdTo) {
+        UUID from;
+        try {
+            from = after == null ? ORIGIN : UUID.fromString(after);
+        } catch (IllegalArgumentException ex) {
+            return Mono.just(buildResponse("400", "Invalid after id", List.of()));
+        }
+        if (limit != null && limit < 1) {
+            return Mono.just(buildResponse("400", "Limit must be positive", List.of()));
         }
-        return Mono.just(ResponseEntity.ok().header(Constants.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
+        int size = limit == null ? defaultLimit : Math.min(limit, maxLimit);
+        return Mono.fromCallable(() -> umsRepository.findUsers(new UserQuery(role, createdFrom, createdTo), from, size))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(users -> buildResponse("200", "List of Users has been requested successfully", users));
+    }
+
+    /**
+     * Every matching user as one JSON line each, read page by page as the client
+     * consumes the stream, so only one page is held at a time.
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/users/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<User> streamUsers(@RequestParam(value = "role", required = false) String role,
+                                  @RequestParam(value = "created-from", required = false) Integer createdFrom,
+                                  @RequestParam(value = "created-to", required = false) Integer createdTo) {
+        UserQuery query = new UserQuery(role, createdFrom, createdTo);
+        return findUsers(query, ORIGIN)
+                .expand(users -> users.size() < maxLimit ? Mono.empty()
+                        : findUsers(query, users.get(users.size() - 1).getId()))
+                .concatMapIterable(users -> users, 1);
+    }
+
+    private Mono<List<User>> findUsers(UserQuery query, UUID after) {
+        return Mono.fromCallable(() -> umsRepository.findUsers(query, after, maxLimit))
+                .subscribeOn(Schedulers.boundedElastic());
     }
 
     @RequestMapping(method = RequestMethod.GET, path = "/users/user/{user-id}")
-    public Mono<ResponseEntity<Map<String, Object>>> getUser(@PathVariable(value = "user-id", required = true) String userId) {
-        User user = umsRepository.findUserByID(UUID.fromString(userId));
+    public Mono<ResponseEntity<ResponseEnvelope<User>>> getUser(@PathVariable(value = "user-id", required = true) String userId,
+                                                               ServerWebExchange exchange) {
+        UUID id = UUID.fromString(userId);
+        if (exchange.checkNotModified(profileVersions.userTag(id))) {
+            return Mono.empty();
+        }
+        User user = umsRepository.findUserByID(id);
         if (user.getId() == null) {
-            response.put(Constants.CODE, "404");
-            response.put(Constants.MESSAGE, "User have not been found");
-            response.put(Constants.DATA, new User());
-        } else {
-            response.put(Constants.CODE, "200");
-            response.put(Constants.MESSAGE, "User has been retrieved successfully");
-            response.put(Constants.DATA, user);
+            return Mono.just(buildResponse("404", "User have not been found", new User()));
         }
-        return Mono.just(ResponseEntity.ok().header(Constants.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
+        return Mono.just(buildResponse("200", "User has been retrieved successfully", user));
     }
 
-    @RequestMapping(method = RequestMethod.POST, path = "/users/user", consumes = Constants.APPLICATION_JSON)
-    public Mono<ResponseEntity<Map<String, Object>>> createUser(@RequestBody User user) {
+    @RequestMapping(method = RequestMethod.POST, path = "/users/user", consumes = { Constants.APPLICATION_JSON, Constants.APPLICATION_CBOR })
+    public Mono<ResponseEntity<ResponseEnvelope<Object>>> createUser(@RequestBody User user) {
         return authService.createUser(user)
                 .map(userId -> {
-                    Map<String, Object> payload = new HashMap<>();
                     if (userId == null) {
-                        payload.put(Constants.CODE, "500");
-                        payload.put(Constants.MESSAGE, "User has not been created");
-                        payload.put(Constants.DATA, "Check email for duplicates first");
-                    } else {
-                        payload.put(Constants.CODE, "201");
-                        payload.put(Constants.MESSAGE, "User created");
-                        payload.put(Constants.DATA, userId.toString());
+                        return buildResponse("500", "User has not been created", (Object) "Check email for duplicates first");
                     }
-                    return ResponseEntity.ok().header(Constants.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                            .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(payload);
+                    return buildResponse("201", "User created", (Object) userId.toString());
                 })
-                .onErrorResume(ex -> {
-                    Map<String, Object> payload = new HashMap<>();
-                    payload.put(Constants.CODE, "400");
-                    payload.put(Constants.MESSAGE, ex.getMessage());
-                    payload.put(Constants.DATA, false);
-                    return Mono.just(ResponseEntity.ok().header(Constants.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                            .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(payload));
-                });
+                .onErrorResume(ex -> !(ex instanceof ConcurrencyLimitExceededException),
+                        ex -> Mono.just(buildResponse("400", ex.getMessage(), (Object) false)));
     }
 
     @RequestMapping(method = RequestMethod.DELETE, path = "/users/user/{user-id}")
-    public Mono<ResponseEntity<Map<String, Object>>> deleteUser(@PathVariable(value = "user-id", required = true) String userId) {
+    public Mono<ResponseEntity<ResponseEnvelope<String>>> deleteUser(@PathVariable(value = "user-id", required = true) String userId) {
         int result = umsRepository.deleteUser(UUID.fromString(userId));
         if (result != 1) {
-            response.put(Constants.CODE, "500");
-            response.put(Constants.MESSAGE, "Error happened while deleting user");
-            response.put(Constants.DATA, userId);
-        } else {
-            response.put(Constants.CODE, "200");
-            response.put(Constants.MESSAGE, "User deleted");
-            response.put(Constants.DATA, userId.toString());
+            return Mono.just(buildResponse("500", "Error happened while deleting user", userId));
         }
-        return Mono.just(ResponseEntity.ok().header(Constants.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(response));
+        return Mono.just(buildResponse("200", "User deleted", userId.toString()));
     }
 
-    @RequestMapping(method = RequestMethod.PUT, path = "/users/user/{user-id}/roles", consumes = Constants.APPLICATION_JSON)
-    public Mono<ResponseEntity<Map<String, Object>>> updateUserRoles(@PathVariable(value = "user-id") String userId,
-                                                                     @RequestBody RoleUpdateRequest request) {
-        Map<String, Object> payload = new HashMap<>();
+    @RequestMapping(method = RequestMethod.PUT, path = "/users/user/{user-id}/roles", consumes = { Constants.APPLICATION_JSON, Constants.APPLICATION_CBOR })
+    public Mono<ResponseEntity<ResponseEnvelope<Object>>> updateUserRoles(@PathVariable(value = "user-id") String userId,
+                                                                          @RequestBody RoleUpdateRequest request) {
         UUID targetId;
         try {
             targetId = UUID.fromString(userId);
         } catch (IllegalArgumentException ex) {
-            payload.put(Constants.CODE, "400");
-            payload.put(Constants.MESSAGE, "Invalid user id");
-            payload.put(Constants.DATA, false);
-            return Mono.just(ResponseEntity.ok().header(Constants.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                    .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(payload));
+            return Mono.just(buildResponse("400", "Invalid user id", false));
         }
 
         User targetUser = umsRepository.findUserByID(targetId);
         if (targetUser.getId() == null) {
-            payload.put(Constants.CODE, "404");
-            payload.put(Constants.MESSAGE, "User have not been found");
-            payload.put(Constants.DATA, false);
-            return Mono.just(ResponseEntity.ok().header(Constants.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                    .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(payload));
+            return Mono.just(buildResponse("404", "User have not been found", false));
         }
 
+        ResponseEntity<ResponseEnvelope<Object>> response;
         try {
             int assigned = umsRepository.updateUserRoles(targetId, request == null ? null : request.roles());
-            payload.put(Constants.CODE, "200");
-            payload.put(Constants.MESSAGE, "User roles updated");
-            payload.put(Constants.DATA, assigned);
+            response = buildResponse("200", "User roles updated", assigned);
         } catch (IllegalArgumentException ex) {
-            payload.put(Constants.CODE, "400");
-            payload.put(Constants.MESSAGE, ex.getMessage());
-            payload.put(Constants.DATA, false);
+            response = buildResponse("400", ex.getMessage(), false);
+        } catch (ConcurrencyLimitExceededException ex) {
+            throw ex;
         } catch (Exception ex) {
-            payload.put(Constants.CODE, "500");
-            payload.put(Constants.MESSAGE, "Failed to update roles");
-            payload.put(Constants.DATA, false);
+            response = buildResponse("500", "Failed to update roles", false);
         }
+        return Mono.just(response);
+    }
 
-        return Mono.just(ResponseEntity.ok().header(Constants.CONTENT_TYPE, Constants.APPLICATION_JSON)
-                .header(Constants.ACCEPT, Constants.APPLICATION_JSON).body(payload));
+    private <T> ResponseEntity<ResponseEnvelope<T>> buildResponse(String code, String message, T data) {
+        return ResponseEntity.ok().header(Constants.ACCEPT, Constants.APPLICATION_JSON)
+                .body(new ResponseEnvelope<>(code, message, data));
     }
 }
@@ -1,5 +1,7 @@
 package com.ziminpro.ums.dao;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 import com.ziminpro.ums.auth.AuthUser;
@@ -10,6 +12,12 @@ public interface AuthRepository {
 
     AuthUser findAuthUserById(UUID userId);
 
+    /** Just the signing secret, null when the user does not exist. */
+    String findUserSecret(UUID userId);
+
+    /** Signing secrets of the given users in one query; users that do not exist are left out. */
+    Map<UUID, String> findUserSecrets(Collection<UUID> userIds);
+
     UUID findUserIdByIdentity(String provider, String providerUserId);
 
     int createUserIdentity(UUID userId, String provider, String providerUserId, String email);
@@ -0,0 +1,31 @@
+package com.ziminpro.ums.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ziminpro.ums.dtos.Constants;
+import com.ziminpro.ums.dtos.Roles;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class JdbcRoleRepository implements RoleRepository {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Map<String, Roles> findAllRoles() {
+        Map<String, Roles> roles = new HashMap<>();
+        jdbcTemplate.query(Constants.GET_ALL_ROLES, rs -> {
+            // a role without a name cannot be assigned or looked up
+            if (rs.getString("roles.name") == null) {
+                return;
+            }
+            Roles role = new Roles(DaoHelper.bytesArrayToUuid(rs.getBytes("roles.id")), rs.getString("roles.name"),
+                    rs.getString("roles.description"));
+            roles.put(rs.getString("roles.name"), role);
+        });
+        return roles;
+    }
+}
@@ -1,55 +1,114 @@
 package com.ziminpro.ums.dao;
 
+import java.sql.PreparedStatement;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Locale;
 import java.util.UUID;
 
+import com.ziminpro.common.concurrency.ConcurrencyLimitExceededException;
 import com.ziminpro.ums.auth.AuthUser;
+import com.ziminpro.ums.auth.SecretCache;
 import com.ziminpro.ums.auth.SecretGenerator;
+import com.ziminpro.ums.changes.UserChangeFeed;
 import com.ziminpro.ums.dtos.Constants;
 import com.ziminpro.ums.dtos.LastSession;
 import com.ziminpro.ums.dtos.Roles;
 import com.ziminpro.ums.dtos.User;
+import com.ziminpro.ums.dtos.UserChange;
+import com.ziminpro.ums.dtos.UserQuery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Repository
 public class JdbcUmsRepository implements UmsRepository, AuthRepository {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
-    @Override
-    public Map<UUID, User> findAllUsers() {
-        Map<UUID, User> users = new HashMap<>();
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
-        List<Object> oUsers = jdbcTemplate.query(Constants.GET_ALL_USERS,
-                (rs, rowNum) -> new User(DaoHelper.bytesArrayToUuid(rs.getBytes("users.id")), rs.getString("users.name"),
-                        rs.getString("users.email"), rs.getString("users.password"), rs.getInt("users.created"),
-                        Arrays.asList(new Roles(DaoHelper.bytesArrayToUuid(rs.getBytes("roles.id")),
-                                rs.getString("roles.name"), rs.getString("roles.description"))),
-                        new LastSession(rs.getInt("last_visit.in"), rs.getInt("last_visit.out"))));
+    @Autowired
+    private UserChangeRepository userChangeRepository;
 
-        for (Object oUser : oUsers) {
-            if (!users.containsKey(((User) oUser).getId())) {
-                User user = new User();
-                user.setId(((User) oUser).getId());
-                user.setName(((User) oUser).getName());
-                user.setEmail(((User) oUser).getEmail());
-                user.setPassword(((User) oUser).getPassword());
-                user.setCreated(((User) oUser).getCreated());
-                user.setLastSession(((User) oUser).getLastSession());
-                users.put(((User) oUser).getId(), user);
-            }
-            users.get(((User) oUser).getId()).addRole(((User) oUser).getRoles().get(0));
+    @Autowired
+    private SecretCache secretCache;
+
+    @Autowired
+    private UserChangeFeed userChangeFeed;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Value("${app.users.fetch-size}")
+    private int fetchSize;
+
+    @Override
+    public List<User> findUsers(UserQuery query, UUID after, int limit) {
+        StringBuilder ids = new StringBuilder(Constants.GET_USER_IDS_AFTER);
+        List<Object> args = new ArrayList<>();
+        args.add(after.toString());
+        if (query.role() != null) {
+            ids.append(Constants.USER_HAS_ROLE);
+            args.add(query.role());
+        }
+        if (query.createdFrom() != null) {
+            ids.append(Constants.USER_CREATED_FROM);
+            args.add(query.createdFrom());
+        }
+        if (query.createdTo() != null) {
+            ids.append(Constants.USER_CREATED_TO);
+            args.add(query.createdTo());
         }
+        ids.append(Constants.ORDER_BY_USER_ID_LIMIT);
+        args.add(limit);
+
+        List<User> users = new ArrayList<>(limit);
+        // rows come in id order, so each one either extends the last user or starts the next
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(String.format(Constants.GET_USERS_PAGE, ids));
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> foldRow(users, DaoHelper.bytesArrayToUuid(rs.getBytes("users.id")),
+                rs.getString("users.name"), rs.getString("users.email"), rs.getString("users.password"),
+                rs.getInt("users.created"), new LastSession(rs.getInt("last_visit.in"), rs.getInt("last_visit.out")),
+                rs.getBytes("roles.id") == null ? null : new Roles(DaoHelper.bytesArrayToUuid(rs.getBytes("roles.id")),
+                        rs.getString("roles.name"), rs.getString("roles.description"))));
         return users;
     }
 
+    // one row per (user, role) pair from the users/roles join, in user id order; role is null for a user without roles
+    static void foldRow(List<User> users, UUID id, String name, String email, String password, int created,
+                        LastSession lastSession, Roles role) {
+        User user = users.isEmpty() ? null : users.get(users.size() - 1);
+        if (user == null || !user.getId().equals(id)) {
+            user = new User();
+            user.setId(id);
+            user.setName(name);
+            user.setEmail(email);
+            user.setPassword(password);
+            user.setCreated(created);
+            user.setLastSession(lastSession);
+            users.add(user);
+        }
+        if (role != null) {
+            user.addRole(role);
+        }
+    }
+
     @Override
     public User findUserByID(UUID userId) {
         User user = new User();
@@ -77,7 +136,7 @@ public class JdbcUmsRepository implements UmsRepository, AuthRepository {
     @Override
     public UUID createUser(User user) {
         long timestamp = Instant.now().getEpochSecond();
-        Map<String, Roles> roles = this.findAllRoles();
+        Map<String, Roles> roles = roleRegistry.roles();
         UUID userId = UUID.randomUUID();
         String secretKey = SecretGenerator.newSecret();
 
@@ -88,6 +147,8 @@ public class JdbcUmsRepository implements UmsRepository, AuthRepository {
                 jdbcTemplate.update(Constants.ASSIGN_ROLE, userId.toString(),
                         roles.get(role.getRole()).getRoleId().toString());
             }
+        } catch (ConcurrencyLimitExceededException e) {
+            throw e;
         } catch (Exception e) {
             return null;
         }
@@ -104,8 +165,8 @@ public class JdbcUmsRepository implements UmsRepository, AuthRepository {
             throw new IllegalArgumentException("Roles are required");
         }
 
-        Map<String, Roles> roles = this.findAllRoles();
-        List<String> normalized = new java.util.ArrayList<>();
+        Map<String, Roles> roles = roleRegistry.roles();
+        List<String> normalized = new ArrayList<>();
         for (String role : rolesList) {
             if (role == null || role.isBlank()) {
                 continue;
@@ -125,28 +186,43 @@ public class JdbcUmsRepository implements UmsRepository, AuthRepository {
             }
         }
 
-        jdbcTemplate.update(Constants.DELETE_USER_ROLES, userId.toString());
-        for (String role : normalized) {
-            jdbcTemplate.update(Constants.ASSIGN_ROLE, userId.toString(),
-                    roles.get(role).getRoleId().toString());
+        try {
+            // the change row commits with the roles, so the feed never reports a change that rolled back
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(Constants.DELETE_USER_ROLES, userId.toString());
+                for (String role : normalized) {
+                    jdbcTemplate.update(Constants.ASSIGN_ROLE, userId.toString(),
+                            roles.get(role).getRoleId().toString());
+                }
+                jdbcTemplate.update(Constants.BUMP_USER_VERSION, userId.toString());
+                userChangeRepository.append(userId, UserChange.ROLES_CHANGED);
+            });
+        } finally {
+            secretCache.invalidate(userId);
         }
+        userChangeFeed.published();
         return normalized.size();
     }
 
     @Override
     public int deleteUser(UUID userId) {
-        return jdbcTemplate.update(Constants.DELETE_USER, userId.toString());
-    }
-
-    @Override
-    public Map<String, Roles> findAllRoles() {
-        Map<String, Roles> roles = new HashMap<>();
-        jdbcTemplate.query(Constants.GET_ALL_ROLES, rs -> {
-            Roles role = new Roles(DaoHelper.bytesArrayToUuid(rs.getBytes("roles.id")), rs.getString("roles.name"),
-                    rs.getString("roles.description"));
-            roles.put(rs.getString("roles.name"), role);
-        });
-        return roles;
+        int deleted;
+        try {
+            deleted = transactionTemplate.execute(status -> {
+                int rows = jdbcTemplate.update(Constants.DELETE_USER, userId.toString());
+                // relying services purge what a deleted user left behind, so only a delete that happened counts
+                if (rows > 0) {
+                    userChangeRepository.append(userId, UserChange.USER_DELETED);
+                }
+                return rows;
+            });
+        } finally {
+            secretCache.invalidate(userId);
+        }
+        if (deleted > 0) {
+            userChangeFeed.published();
+        }
+        return deleted;
     }
 
     @Override
@@ -207,6 +283,26 @@ public class JdbcUmsRepository implements UmsRepository, AuthRepository {
         return user;
     }
 
+    @Override
+    public String findUserSecret(UUID userId) {
+        List<String> secrets = jdbcTemplate.query(Constants.GET_USER_SECRET,
+                (rs, rowNum) -> rs.getString("secret_key"), userId.toString());
+        return secrets.isEmpty() ? null : secrets.get(0);
+    }
+
+    @Override
+    public Map<UUID, String> findUserSecrets(Collection<UUID> userIds) {
+        Map<UUID, String> secrets = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return secrets;
+        }
+        String in = "(" + String.join(", ", Collections.nCopies(userIds.size(), "UUID_TO_BIN(?)")) + ");";
+        jdbcTemplate.query(Constants.GET_USER_SECRETS_FOR + in, rs -> {
+            secrets.put(DaoHelper.bytesArrayToUuid(rs.getBytes("id")), rs.getString("secret_key"));
+        }, userIds.stream().map(UUID::toString).toArray());
+        return secrets;
+    }
+
     @Override
     public UUID findUserIdByIdentity(String provider, String providerUserId) {
         List<UUID> ids = jdbcTemplate.query(Constants.GET_USER_IDENTITY,
@@ -229,7 +325,22 @@ public class JdbcUmsRepository implements UmsRepository, AuthRepository {
 
     @Override
     public int updateUserSecret(UUID userId, String newSecret) {
-        return jdbcTemplate.update(Constants.UPDATE_USER_SECRET, newSecret, userId.toString());
+        int updated;
+        try {
+            updated = transactionTemplate.execute(status -> {
+                int rows = jdbcTemplate.update(Constants.UPDATE_USER_SECRET, newSecret, userId.toString());
+                if (rows > 0) {
+                    userChangeRepository.append(userId, UserChange.SECRET_ROTATED);
+                }
+                return rows;
+            });
+        } finally {
+            secretCache.invalidate(userId);
+        }
+        if (updated > 0) {
+            userChangeFeed.published();
+        }
+        return updated;
     }
 
     @Override
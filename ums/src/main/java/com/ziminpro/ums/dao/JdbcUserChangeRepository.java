@@ -0,0 +1,59 @@
+package com.ziminpro.ums.dao;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import com.ziminpro.ums.dtos.Constants;
+import com.ziminpro.ums.dtos.UserChange;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class JdbcUserChangeRepository implements UserChangeRepository {
+    // ER_LOCK_NOWAIT: a NOWAIT locking read met a row another transaction holds
+    private static final int LOCK_NOWAIT = 3572;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void append(UUID userId, String type) {
+        jdbcTemplate.update(Constants.CREATE_USER_CHANGE, userId.toString(), type, Instant.now().getEpochSecond());
+    }
+
+    @Override
+    public List<UserChange> findChangesAfter(long sequence, int limit) {
+        return jdbcTemplate.query(Constants.GET_USER_CHANGES_AFTER,
+                (rs, rowNum) -> new UserChange(rs.getLong("id"), DaoHelper.bytesArrayToUuid(rs.getBytes("user_id")),
+                        rs.getString("change_type"), rs.getLong("created")),
+                sequence, limit);
+    }
+
+    @Override
+    public long[] findSequenceBounds() {
+        return jdbcTemplate.queryForObject(Constants.GET_USER_CHANGE_BOUNDS,
+                (rs, rowNum) -> new long[] { rs.getLong("first"), rs.getLong("last") });
+    }
+
+    @Override
+    public boolean isGapSettled(long after, long before) {
+        // an insert that is still in flight holds its row, so the locking read fails instead of skipping it
+        try {
+            return jdbcTemplate.queryForList(Constants.PROBE_USER_CHANGE_GAP, Long.class, after, before).isEmpty();
+        } catch (DataAccessException e) {
+            if (e.getMostSpecificCause() instanceof SQLException sql && sql.getErrorCode() == LOCK_NOWAIT) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public int deleteExpiredChanges(long createdBefore, long belowSequence, int limit) {
+        return jdbcTemplate.update(Constants.DELETE_EXPIRED_USER_CHANGES, createdBefore, belowSequence, limit);
+    }
+}
@@ -0,0 +1,22 @@
+package com.ziminpro.ums.dao;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.ziminpro.ums.dtos.Constants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class JdbcUserVersionRepository implements UserVersionRepository {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public long getUserVersion(UUID userId) {
+        List<Long> versions = jdbcTemplate.query(Constants.GET_USER_VERSION,
+                (rs, rowNum) -> rs.getLong("version"), userId.toString());
+        return versions.isEmpty() ? -1 : versions.getFirst();
+    }
+}
@@ -0,0 +1,31 @@
+package com.ziminpro.ums.dao;
+
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * ETags for user profiles and the role list. A user's version lives in the
+ * {@code users} row and is bumped inside the transaction that changes the
+ * profile, so every replica hands out the same tag and a restart does not reset
+ * it. The role list only changes by migration; its tag is derived from the
+ * roles {@link RoleRegistry} currently serves, so it always matches the body.
+ */
+@Component
+public class ProfileVersions {
+    @Autowired
+    private UserVersionRepository userVersionRepository;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    public String userTag(UUID userId) {
+        long version = userVersionRepository.getUserVersion(userId);
+        return "W/\"" + (version < 0 ? "none" : Long.toHexString(version)) + "\"";
+    }
+
+    public String rolesTag() {
+        return "W/\"" + Integer.toHexString(roleRegistry.roles().hashCode()) + "\"";
+    }
+}
@@ -0,0 +1,52 @@
+package com.ziminpro.ums.dao;
+
+import java.util.Map;
+
+import com.ziminpro.ums.dtos.Roles;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The role table as an immutable name to role map, so creating a user,
+ * changing roles and {@code GET /roles} do not query it. Loaded on first use
+ * (warm-up does that before the replica takes traffic) and reloaded every
+ * {@code app.roles.refresh-interval}: roles only change by migration, so one
+ * shipped by a newer replica reaches the running ones on their next reload.
+ * A reload that fails
+ * keeps the map already loaded. The roles ETag is derived from the map, so a
+ * reload that finds different roles changes it.
+ */
+@Component
+public class RoleRegistry {
+    private final RoleRepository roleRepository;
+    private final Counter refreshErrors;
+    private volatile Map<String, Roles> roles;
+
+    public RoleRegistry(RoleRepository roleRepository, MeterRegistry registry) {
+        this.roleRepository = roleRepository;
+        this.refreshErrors = registry.counter("roles.refresh.errors");
+    }
+
+    public Map<String, Roles> roles() {
+        Map<String, Roles> current = roles;
+        return current != null ? current : refresh();
+    }
+
+    public synchronized Map<String, Roles> refresh() {
+        Map<String, Roles> loaded = Map.copyOf(roleRepository.findAllRoles());
+        roles = loaded;
+        return loaded;
+    }
+
+    @Scheduled(fixedDelayString = "${app.roles.refresh-interval}", initialDelayString = "${app.roles.refresh-interval}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // the database being away (or the lane shedding) is no reason to drop roles that were fine
+            refreshErrors.increment();
+        }
+    }
+}
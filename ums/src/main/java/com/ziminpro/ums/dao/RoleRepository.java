@@ -0,0 +1,10 @@
+package com.ziminpro.ums.dao;
+
+import java.util.Map;
+
+import com.ziminpro.ums.dtos.Roles;
+
+public interface RoleRepository {
+
+    Map<String, Roles> findAllRoles();
+}
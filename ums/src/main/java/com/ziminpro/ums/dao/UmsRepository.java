@@ -1,22 +1,24 @@
 package com.ziminpro.ums.dao;
 
-import java.util.Map;
+import java.util.List;
 import java.util.UUID;
 
-import com.ziminpro.ums.dtos.Roles;
 import com.ziminpro.ums.dtos.User;
+import com.ziminpro.ums.dtos.UserQuery;
 
 public interface UmsRepository {
 
-    Map<UUID, User> findAllUsers();
-
-    Map<String, Roles> findAllRoles();
+    /**
+     * Up to {@code limit} users matching {@code query} whose id sorts after {@code after},
+     * in id order, each with all of its roles.
+     */
+    List<User> findUsers(UserQuery query, UUID after, int limit);
 
     User findUserByID(UUID userId);
 
     UUID createUser(User user);
 
-    int updateUserRoles(UUID userId, java.util.List<String> roles);
+    int updateUserRoles(UUID userId, List<String> roles);
 
     int deleteUser(UUID userId);
 }
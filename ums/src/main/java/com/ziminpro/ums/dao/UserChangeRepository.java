@@ -0,0 +1,21 @@
+package com.ziminpro.ums.dao;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.ziminpro.ums.dtos.UserChange;
+
+public interface UserChangeRepository {
+
+    void append(UUID userId, String type);
+
+    List<UserChange> findChangesAfter(long sequence, int limit);
+
+    /** The lowest and highest sequence still stored, both 0 while there are none. */
+    long[] findSequenceBounds();
+
+    /** Whether no id between the two sequences can still commit: false while a writer holds one of them. */
+    boolean isGapSettled(long after, long before);
+
+    int deleteExpiredChanges(long createdBefore, long belowSequence, int limit);
+}
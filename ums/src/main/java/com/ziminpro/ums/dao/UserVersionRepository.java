@@ -0,0 +1,8 @@
+package com.ziminpro.ums.dao;
+
+import java.util.UUID;
+
+public interface UserVersionRepository {
+    /** -1 for a user that does not exist (or no longer does). */
+    long getUserVersion(UUID userId);
+}
@@ -12,6 +12,7 @@ public class Constants {
 
     // HEADERS Section
     public static final String APPLICATION_JSON = "application/json";
+    public static final String APPLICATION_CBOR = "application/cbor";
     public static final String CONTENT_TYPE = "Content-Type";
     public static final String ACCEPT = "Accept";
 
@@ -21,10 +22,22 @@ public class Constants {
     public static final String TABLE_ROLES = "`roles`";
     public static final String TABLE_LAST_VISIT = "`last_visit`";
     public static final String TABLE_USERS_ROLES = "`users_has_roles`";
-    public static final String GET_ALL_USERS = "SELECT * FROM " + TABLE_USERS + " LEFT JOIN " + TABLE_USERS_ROLES
-            + " ON " + TABLE_USERS_ROLES + ".`users_id` = " + TABLE_USERS + ".`id` LEFT JOIN " + TABLE_ROLES + " ON "
-            + TABLE_USERS_ROLES + ".`roles_id` = " + TABLE_ROLES + ".`id` LEFT JOIN " + TABLE_LAST_VISIT + " ON "
-            + TABLE_USERS + ".`last_visit_id` = " + TABLE_LAST_VISIT + ".`id`;";
+    public static final String TABLE_USER_CHANGES = "`user_changes`";
+    // keyset page of user ids: the filters go between the base and the order, then the page is joined to
+    // its roles and last visit, one row per (user, role) in id order
+    public static final String GET_USER_IDS_AFTER = "SELECT " + TABLE_USERS + ".`id` FROM " + TABLE_USERS + " WHERE "
+            + TABLE_USERS + ".`id` > UUID_TO_BIN(?)";
+    public static final String USER_HAS_ROLE = " AND EXISTS (SELECT 1 FROM " + TABLE_USERS_ROLES + " JOIN " + TABLE_ROLES
+            + " ON " + TABLE_ROLES + ".`id` = " + TABLE_USERS_ROLES + ".`roles_id` WHERE " + TABLE_USERS_ROLES
+            + ".`users_id` = " + TABLE_USERS + ".`id` AND " + TABLE_ROLES + ".`name` = ?)";
+    public static final String USER_CREATED_FROM = " AND " + TABLE_USERS + ".`created` >= ?";
+    public static final String USER_CREATED_TO = " AND " + TABLE_USERS + ".`created` < ?";
+    public static final String ORDER_BY_USER_ID_LIMIT = " ORDER BY " + TABLE_USERS + ".`id` LIMIT ?";
+    public static final String GET_USERS_PAGE = "SELECT * FROM (%s) AS `page` JOIN " + TABLE_USERS + " ON "
+            + TABLE_USERS + ".`id` = `page`.`id` LEFT JOIN " + TABLE_USERS_ROLES + " ON " + TABLE_USERS_ROLES
+            + ".`users_id` = " + TABLE_USERS + ".`id` LEFT JOIN " + TABLE_ROLES + " ON " + TABLE_USERS_ROLES
+            + ".`roles_id` = " + TABLE_ROLES + ".`id` LEFT JOIN " + TABLE_LAST_VISIT + " ON " + TABLE_USERS
+            + ".`last_visit_id` = " + TABLE_LAST_VISIT + ".`id` ORDER BY " + TABLE_USERS + ".`id`;";
     public static final String GET_USER_BY_ID_FULL = "SELECT * FROM " + TABLE_USERS + " LEFT JOIN " + TABLE_USERS_ROLES
             + " ON " + TABLE_USERS_ROLES + ".`users_id` = " + TABLE_USERS + ".`id` LEFT JOIN " + TABLE_ROLES + " ON "
             + TABLE_USERS_ROLES + ".`roles_id` = " + TABLE_ROLES + ".`id` LEFT JOIN " + TABLE_LAST_VISIT + " ON "
@@ -46,10 +59,25 @@ public class Constants {
     public static final String GET_ALL_ROLES = "SELECT * FROM " + TABLE_ROLES;
     public static final String DELETE_USER = "DELETE FROM " + TABLE_USERS + " WHERE `id` = (UUID_TO_BIN(?));";
     public static final String DELETE_LAST_VISIT = "DELETE FROM " + TABLE_LAST_VISIT + " WHERE `id` = (UUID_TO_BIN(?));";
+    public static final String GET_USER_SECRET = "SELECT `secret_key` FROM " + TABLE_USERS + " WHERE `id`=UUID_TO_BIN(?);";
+    public static final String GET_USER_SECRETS_FOR = "SELECT `id`, `secret_key` FROM " + TABLE_USERS + " WHERE `id` IN ";
     public static final String UPDATE_USER_SECRET = "UPDATE " + TABLE_USERS + " SET `secret_key`=? WHERE `id`=UUID_TO_BIN(?);";
+    public static final String BUMP_USER_VERSION = "UPDATE " + TABLE_USERS
+            + " SET `version` = `version` + 1 WHERE `id`=UUID_TO_BIN(?);";
+    public static final String GET_USER_VERSION = "SELECT `version` FROM " + TABLE_USERS + " WHERE `id`=UUID_TO_BIN(?);";
     public static final String UPDATE_USER_PASSWORD = "UPDATE " + TABLE_USERS + " SET `password`=? WHERE `id`=UUID_TO_BIN(?);";
     public static final String GET_USER_IDENTITY = "SELECT `user_id` FROM `user_identities` WHERE `provider`=? AND `provider_user_id`=?;";
     public static final String CREATE_USER_IDENTITY = "INSERT INTO `user_identities` "
             + "(`id`, `user_id`, `provider`, `provider_user_id`, `email`, `created`) VALUES "
             + "(UUID_TO_BIN(?), UUID_TO_BIN(?), ?, ?, ?, ?);";
+    public static final String CREATE_USER_CHANGE = "INSERT INTO " + TABLE_USER_CHANGES
+            + " (`user_id`, `change_type`, `created`) VALUES (UUID_TO_BIN(?), ?, ?);";
+    public static final String GET_USER_CHANGES_AFTER = "SELECT `id`, `user_id`, `change_type`, `created` FROM "
+            + TABLE_USER_CHANGES + " WHERE `id` > ? ORDER BY `id` LIMIT ?;";
+    public static final String PROBE_USER_CHANGE_GAP = "SELECT `id` FROM " + TABLE_USER_CHANGES
+            + " WHERE `id` > ? AND `id` < ? FOR SHARE NOWAIT;";
+    public static final String GET_USER_CHANGE_BOUNDS = "SELECT COALESCE(MIN(`id`), 0) AS `first`, "
+            + "COALESCE(MAX(`id`), 0) AS `last` FROM " + TABLE_USER_CHANGES + ";";
+    public static final String DELETE_EXPIRED_USER_CHANGES = "DELETE FROM " + TABLE_USER_CHANGES
+            + " WHERE `created` < ? AND `id` < ? LIMIT ?;";
 }
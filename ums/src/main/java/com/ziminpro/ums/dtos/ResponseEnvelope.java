@@ -0,0 +1,3 @@
+package com.ziminpro.ums.dtos;
+
+public record ResponseEnvelope<T>(String code, String message, T data) {}
@@ -0,0 +1,17 @@
+package com.ziminpro.ums.dtos;
+
+import java.util.UUID;
+
+/**
+ * A committed change to a user that relying services may have cached.
+ * {@code sequence} is the change row id: changes are delivered in sequence
+ * order and a subscriber resumes after the last sequence it saw. A
+ * {@link #RESET} carries no user; it tells the subscriber that changes it has
+ * not seen are gone and everything it cached must be dropped.
+ */
+public record UserChange(long sequence, UUID userId, String type, long created) {
+    public static final String SECRET_ROTATED = "SecretRotated";
+    public static final String ROLES_CHANGED = "RolesChanged";
+    public static final String USER_DELETED = "UserDeleted";
+    public static final String RESET = "Reset";
+}
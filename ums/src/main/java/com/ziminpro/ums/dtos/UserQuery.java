@@ -0,0 +1,8 @@
+package com.ziminpro.ums.dtos;
+
+/**
+ * Filters of a user listing; a null field does not filter. {@code createdFrom}
+ * is inclusive and {@code createdTo} exclusive, both in epoch seconds.
+ */
+public record UserQuery(String role, Integer createdFrom, Integer createdTo) {
+}
@@ -0,0 +1,35 @@
+package com.ziminpro.ums.metrics;
+
+import com.ziminpro.common.metrics.Instrumentation;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Times the delegate as {@code auth.crypto}; bcrypt is deliberately slow and is the
+ * main CPU cost of login and registration.
+ */
+public class TimedPasswordEncoder implements PasswordEncoder {
+    private static final String TIMER = "auth.crypto";
+
+    private final PasswordEncoder delegate;
+    private final Instrumentation instrumentation;
+
+    public TimedPasswordEncoder(PasswordEncoder delegate, Instrumentation instrumentation) {
+        this.delegate = delegate;
+        this.instrumentation = instrumentation;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return instrumentation.record(TIMER, "bcrypt.encode", () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return instrumentation.record(TIMER, "bcrypt.matches", () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -2,13 +2,11 @@ package com.ziminpro.ums.security;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
-import java.util.HashMap;
-import java.util.Map;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ziminpro.ums.auth.AuthResponse;
 import com.ziminpro.ums.auth.AuthService;
-import com.ziminpro.ums.dtos.Constants;
+import com.ziminpro.ums.dtos.ResponseEnvelope;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.server.reactive.ServerHttpResponse;
@@ -61,14 +59,12 @@ public class GithubAuthSuccessHandler implements ServerAuthenticationSuccessHand
     }
 
     private Mono<Void> writeError(ServerWebExchange exchange, String message) {
-        Map<String, Object> body = new HashMap<>();
-        body.put(Constants.CODE, "401");
-        body.put(Constants.MESSAGE, message == null ? "GitHub login failed" : message);
-        body.put(Constants.DATA, false);
+        ResponseEnvelope<Boolean> body = new ResponseEnvelope<>("401",
+                message == null ? "GitHub login failed" : message, false);
         return writeJson(exchange, HttpStatus.UNAUTHORIZED, body);
     }
 
-    private Mono<Void> writeJson(ServerWebExchange exchange, HttpStatus status, Map<String, Object> body) {
+    private Mono<Void> writeJson(ServerWebExchange exchange, HttpStatus status, ResponseEnvelope<?> body) {
         try {
             byte[] payload = objectMapper.writeValueAsBytes(body);
             exchange.getResponse().setStatusCode(status);
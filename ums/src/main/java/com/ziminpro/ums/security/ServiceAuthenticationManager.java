@@ -0,0 +1,48 @@
+package com.ziminpro.ums.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Checks the HTTP Basic credential another service presents for the internal
+ * endpoints ({@code app.service-auth.*}). The secret is compared in constant
+ * time; with no secret configured every attempt is rejected, so the endpoints
+ * stay closed rather than open. Kept out of the context on purpose: a
+ * {@link ReactiveAuthenticationManager} bean would become the default of every
+ * filter chain.
+ */
+public class ServiceAuthenticationManager implements ReactiveAuthenticationManager {
+    public static final String ROLE = "SERVICE";
+
+    private final String name;
+    private final byte[] secret;
+
+    public ServiceAuthenticationManager(String name, String secret) {
+        this.name = name;
+        this.secret = secret == null ? new byte[0] : secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        return Mono.fromSupplier(() -> {
+            Object credentials = authentication.getCredentials();
+            byte[] presented = credentials == null ? new byte[0]
+                    : credentials.toString().getBytes(StandardCharsets.UTF_8);
+            boolean secretMatches = MessageDigest.isEqual(presented, secret);
+            if (secret.length == 0 || !secretMatches || !name.equals(authentication.getName())) {
+                throw new BadCredentialsException("Invalid service credentials");
+            }
+            return UsernamePasswordAuthenticationToken.authenticated(name, null,
+                    List.of(new SimpleGrantedAuthority("ROLE_" + ROLE)));
+        });
+    }
+}
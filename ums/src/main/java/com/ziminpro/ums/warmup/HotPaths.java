@@ -0,0 +1,109 @@
+package com.ziminpro.ums.warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.SignedJWT;
+import com.ziminpro.common.warmup.WarmUp;
+import com.ziminpro.common.warmup.WarmUpSteps;
+import com.ziminpro.ums.auth.AuthUser;
+import com.ziminpro.ums.auth.JwtService;
+import com.ziminpro.ums.dao.RoleRegistry;
+import com.ziminpro.ums.dao.UmsRepository;
+import com.ziminpro.ums.dtos.ResponseEnvelope;
+import com.ziminpro.ums.dtos.Roles;
+import com.ziminpro.ums.dtos.User;
+import com.ziminpro.ums.dtos.UserQuery;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * UMS's warm-up: token signing, decoding and verification, the role registry,
+ * a user lookup and the envelope codecs. A failing step here is usually MySQL
+ * not being reachable yet.
+ */
+@Component
+public class HotPaths implements WarmUpSteps {
+    private static final UUID ORIGIN = new UUID(0, 0);
+    private static final UserQuery ALL_USERS = new UserQuery(null, null, null);
+    private static final int ENVELOPE_SIZE = 20;
+    private static final ResolvableType ENVELOPE_TYPE = ResolvableType.forClassWithGenerics(ResponseEnvelope.class,
+            ResolvableType.forClassWithGenerics(List.class, User.class));
+
+    private final JwtService jwtService;
+    private final ReactiveJwtDecoder jwtDecoder;
+    private final UmsRepository umsRepository;
+    private final RoleRegistry roleRegistry;
+    private final ServerCodecConfigurer codecs;
+
+    public HotPaths(JwtService jwtService, ReactiveJwtDecoder jwtDecoder, UmsRepository umsRepository,
+                    RoleRegistry roleRegistry, ServerCodecConfigurer codecs) {
+        this.jwtService = jwtService;
+        this.jwtDecoder = jwtDecoder;
+        this.umsRepository = umsRepository;
+        this.roleRegistry = roleRegistry;
+        this.codecs = codecs;
+    }
+
+    @Override
+    public Map<String, Callable<?>> steps(long deadline) {
+        AuthUser user = syntheticUser();
+        byte[] secret = user.getSecretKey().getBytes(StandardCharsets.UTF_8);
+        String token = jwtService.buildAuthResponse(user).token();
+
+        Map<String, Callable<?>> steps = new LinkedHashMap<>();
+        steps.put("jwt.sign", () -> jwtService.buildAuthResponse(user));
+        // the synthetic subject is not in the users table, so decode stops at the lookup with a plain rejection
+        steps.put("jwt.decode", () -> jwtDecoder.decode(token)
+                .onErrorResume(ex -> ex instanceof BadJwtException && ex.getCause() == null, ex -> Mono.empty())
+                .block(WarmUp.remaining(deadline)));
+        steps.put("jwt.verify", () -> SignedJWT.parse(token).verify(new MACVerifier(secret)));
+        // loads the registry, so the first user write does not pay for it
+        steps.put("roles", roleRegistry::refresh);
+        // the first listed user, so the lookup joins real role and visit rows; an empty table only warms the listing
+        steps.put("user.lookup", () -> {
+            List<User> first = umsRepository.findUsers(ALL_USERS, ORIGIN, 1);
+            return first.isEmpty() ? null : umsRepository.findUserByID(first.getFirst().getId());
+        });
+        steps.putAll(WarmUp.encoderSteps(codecs, syntheticEnvelope(), ENVELOPE_TYPE));
+        return steps;
+    }
+
+    private AuthUser syntheticUser() {
+        AuthUser user = new AuthUser();
+        user.setId(UUID.randomUUID());
+        user.setName("warm-up");
+        user.setEmail("warm-up@localhost");
+        user.setSecretKey(UUID.randomUUID().toString().repeat(2));
+        user.addRole("SUBSCRIBER");
+        user.addRole("PRODUCER");
+        return user;
+    }
+
+    private ResponseEnvelope<List<User>> syntheticEnvelope() {
+        int now = (int) Instant.now().getEpochSecond();
+        List<User> users = new ArrayList<>(ENVELOPE_SIZE);
+        for (int i = 0; i < ENVELOPE_SIZE; i++) {
+            User user = new User();
+            user.setId(UUID.randomUUID());
+            user.setName("warm-up " + i);
+            user.setEmail("warm-up-" + i + "@localhost");
+            user.setCreated(now - i);
+            user.addRole(new Roles(UUID.randomUUID(), "SUBSCRIBER", "Subscriber"));
+            users.add(user);
+        }
+        return new ResponseEnvelope<>("200", "List of users has been requested successfully", users);
+    }
+}
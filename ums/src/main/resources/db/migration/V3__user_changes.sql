@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS `user_changes` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `user_id` binary(16) NOT NULL,
+  `change_type` varchar(32) NOT NULL,
+  `created` int NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_user_changes_created` (`created`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
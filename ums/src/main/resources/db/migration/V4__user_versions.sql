@@ -0,0 +1,2 @@
+-- bumped in the same transaction as every write that changes what GET /users/user/{id} shows
+ALTER TABLE `users` ADD COLUMN `version` bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,112 @@
+package com.ziminpro.ums.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+class IntrospectionCacheTest {
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+    private final SecretCache secretCache = new SecretCache(Duration.ofHours(1), 100, new SimpleMeterRegistry());
+
+    private IntrospectionCache cache(Duration ttl) {
+        return new IntrospectionCache(secretCache, ttl, 100, new SimpleMeterRegistry());
+    }
+
+    private static Jwt jwt(UUID userId, Instant expiresAt) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "HS256")
+                .subject(userId.toString())
+                .issuedAt(expiresAt.minusSeconds(3600))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    private static IntrospectResponse active(UUID userId) {
+        return new IntrospectResponse(true, userId.toString(), List.of("SUBSCRIBER"));
+    }
+
+    @Test
+    void aUsersInvalidationTurnsOnlyTheirTokensIntoMisses() {
+        IntrospectionCache cache = cache(Duration.ofHours(1));
+        Instant exp = Instant.now().plusSeconds(600);
+        cache.put("alice-token", jwt(ALICE, exp), active(ALICE), secretCache.generation());
+        cache.put("bob-token", jwt(BOB, exp), active(BOB), secretCache.generation());
+
+        secretCache.invalidate(ALICE);
+
+        assertThat(cache.get("alice-token")).isNull();
+        assertThat(cache.get("bob-token")).isEqualTo(active(BOB));
+    }
+
+    @Test
+    void aVerificationThatRacedWithAnInvalidationIsNotKept() {
+        IntrospectionCache cache = cache(Duration.ofHours(1));
+        long generation = secretCache.generation();
+
+        // another user's rotation lands between sampling the generation and caching
+        secretCache.invalidate(BOB);
+        cache.put("alice-token", jwt(ALICE, Instant.now().plusSeconds(600)), active(ALICE), generation);
+
+        assertThat(cache.get("alice-token")).isNull();
+    }
+
+    @Test
+    void entriesLastNoLongerThanTheSecretCacheTtl() throws InterruptedException {
+        IntrospectionCache cache = cache(Duration.ofMillis(50));
+        cache.put("alice-token", jwt(ALICE, Instant.now().plusSeconds(3600)), active(ALICE),
+                secretCache.generation());
+        assertThat(cache.get("alice-token")).isNotNull();
+
+        Thread.sleep(80);
+
+        assertThat(cache.get("alice-token")).isNull();
+    }
+
+    @Test
+    void aFullCacheDropsOnlyTheLeastRecentlyUsedToken() {
+        IntrospectionCache cache = new IntrospectionCache(secretCache, Duration.ofHours(1), 2,
+                new SimpleMeterRegistry());
+        Instant exp = Instant.now().plusSeconds(600);
+        cache.put("alice-token", jwt(ALICE, exp), active(ALICE), secretCache.generation());
+        cache.put("bob-token", jwt(BOB, exp), active(BOB), secretCache.generation());
+        cache.get("alice-token");
+
+        cache.put("alice-other-token", jwt(ALICE, exp), active(ALICE), secretCache.generation());
+
+        assertThat(cache.get("alice-token")).isEqualTo(active(ALICE));
+        assertThat(cache.get("alice-other-token")).isEqualTo(active(ALICE));
+        assertThat(cache.get("bob-token")).isNull();
+    }
+
+    @Test
+    void releasesTheEpochsOfEntriesItNoLongerKeeps() {
+        IntrospectionCache cache = new IntrospectionCache(secretCache, Duration.ofHours(1), 1,
+                new SimpleMeterRegistry());
+        Instant exp = Instant.now().plusSeconds(600);
+        cache.put("alice-token", jwt(ALICE, exp), active(ALICE), secretCache.generation());
+        cache.put("bob-token", jwt(BOB, exp), active(BOB), secretCache.generation());
+        assertThat(secretCache.trackedEpochs()).isEqualTo(1);
+
+        secretCache.invalidate(BOB);
+        assertThat(cache.get("bob-token")).isNull();
+        assertThat(secretCache.trackedEpochs()).isZero();
+    }
+
+    @Test
+    void entriesEndWithTheirToken() {
+        IntrospectionCache cache = cache(Duration.ofHours(1));
+        cache.put("alice-token", jwt(ALICE, Instant.now().minusSeconds(1)), active(ALICE),
+                secretCache.generation());
+
+        assertThat(cache.get("alice-token")).isNull();
+    }
+}
@@ -0,0 +1,133 @@
+package com.ziminpro.ums.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+class SecretCacheTest {
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+    private static SecretCache cache(Duration ttl) {
+        return new SecretCache(ttl, 100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void servesTheLoadedSecretUntilItIsInvalidated() throws Exception {
+        SecretCache cache = cache(Duration.ofHours(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.verifier(ALICE, id -> SECRET + loads.incrementAndGet());
+        cache.verifier(ALICE, id -> SECRET + loads.incrementAndGet());
+        assertThat(loads).hasValue(1);
+
+        cache.invalidate(ALICE);
+        cache.verifier(ALICE, id -> SECRET + loads.incrementAndGet());
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void aLoadThatRacedWithAnInvalidationIsNotKept() throws Exception {
+        SecretCache cache = cache(Duration.ofHours(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        // the rotation commits while the old secret is being read
+        assertThat(cache.verifier(ALICE, id -> {
+            loads.incrementAndGet();
+            cache.invalidate(ALICE);
+            return SECRET;
+        })).isNotNull();
+        cache.verifier(ALICE, id -> {
+            loads.incrementAndGet();
+            return SECRET;
+        });
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void aPreloadThatRacedWithAnInvalidationIsNotKept() throws Exception {
+        SecretCache cache = cache(Duration.ofHours(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.preload(List.of(ALICE, BOB), ids -> {
+            cache.invalidate(BOB);
+            Map<UUID, String> secrets = new HashMap<>();
+            ids.forEach(id -> secrets.put(id, SECRET));
+            return secrets;
+        });
+        cache.verifier(ALICE, id -> SECRET + loads.incrementAndGet());
+        cache.verifier(BOB, id -> SECRET + loads.incrementAndGet());
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void everyInvalidationMovesTheUsersEpochAndTheGeneration() {
+        SecretCache cache = cache(Duration.ofHours(1));
+        cache.hold(ALICE);
+        cache.hold(BOB);
+        long generation = cache.generation();
+
+        cache.invalidate(ALICE);
+
+        assertThat(cache.epoch(ALICE)).isEqualTo(1);
+        assertThat(cache.epoch(BOB)).isZero();
+        assertThat(cache.generation()).isNotEqualTo(generation);
+    }
+
+    @Test
+    void anEpochIsTrackedOnlyWhileSomethingHoldsIt() {
+        SecretCache cache = cache(Duration.ofHours(1));
+
+        cache.invalidate(ALICE);
+        assertThat(cache.trackedEpochs()).isZero();
+
+        cache.hold(ALICE);
+        cache.hold(ALICE);
+        cache.invalidate(ALICE);
+        cache.release(ALICE);
+        assertThat(cache.epoch(ALICE)).isEqualTo(1);
+
+        cache.release(ALICE);
+        assertThat(cache.trackedEpochs()).isZero();
+    }
+
+    @Test
+    void aFullCacheDropsOnlyTheLeastRecentlyUsedUser() throws Exception {
+        SecretCache cache = new SecretCache(Duration.ofHours(1), 2, new SimpleMeterRegistry());
+        UUID carol = UUID.fromString("00000000-0000-0000-0000-00000000000c");
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.verifier(ALICE, id -> SECRET + loads.incrementAndGet());
+        cache.verifier(BOB, id -> SECRET + loads.incrementAndGet());
+        cache.verifier(ALICE, id -> SECRET + loads.incrementAndGet());
+        cache.verifier(carol, id -> SECRET + loads.incrementAndGet());
+        assertThat(loads).hasValue(3);
+
+        cache.verifier(ALICE, id -> SECRET + loads.incrementAndGet());
+        assertThat(loads).hasValue(3);
+        cache.verifier(BOB, id -> SECRET + loads.incrementAndGet());
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void reloadsOnceTheTtlRunsOut() throws Exception {
+        SecretCache cache = cache(Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.verifier(ALICE, id -> SECRET + loads.incrementAndGet());
+        cache.verifier(ALICE, id -> SECRET + loads.incrementAndGet());
+
+        assertThat(loads).hasValue(2);
+    }
+}
@@ -0,0 +1,194 @@
+package com.ziminpro.ums.changes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import com.ziminpro.ums.dao.UserChangeRepository;
+import com.ziminpro.ums.dtos.UserChange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.Disposable;
+
+class UserChangeFeedTest {
+
+    private static UserChangeFeed feed(FakeChanges changes, Duration gapTimeout) {
+        return feed(changes, gapTimeout, 100);
+    }
+
+    private static UserChangeFeed feed(FakeChanges changes, Duration gapTimeout, int replaySize) {
+        return new UserChangeFeed(changes, new SimpleMeterRegistry(), 10, replaySize, gapTimeout, Duration.ofDays(7));
+    }
+
+    @Test
+    void waitsOnAGapWhileAWriterStillHoldsIt() {
+        FakeChanges changes = new FakeChanges(1, 2, 4);
+        changes.held = true;
+        UserChangeFeed feed = feed(changes, Duration.ZERO);
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        Disposable reader = feed.changes(0L).subscribe(change -> seen.add(change.sequence()));
+
+        await(() -> changes.probes.get() >= 2, feed);
+        assertThat(seen).containsExactly(1L, 2L);
+
+        // the long transaction finally commits id 3
+        changes.commit(3);
+        changes.held = false;
+        await(() -> seen.size() == 4, feed);
+        assertThat(seen).containsExactly(1L, 2L, 3L, 4L);
+        reader.dispose();
+        feed.close();
+    }
+
+    @Test
+    void skipsOnlyIdsThatAreGoneForGood() {
+        FakeChanges changes = new FakeChanges(1, 2, 4, 5);
+        UserChangeFeed feed = feed(changes, Duration.ZERO);
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        Disposable reader = feed.changes(0L).subscribe(change -> seen.add(change.sequence()));
+
+        await(() -> seen.size() == 4, feed);
+        assertThat(seen).containsExactly(1L, 2L, 4L, 5L);
+        reader.dispose();
+        feed.close();
+    }
+
+    @Test
+    void probesNothingBeforeTheGapTimeout() throws InterruptedException {
+        FakeChanges changes = new FakeChanges(1, 2, 4);
+        UserChangeFeed feed = feed(changes, Duration.ofHours(1));
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        Disposable reader = feed.changes(0L).subscribe(change -> seen.add(change.sequence()));
+
+        await(() -> seen.size() == 2, feed);
+        feed.published();
+        Thread.sleep(50);
+        assertThat(seen).containsExactly(1L, 2L);
+        assertThat(changes.probes).hasValue(0);
+        reader.dispose();
+        feed.close();
+    }
+
+    @Test
+    void liveReadersShareOnePollPerTick() throws InterruptedException {
+        FakeChanges changes = new FakeChanges(1, 2);
+        UserChangeFeed feed = feed(changes, Duration.ZERO);
+        List<List<Long>> seen = List.of(new CopyOnWriteArrayList<>(), new CopyOnWriteArrayList<>(),
+                new CopyOnWriteArrayList<>());
+        List<Disposable> readers = seen.stream()
+                .map(reader -> feed.changes(null).subscribe(change -> reader.add(change.sequence())))
+                .toList();
+        await(() -> changes.bounds.get() == 3, feed);
+        Thread.sleep(50);
+
+        changes.commit(3);
+        changes.commit(4);
+        int pagesBefore = changes.pages.get();
+        int ticks = 0;
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!seen.stream().allMatch(reader -> reader.size() == 2)) {
+            assertThat(System.nanoTime()).as("condition met in time").isLessThan(deadline);
+            feed.published();
+            ticks++;
+            Thread.sleep(10);
+        }
+
+        assertThat(seen).allSatisfy(reader -> assertThat(reader).containsExactly(3L, 4L));
+        // one shared page per tick at most, however many streams are open
+        assertThat(changes.pages.get() - pagesBefore).isLessThanOrEqualTo(ticks);
+        readers.forEach(Disposable::dispose);
+        feed.close();
+    }
+
+    @Test
+    void aReaderFromBeforeTheBufferCatchesUpFromTheTable() {
+        FakeChanges changes = new FakeChanges(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12);
+        UserChangeFeed feed = feed(changes, Duration.ZERO, 2);
+        List<Long> live = new CopyOnWriteArrayList<>();
+        Disposable follower = feed.changes(null).subscribe(change -> live.add(change.sequence()));
+        await(() -> changes.bounds.get() == 1, feed);
+        for (long id = 13; id <= 16; id++) {
+            changes.commit(id);
+        }
+        await(() -> live.size() == 4, feed);
+
+        List<Long> resumed = new CopyOnWriteArrayList<>();
+        Disposable late = feed.changes(3L).subscribe(change -> resumed.add(change.sequence()));
+        await(() -> resumed.size() == 13, feed);
+
+        assertThat(live).containsExactly(13L, 14L, 15L, 16L);
+        assertThat(resumed).containsExactly(4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L, 14L, 15L, 16L);
+        follower.dispose();
+        late.dispose();
+        feed.close();
+    }
+
+    private static void await(BooleanSupplier condition, UserChangeFeed feed) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition met in time").isLessThan(deadline);
+            feed.published();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static final class FakeChanges implements UserChangeRepository {
+        private final List<UserChange> committed = new CopyOnWriteArrayList<>();
+        private final AtomicInteger probes = new AtomicInteger();
+        private final AtomicInteger pages = new AtomicInteger();
+        private final AtomicInteger bounds = new AtomicInteger();
+        private volatile boolean held;
+
+        private FakeChanges(long... ids) {
+            for (long id : ids) {
+                commit(id);
+            }
+        }
+
+        private void commit(long id) {
+            committed.add(new UserChange(id, UUID.randomUUID(), UserChange.SECRET_ROTATED, 0));
+            committed.sort(Comparator.comparingLong(UserChange::sequence));
+        }
+
+        @Override
+        public void append(UUID userId, String type) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<UserChange> findChangesAfter(long sequence, int limit) {
+            pages.incrementAndGet();
+            return committed.stream().filter(change -> change.sequence() > sequence).limit(limit).toList();
+        }
+
+        @Override
+        public long[] findSequenceBounds() {
+            bounds.incrementAndGet();
+            return new long[] { committed.getFirst().sequence(), committed.getLast().sequence() };
+        }
+
+        @Override
+        public boolean isGapSettled(long after, long before) {
+            probes.incrementAndGet();
+            return !held && committed.stream().noneMatch(change -> change.sequence() > after
+                    && change.sequence() < before);
+        }
+
+        @Override
+        public int deleteExpiredChanges(long createdBefore, long belowSequence, int limit) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.ziminpro.ums.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+class ServiceAuthenticationManagerTest {
+
+    private static Authentication basic(String name, String secret) {
+        return UsernamePasswordAuthenticationToken.unauthenticated(name, secret);
+    }
+
+    @Test
+    void grantsTheServiceRoleForTheConfiguredCredential() {
+        Authentication authenticated = new ServiceAuthenticationManager("twitter", "s3cret")
+                .authenticate(basic("twitter", "s3cret"))
+                .block();
+
+        assertThat(authenticated.isAuthenticated()).isTrue();
+        assertThat(authenticated.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_SERVICE");
+    }
+
+    @Test
+    void rejectsAnotherSecretOrName() {
+        ServiceAuthenticationManager manager = new ServiceAuthenticationManager("twitter", "s3cret");
+
+        assertThatThrownBy(() -> manager.authenticate(basic("twitter", "guess")).block())
+                .isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> manager.authenticate(basic("frontend", "s3cret")).block())
+                .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void staysClosedWithoutAConfiguredSecret() {
+        ServiceAuthenticationManager manager = new ServiceAuthenticationManager("twitter", "");
+
+        assertThatThrownBy(() -> manager.authenticate(basic("twitter", "")).block())
+                .isInstanceOf(BadCredentialsException.class);
+    }
+}